@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Redis Cluster hash slot calculation, CRC16 (XMODEM) of the key or of its hash tag modulo 16384.
+ */
+final class ClusterSlots {
+  static final int SLOTS = 16384;
+  private static final int[] TABLE = new int[256];
+
+  static {
+    for (int i = 0; i < TABLE.length; i++) {
+      int crc = i << 8;
+      for (int bit = 0; bit < 8; bit++) {
+        crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+      }
+      TABLE[i] = crc & 0xFFFF;
+    }
+  }
+
+  private ClusterSlots() {
+  }
+
+  static int slot(String key) {
+    return slot(key.getBytes(StandardCharsets.UTF_8));
+  }
+
+  static int slot(byte[] key) {
+    int start = indexOf(key, (byte) '{', 0);
+    if (start >= 0) {
+      int end = indexOf(key, (byte) '}', start + 1);
+      if (end > start + 1) {
+        return crc16(key, start + 1, end) & (SLOTS - 1);
+      }
+    }
+    return crc16(key, 0, key.length) & (SLOTS - 1);
+  }
+
+  static int crc16(byte[] bytes, int from, int to) {
+    int crc = 0;
+    for (int i = from; i < to; i++) {
+      crc = ((crc << 8) ^ TABLE[((crc >>> 8) ^ bytes[i]) & 0xFF]) & 0xFFFF;
+    }
+    return crc;
+  }
+
+  private static int indexOf(byte[] bytes, byte value, int from) {
+    for (int i = from; i < bytes.length; i++) {
+      if (bytes[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import java.net.InetSocketAddress;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisClient;
+import org.redisson.connection.ConnectionManager;
+import org.redisson.connection.MasterSlaveEntry;
+
+/**
+ * Locates the hash slot of object names and the address of the master serving it. Slots are
+ * cached per name and the slot to address table is rebuilt from Redisson's view of the topology
+ * at most every few seconds, on Redisson's executor rather than the calling thread.
+ */
+class ClusterTopology {
+  static final String REDIS_SLOT = "redis.slot";
+  static final String PEER_ADDRESS = "peer.address";
+  static final String NODE_LATENCY_US = "node.latency.us";
+  private static final long REFRESH_NANOS = TimeUnit.SECONDS.toNanos(5);
+  private static final int NAME_CACHE_SIZE = 1024;
+
+  private final ConnectionManager connectionManager;
+  private final boolean cluster;
+  private final Slot[] slots = new Slot[NAME_CACHE_SIZE];
+  private final AtomicLong refreshedAt = new AtomicLong(System.nanoTime());
+  private volatile String[] addresses = new String[ClusterSlots.SLOTS];
+
+  private ClusterTopology(ConnectionManager connectionManager) {
+    this.connectionManager = connectionManager;
+    this.cluster = connectionManager.isClusterMode();
+    refresh();
+  }
+
+  /**
+   * @return topology of the client, <code>null</code> if it is not a {@link Redisson} instance
+   */
+  static ClusterTopology of(RedissonClient redissonClient) {
+    if (!(redissonClient instanceof Redisson)) {
+      return null;
+    }
+    return new ClusterTopology(((Redisson) redissonClient).getConnectionManager());
+  }
+
+  boolean isCluster() {
+    return cluster;
+  }
+
+  int slot(String name) {
+    // Object names are long-lived strings with a cached hash code, so this avoids rehashing
+    int index = name.hashCode() & (NAME_CACHE_SIZE - 1);
+    Slot slot = slots[index];
+    if (slot == null || !slot.name.equals(name)) {
+      slot = new Slot(name, ClusterSlots.slot(name));
+      slots[index] = slot;
+    }
+    return slot.slot;
+  }
+
+  /**
+   * @return <code>host:port</code> of the master serving the slot, <code>null</code> if unknown
+   */
+  String address(int slot) {
+    long now = System.nanoTime();
+    long refreshed = refreshedAt.get();
+    if (now - refreshed >= REFRESH_NANOS && refreshedAt.compareAndSet(refreshed, now)) {
+      try {
+        // Callers keep using the previous table until the rebuilt one is published
+        connectionManager.getExecutor().execute(this::refresh);
+      } catch (RejectedExecutionException e) {
+        // The client is shutting down
+      }
+    }
+    return addresses[slot];
+  }
+
+  private void refresh() {
+    String[] table = new String[ClusterSlots.SLOTS];
+    Map<MasterSlaveEntry, String> entries = new IdentityHashMap<>();
+    for (int slot = 0; slot < table.length; slot++) {
+      MasterSlaveEntry entry = connectionManager.getEntry(slot);
+      if (entry != null) {
+        table[slot] = entries.computeIfAbsent(entry, ClusterTopology::address);
+      }
+    }
+    addresses = table;
+  }
+
+  static String address(MasterSlaveEntry entry) {
+    return address(entry.getClient());
+  }
+
+  static String address(RedisClient client) {
+    InetSocketAddress address = client == null ? null : client.getAddr();
+    return address == null ? null : address.getHostString() + ':' + address.getPort();
+  }
+
+  private static class Slot {
+    private final String name;
+    private final int slot;
+
+    private Slot(String name, int slot) {
+      this.name = name;
+      this.slot = slot;
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import io.opentracing.Span;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import org.redisson.connection.ConnectionManager;
+
+/**
+ * Traces node connection events. A reconnect is traced as a span lasting from the disconnect,
+ * and a change of the masters as a failover or topology change span. Operations finishing while
+ * their node is disconnected, or running when it connects or disconnects, are tagged. Operations
+ * of unknown nodes are tagged for any node.
+ */
+class ConnectionEventTracker {
+  static final String CONNECTION_DISCONNECTS = "connection.disconnects";
+  static final String CONNECTION_RECONNECTS = "connection.reconnects";
+  static final String FAILOVERS = "failovers";
+  static final String TOPOLOGY_CHANGES = "topology.changes";
+  static final String DURING_RECONNECT = "during_reconnect";
+
+  private final TracingHelper tracingHelper;
+  private final TracingMetrics metrics;
+  private final ConnectionManager connectionManager;
+  private final ConcurrentMap<String, Long> disconnectedAt = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Long> lastEventNanos = new ConcurrentHashMap<>();
+  private volatile long lastAnyEventNanos = System.nanoTime();
+  private Set<String> masters;
+
+  ConnectionEventTracker(TracingHelper tracingHelper, TracingMetrics metrics,
+      ConnectionManager connectionManager) {
+    this.tracingHelper = tracingHelper;
+    this.metrics = metrics;
+    this.connectionManager = connectionManager;
+    this.masters = masters();
+  }
+
+  /**
+   * @param address node serving the operation, <code>null</code> if unknown, in which case any
+   * disconnected node tags the span
+   */
+  Span wrap(Span span, String address) {
+    return new ReconnectSpan(span, address);
+  }
+
+  void onConnect(String address) {
+    onEvent(address);
+    Long since = disconnectedAt.remove(address);
+    if (since != null) {
+      metrics.counter(CONNECTION_RECONNECTS, address).increment();
+      tracingHelper.buildEventSpan("reconnect", since)
+          .setTag(ClusterTopology.PEER_ADDRESS, address)
+          .finish(TracingHelper.nowMicros());
+    }
+    checkMasters();
+  }
+
+  void onDisconnect(String address) {
+    onEvent(address);
+    if (disconnectedAt.putIfAbsent(address, TracingHelper.nowMicros()) == null) {
+      metrics.counter(CONNECTION_DISCONNECTS, address).increment();
+    }
+    checkMasters();
+  }
+
+  private void onEvent(String address) {
+    long nowNanos = System.nanoTime();
+    lastEventNanos.put(address, nowNanos);
+    lastAnyEventNanos = nowNanos;
+  }
+
+  private synchronized void checkMasters() {
+    Set<String> current = masters();
+    if (current.equals(masters)) {
+      return;
+    }
+    Set<String> added = new TreeSet<>(current);
+    added.removeAll(masters);
+    Set<String> removed = new TreeSet<>(masters);
+    removed.removeAll(current);
+    masters = current;
+    // Departed masters do not come back under this address, so they are no longer disconnected
+    removed.forEach(disconnectedAt::remove);
+    boolean failover = !added.isEmpty() && !removed.isEmpty();
+    metrics.counter(failover ? FAILOVERS : TOPOLOGY_CHANGES, "").increment();
+    long nowMicros = TracingHelper.nowMicros();
+    tracingHelper.buildEventSpan(failover ? "failover" : "topology_change", nowMicros)
+        .setTag("masters.added", String.join(", ", added))
+        .setTag("masters.removed", String.join(", ", removed))
+        .finish(nowMicros);
+  }
+
+  private Set<String> masters() {
+    if (connectionManager == null) {
+      return new TreeSet<>();
+    }
+    return connectionManager.getEntrySet().stream()
+        .map(ClusterTopology::address)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toCollection(TreeSet::new));
+  }
+
+  private class ReconnectSpan extends ForwardingSpan {
+    private final long startNanos = System.nanoTime();
+    private final String address;
+
+    private ReconnectSpan(Span span, String address) {
+      super(span);
+      this.address = address;
+    }
+
+    @Override
+    void onFinish(long finishNanos) {
+      boolean disconnected =
+          address == null ? !disconnectedAt.isEmpty() : disconnectedAt.containsKey(address);
+      Long eventNanos = address == null ? (Long) lastAnyEventNanos : lastEventNanos.get(address);
+      if (disconnected || eventNanos != null && eventNanos - startNanos >= 0) {
+        setTag(DURING_RECONNECT, true);
+      }
+    }
+  }
+}
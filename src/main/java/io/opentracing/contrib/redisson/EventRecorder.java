@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import io.opentracing.Span;
+
+/**
+ * Records operations as runtime events next to their spans. Flight Recorder events are compiled
+ * for Java 11 into the multi-release section of the jar and loaded by name, so the rest of the
+ * instrumentation builds and runs on Java 8 without them.
+ */
+interface EventRecorder {
+  String FLIGHT_RECORDER = "io.opentracing.contrib.redisson.RedissonEvent$Recorder";
+
+  /**
+   * @return span recording the operation until it finishes
+   */
+  Span wrap(Span span, String operation, String name);
+
+  /**
+   * @return the Flight Recorder event recorder, <code>null</code> if the runtime has none
+   */
+  static EventRecorder flightRecorder() {
+    try {
+      return (EventRecorder) Class.forName(FLIGHT_RECORDER).newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Span forwarding to another one, notified just before it finishes. Explicit finish timestamps
+ * are expected to come from {@link TracingHelper#nowMicros()}.
+ */
+abstract class ForwardingSpan implements Span {
+  private final Span span;
+
+  ForwardingSpan(Span span) {
+    this.span = span;
+  }
+
+  abstract void onFinish(long finishNanos);
+
+  /**
+   * @return the first span of the given type along the forwarding chain, or null
+   */
+  static <T extends Span> T find(Span span, Class<T> type) {
+    while (!type.isInstance(span) && span instanceof ForwardingSpan) {
+      span = ((ForwardingSpan) span).span;
+    }
+    return type.isInstance(span) ? type.cast(span) : null;
+  }
+
+  @Override
+  public SpanContext context() {
+    return span.context();
+  }
+
+  @Override
+  public Span setTag(String key, String value) {
+    span.setTag(key, value);
+    return this;
+  }
+
+  @Override
+  public Span setTag(String key, boolean value) {
+    span.setTag(key, value);
+    return this;
+  }
+
+  @Override
+  public Span setTag(String key, Number value) {
+    span.setTag(key, value);
+    return this;
+  }
+
+  @Override
+  public Span log(Map<String, ?> fields) {
+    span.log(fields);
+    return this;
+  }
+
+  @Override
+  public Span log(long timestampMicroseconds, Map<String, ?> fields) {
+    span.log(timestampMicroseconds, fields);
+    return this;
+  }
+
+  @Override
+  public Span log(String event) {
+    span.log(event);
+    return this;
+  }
+
+  @Override
+  public Span log(long timestampMicroseconds, String event) {
+    span.log(timestampMicroseconds, event);
+    return this;
+  }
+
+  @Override
+  public Span setBaggageItem(String key, String value) {
+    span.setBaggageItem(key, value);
+    return this;
+  }
+
+  @Override
+  public String getBaggageItem(String key) {
+    return span.getBaggageItem(key);
+  }
+
+  @Override
+  public Span setOperationName(String operationName) {
+    span.setOperationName(operationName);
+    return this;
+  }
+
+  @Override
+  public void finish() {
+    onFinish(System.nanoTime());
+    span.finish(TracingHelper.nowMicros());
+  }
+
+  @Override
+  public void finish(long finishMicros) {
+    long elapsedMicros = TracingHelper.nowMicros() - finishMicros;
+    finish(finishMicros, System.nanoTime() - TimeUnit.MICROSECONDS.toNanos(elapsedMicros));
+  }
+
+  /**
+   * Finishes at a timestamp taken earlier, with the <code>System.nanoTime()</code> reading taken
+   * along with it.
+   */
+  void finish(long finishMicros, long finishNanos) {
+    onFinish(finishNanos);
+    span.finish(finishMicros);
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+public class HotKey {
+  private final String name;
+  private final String field;
+  private final long count;
+  private final double rate;
+
+  HotKey(String name, String field, long count, double rate) {
+    this.name = name;
+    this.field = field;
+    this.count = count;
+    this.rate = rate;
+  }
+
+  /**
+   * @return Redis key, i.e. the bucket or map name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return map entry key, <code>null</code> for buckets
+   */
+  public String getField() {
+    return field;
+  }
+
+  /**
+   * @return estimated number of accesses in the window
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return estimated accesses per second in the window
+   */
+  public double getRate() {
+    return rate;
+  }
+
+  @Override
+  public String toString() {
+    return (field == null ? name : name + '[' + field + ']') + '=' + String.format("%.1f/s", rate);
+  }
+}
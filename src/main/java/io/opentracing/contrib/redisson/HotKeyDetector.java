@@ -0,0 +1,206 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import io.opentracing.Span;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Heavy-hitter detection over fixed-size windows. Accesses are counted in a count-min sketch
+ * striped by thread, so the hot path is a handful of atomic increments. Only keys whose estimate
+ * reaches the smallest count in the top-K table touch the table, which is a concurrent map. Each
+ * window is an immutable reference that is swapped, not cleared, when it ends.
+ */
+class HotKeyDetector {
+  static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+  private static final int DEPTH = 4;
+  private static final int WIDTH = 1024;
+  private static final int STRIPES = 4;
+  private static final long[] SEEDS = {
+      0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+  private final int topK;
+  private final long windowNanos;
+  private final AtomicReference<Window> window = new AtomicReference<>();
+  private volatile List<HotKey> lastWindow = Collections.emptyList();
+
+  HotKeyDetector(int topK) {
+    this(topK, WINDOW_NANOS);
+  }
+
+  HotKeyDetector(int topK, long windowNanos) {
+    this.topK = topK;
+    this.windowNanos = windowNanos;
+    this.window.set(new Window(System.nanoTime()));
+  }
+
+  void record(Span span, String name) {
+    record(span, name, null);
+  }
+
+  void record(Span span, String name, Object field) {
+    Window current = rotate(span);
+    int hash = 31 * name.hashCode() + Objects.hashCode(field);
+    AtomicLongArray stripe = current.sketch[(int) (Thread.currentThread().getId() % STRIPES)];
+    for (int row = 0; row < DEPTH; row++) {
+      stripe.incrementAndGet(index(row, hash));
+    }
+    long estimate = current.estimate(hash);
+    if (estimate >= current.threshold) {
+      current.offer(name, field == null ? null : field.toString(), estimate);
+    }
+  }
+
+  /**
+   * Top keys of the last complete window, or of the current one until a window has completed.
+   */
+  List<HotKey> getHotKeys() {
+    List<HotKey> hotKeys = lastWindow;
+    if (!hotKeys.isEmpty()) {
+      return hotKeys;
+    }
+    Window current = window.get();
+    long elapsed = Math.max(System.nanoTime() - current.start, TimeUnit.SECONDS.toNanos(1));
+    return current.snapshot(elapsed);
+  }
+
+  private Window rotate(Span span) {
+    long now = System.nanoTime();
+    Window current = window.get();
+    if (now - current.start < windowNanos) {
+      return current;
+    }
+    Window next = new Window(now);
+    if (!window.compareAndSet(current, next)) {
+      return window.get();
+    }
+    List<HotKey> hotKeys = current.snapshot(now - current.start);
+    lastWindow = hotKeys;
+    if (!hotKeys.isEmpty()) {
+      Map<String, Object> fields = new HashMap<>(2);
+      fields.put("event", "hot_keys");
+      fields.put("hot_keys", hotKeys.toString());
+      span.log(fields);
+    }
+    return next;
+  }
+
+  private static int index(int row, int hash) {
+    long mixed = (hash ^ SEEDS[row]) * 0xFF51AFD7ED558CCDL;
+    mixed ^= mixed >>> 33;
+    return row * WIDTH + (int) (mixed & (WIDTH - 1));
+  }
+
+  private class Window {
+    private final long start;
+    private final AtomicLongArray[] sketch = new AtomicLongArray[STRIPES];
+    private final ConcurrentMap<String, Candidate> candidates = new ConcurrentHashMap<>();
+    private volatile long threshold;
+
+    private Window(long start) {
+      this.start = start;
+      for (int i = 0; i < STRIPES; i++) {
+        sketch[i] = new AtomicLongArray(DEPTH * WIDTH);
+      }
+    }
+
+    private long estimate(int hash) {
+      long estimate = Long.MAX_VALUE;
+      for (int row = 0; row < DEPTH; row++) {
+        int index = index(row, hash);
+        long count = 0;
+        for (AtomicLongArray stripe : sketch) {
+          count += stripe.get(index);
+        }
+        estimate = Math.min(estimate, count);
+      }
+      return estimate;
+    }
+
+    private void offer(String name, String field, long estimate) {
+      String id = field == null ? name : name + '\u0000' + field;
+      Candidate candidate = candidates.get(id);
+      if (candidate != null) {
+        candidate.count.accumulateAndGet(estimate, Math::max);
+        return;
+      }
+      if (candidates.size() >= topK) {
+        Map.Entry<String, Candidate> min = min();
+        if (min == null || estimate <= min.getValue().count.get()) {
+          return;
+        }
+        candidates.remove(min.getKey(), min.getValue());
+      }
+      candidates.putIfAbsent(id, new Candidate(name, field, estimate));
+      // Concurrent admissions may overshoot, the smallest entries give way again
+      while (candidates.size() > topK) {
+        Map.Entry<String, Candidate> min = min();
+        if (min == null) {
+          break;
+        }
+        candidates.remove(min.getKey(), min.getValue());
+      }
+      if (candidates.size() >= topK) {
+        Map.Entry<String, Candidate> min = min();
+        threshold = min == null ? 0 : min.getValue().count.get() + 1;
+      }
+    }
+
+    private Map.Entry<String, Candidate> min() {
+      Map.Entry<String, Candidate> min = null;
+      for (Map.Entry<String, Candidate> entry : candidates.entrySet()) {
+        if (min == null || entry.getValue().count.get() < min.getValue().count.get()) {
+          min = entry;
+        }
+      }
+      return min;
+    }
+
+    private List<HotKey> snapshot(long elapsedNanos) {
+      List<HotKey> hotKeys = new ArrayList<>(candidates.size());
+      double seconds = (double) elapsedNanos / TimeUnit.SECONDS.toNanos(1);
+      for (Candidate candidate : candidates.values()) {
+        long count = candidate.count.get();
+        hotKeys.add(new HotKey(candidate.name, candidate.field, count, count / seconds));
+      }
+      hotKeys.sort(Comparator.comparingLong(HotKey::getCount).reversed());
+      return Collections.unmodifiableList(
+          hotKeys.size() > topK ? new ArrayList<>(hotKeys.subList(0, topK)) : hotKeys);
+    }
+  }
+
+  private static class Candidate {
+    private final String name;
+    private final String field;
+    private final AtomicLong count;
+
+    private Candidate(String name, String field, long count) {
+      this.name = name;
+      this.field = field;
+      this.count = new AtomicLong(count);
+    }
+  }
+}
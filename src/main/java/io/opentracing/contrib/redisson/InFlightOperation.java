@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+public class InFlightOperation {
+  private final String thread;
+  private final String operation;
+  private final String name;
+  private final String type;
+  private final long startMillis;
+  private final long elapsedMillis;
+
+  InFlightOperation(String thread, String operation, String name, String type, long startMillis,
+      long elapsedMillis) {
+    this.thread = thread;
+    this.operation = operation;
+    this.name = name;
+    this.type = type;
+    this.startMillis = startMillis;
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  /**
+   * @return name of the thread that issued the operation
+   */
+  public String getThread() {
+    return thread;
+  }
+
+  public String getOperation() {
+    return operation;
+  }
+
+  /**
+   * @return name of the Redisson object, <code>null</code> for operations not bound to one
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return Redisson object type, e.g. <code>RedissonMap</code> or <code>RedissonKeys</code>
+   */
+  public String getType() {
+    return type;
+  }
+
+  /**
+   * @return wall-clock time the operation started at, in milliseconds since the epoch
+   */
+  public long getStartMillis() {
+    return startMillis;
+  }
+
+  /**
+   * @return time the operation has been running for when the registry was inspected
+   */
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  @Override
+  public String toString() {
+    return type + '[' + name + "]." + operation + " on " + thread + " for " + elapsedMillis
+        + "ms";
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import io.opentracing.Span;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
+import org.redisson.api.RObject;
+
+/**
+ * Registry of operations currently in flight. Operations not bound to a single object, e.g. of
+ * {@link org.redisson.api.RKeys}, are registered under the type of their owner without a name.
+ * Iterations are not registered. Operations take a slot in an array striped by
+ * thread, so registering and releasing one is a compare-and-set without contention from other
+ * threads. Operations not finding a free slot are counted in {@link #IN_FLIGHT_OVERFLOW} and
+ * missing from {@link #getOldest(int)}.
+ */
+class InFlightRegistry {
+  static final String IN_FLIGHT = "in_flight";
+  static final String IN_FLIGHT_OVERFLOW = "in_flight.overflow";
+  private static final int STRIPES = 16;
+  private static final int SLOTS = 64;
+
+  private final AtomicReferenceArray<Entry>[] stripes;
+  private final TracingMetrics metrics;
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  InFlightRegistry(TracingMetrics metrics) {
+    this.metrics = metrics;
+    this.stripes = new AtomicReferenceArray[STRIPES];
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new AtomicReferenceArray<>(SLOTS);
+    }
+  }
+
+  /**
+   * @return span releasing the operation's slot when finished, unless held for a future
+   */
+  Span track(Span span, String operation, RObject rObject) {
+    return track(span, operation, rObject.getName(), rObject.getClass().getSimpleName());
+  }
+
+  /**
+   * @param name name of the object operated on, <code>null</code> if none
+   * @param type type of the object issuing the operation
+   * @return span releasing the operation's slot when finished, unless held for a future
+   */
+  Span track(Span span, String operation, String name, String type) {
+    Thread thread = Thread.currentThread();
+    Entry entry = new Entry(thread.getName(), operation, name, type);
+    AtomicReferenceArray<Entry> stripe = stripes[(int) (thread.getId() % STRIPES)];
+    int slot = -1;
+    for (int i = 0; i < SLOTS && slot < 0; i++) {
+      if (stripe.get(i) == null && stripe.compareAndSet(i, null, entry)) {
+        slot = i;
+      }
+    }
+    if (slot < 0) {
+      metrics.counter(IN_FLIGHT_OVERFLOW, entry.type).increment();
+    }
+    AtomicLong gauge = metrics.gauge(IN_FLIGHT, entry.type);
+    gauge.incrementAndGet();
+    return new TrackedSpan(span, stripe, slot, entry, gauge);
+  }
+
+  /**
+   * Span of a tracked operation. Once held, the operation stays in flight until released, even
+   * if the span was finished before, e.g. by the watchdog.
+   */
+  static class TrackedSpan extends ForwardingSpan {
+    private final AtomicReferenceArray<Entry> stripe;
+    private final int slot;
+    private final Entry entry;
+    private final AtomicLong gauge;
+    private final AtomicBoolean released = new AtomicBoolean();
+    private volatile boolean held;
+
+    private TrackedSpan(Span span, AtomicReferenceArray<Entry> stripe, int slot, Entry entry,
+        AtomicLong gauge) {
+      super(span);
+      this.stripe = stripe;
+      this.slot = slot;
+      this.entry = entry;
+      this.gauge = gauge;
+    }
+
+    void hold() {
+      held = true;
+    }
+
+    void release() {
+      if (released.compareAndSet(false, true)) {
+        if (slot >= 0) {
+          stripe.compareAndSet(slot, entry, null);
+        }
+        gauge.decrementAndGet();
+      }
+    }
+
+    @Override
+    void onFinish(long finishNanos) {
+      if (!held) {
+        release();
+      }
+    }
+  }
+
+  /**
+   * @return at most <code>limit</code> operations in flight, oldest first
+   */
+  List<InFlightOperation> getOldest(int limit) {
+    List<Entry> entries = new ArrayList<>();
+    for (AtomicReferenceArray<Entry> stripe : stripes) {
+      for (int i = 0; i < SLOTS; i++) {
+        Entry entry = stripe.get(i);
+        if (entry != null) {
+          entries.add(entry);
+        }
+      }
+    }
+    long nowNanos = System.nanoTime();
+    return entries.stream()
+        .sorted(Comparator.comparingLong(entry -> entry.startNanos - nowNanos))
+        .limit(limit)
+        .map(entry -> new InFlightOperation(entry.thread, entry.operation, entry.name, entry.type,
+            entry.startMillis, TimeUnit.NANOSECONDS.toMillis(nowNanos - entry.startNanos)))
+        .collect(Collectors.toList());
+  }
+
+  private static class Entry {
+    private final String thread;
+    private final String operation;
+    private final String name;
+    private final String type;
+    private final long startMillis = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+
+    private Entry(String thread, String operation, String name, String type) {
+      this.thread = thread;
+      this.operation = operation;
+      this.name = name;
+      this.type = type;
+    }
+  }
+}
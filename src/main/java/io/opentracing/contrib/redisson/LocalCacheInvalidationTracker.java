@@ -0,0 +1,230 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.redisson.RedissonLocalCachedMap;
+import org.redisson.RedissonObject;
+import org.redisson.api.RLocalCachedMap;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.cache.LocalCachedMapClear;
+import org.redisson.cache.LocalCachedMapInvalidate;
+import org.redisson.cache.LocalCachedMessageCodec;
+import org.redisson.client.codec.StringCodec;
+
+/**
+ * Measures how long local cache entries stay stale on this node after another node writes them.
+ * Writers publish a stamp (origin, wall-clock write time, key hashes) on a companion topic just
+ * before the write; readers match stamps against the invalidation messages Redisson delivers on
+ * the map's own topic. The two topics are not ordered with respect to each other, so an
+ * invalidation arriving first waits briefly for its stamp.
+ */
+class LocalCacheInvalidationTracker {
+  static final String LOCAL_CACHE_STALENESS_MS = "local_cache.staleness.ms";
+  static final String LOCAL_CACHE_STALE_READS = "local_cache.stale_reads";
+  static final String LOCAL_CACHE_INVALIDATIONS_MISSED = "local_cache.invalidations.missed";
+  private static final String STAMPS_PREFIX = "redisson_local_cache_stamps:";
+  private static final int MAX_PENDING = 10_000;
+  private static final long MAX_PENDING_AGE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+  private static final long MAX_EARLY_AGE_MILLIS = TimeUnit.SECONDS.toMillis(1);
+  private static final long PURGE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+  private final String origin = UUID.randomUUID().toString();
+  private final ConcurrentMap<String, Pending> maps = new ConcurrentHashMap<>();
+  private final TracingMetrics metrics;
+  private final RedissonClient redissonClient;
+
+  LocalCacheInvalidationTracker(TracingMetrics metrics, RedissonClient redissonClient) {
+    this.metrics = metrics;
+    this.redissonClient = redissonClient;
+  }
+
+  void register(RLocalCachedMap<?, ?> map) {
+    if (map instanceof RedissonLocalCachedMap) {
+      maps.compute(map.getName(), (name, pending) -> {
+        Pending registered = pending == null ? subscribe(name) : pending;
+        registered.maps++;
+        return registered;
+      });
+    }
+  }
+
+  /**
+   * Stops tracking a map once every instance registered for its name is destroyed.
+   */
+  void unregister(RLocalCachedMap<?, ?> map) {
+    maps.computeIfPresent(map.getName(), (name, pending) -> {
+      if (--pending.maps > 0) {
+        return pending;
+      }
+      unsubscribe(name, pending);
+      return null;
+    });
+  }
+
+  void shutdown() {
+    maps.forEach((name, pending) -> {
+      if (maps.remove(name, pending)) {
+        unsubscribe(name, pending);
+      }
+    });
+  }
+
+  void onWrite(RLocalCachedMap<?, ?> map, Collection<?> keys) {
+    if (!maps.containsKey(map.getName()) || keys.isEmpty()) {
+      return;
+    }
+    String hashes = keys.stream().map(key -> keyHash(map, key)).collect(Collectors.joining(","));
+    stamps(map.getName()).publishAsync(origin + '|' + System.currentTimeMillis() + '|' + hashes);
+  }
+
+  void onLocalHit(RLocalCachedMap<?, ?> map, Object key) {
+    Pending pending = maps.get(map.getName());
+    if (pending != null && !pending.writtenAt.isEmpty()
+        && pending.writtenAt.containsKey(keyHash(map, key))) {
+      metrics.counter(LOCAL_CACHE_STALE_READS, map.getName()).increment();
+    }
+  }
+
+  private Pending subscribe(String name) {
+    Pending pending = new Pending();
+    pending.stampListener = stamps(name)
+        .addListener(String.class, (channel, stamp) -> onStamp(name, pending, stamp));
+    pending.invalidationListener = invalidations(name)
+        .addListener(Object.class, (channel, message) -> onInvalidation(name, pending, message));
+    return pending;
+  }
+
+  private void unsubscribe(String name, Pending pending) {
+    try {
+      stamps(name).removeListener(pending.stampListener);
+      invalidations(name).removeListener(pending.invalidationListener);
+    } catch (RuntimeException ignore) {
+      // The client may already be shut down, which removed the listeners
+    }
+  }
+
+  private RTopic stamps(String name) {
+    return redissonClient.getTopic(STAMPS_PREFIX + name, StringCodec.INSTANCE);
+  }
+
+  private RTopic invalidations(String name) {
+    return redissonClient.getTopic(RedissonObject.suffixName(name, "topic"),
+        LocalCachedMessageCodec.INSTANCE);
+  }
+
+  private void onStamp(String name, Pending pending, String stamp) {
+    String[] parts = stamp.split("\\|", 3);
+    if (parts.length < 3 || origin.equals(parts[0])) {
+      return;
+    }
+    long writtenAt;
+    try {
+      writtenAt = Long.parseLong(parts[1]);
+    } catch (NumberFormatException e) {
+      // Published by something else than this tracker
+      return;
+    }
+    purgeIfDue(name, pending);
+    for (String keyHash : parts[2].split(",")) {
+      Long invalidatedAt = pending.invalidatedAt.remove(keyHash);
+      if (invalidatedAt != null) {
+        record(name, invalidatedAt - writtenAt);
+      } else if (pending.writtenAt.size() < MAX_PENDING) {
+        pending.writtenAt.putIfAbsent(keyHash, writtenAt);
+      }
+    }
+  }
+
+  private void onInvalidation(String name, Pending pending, Object message) {
+    long now = System.currentTimeMillis();
+    if (message instanceof LocalCachedMapInvalidate) {
+      purgeIfDue(name, pending);
+      for (byte[] keyHash : ((LocalCachedMapInvalidate) message).getKeyHashes()) {
+        String encoded = encode(keyHash);
+        Long writtenAt = pending.writtenAt.remove(encoded);
+        if (writtenAt != null) {
+          record(name, now - writtenAt);
+        } else if (pending.invalidatedAt.size() < MAX_PENDING) {
+          // The stamp of the write may still be on its way
+          pending.invalidatedAt.put(encoded, now);
+        }
+      }
+    } else if (message instanceof LocalCachedMapClear) {
+      for (String keyHash : pending.writtenAt.keySet()) {
+        Long writtenAt = pending.writtenAt.remove(keyHash);
+        if (writtenAt != null) {
+          record(name, now - writtenAt);
+        }
+      }
+    }
+  }
+
+  private void record(String name, long staleness) {
+    // Wall clocks of writer and reader are compared, skew shows up as zero or inflated values
+    metrics.histogram(LOCAL_CACHE_STALENESS_MS, name).record(Math.max(0, staleness));
+  }
+
+  private void purgeIfDue(String name, Pending pending) {
+    long now = System.currentTimeMillis();
+    long lastPurge = pending.lastPurge.get();
+    // Invalidations and stamps that are never matched are aged out at most once per interval
+    if ((now - lastPurge >= PURGE_INTERVAL_MILLIS
+        && pending.lastPurge.compareAndSet(lastPurge, now))
+        || pending.writtenAt.size() >= MAX_PENDING
+        || pending.invalidatedAt.size() >= MAX_PENDING) {
+      purge(name, pending, now);
+    }
+  }
+
+  private void purge(String name, Pending pending, long now) {
+    long oldestWrite = now - MAX_PENDING_AGE_MILLIS;
+    for (Map.Entry<String, Long> entry : pending.writtenAt.entrySet()) {
+      if (entry.getValue() < oldestWrite
+          && pending.writtenAt.remove(entry.getKey(), entry.getValue())) {
+        metrics.counter(LOCAL_CACHE_INVALIDATIONS_MISSED, name).increment();
+      }
+    }
+    // Invalidations of this node's writes, or of writers not publishing stamps, get none
+    long oldestInvalidation = now - MAX_EARLY_AGE_MILLIS;
+    pending.invalidatedAt.values().removeIf(invalidatedAt -> invalidatedAt < oldestInvalidation);
+  }
+
+  private static String keyHash(RLocalCachedMap<?, ?> map, Object key) {
+    return encode(((RedissonLocalCachedMap<?, ?>) map).toCacheKey(key).getKeyHash());
+  }
+
+  private static String encode(byte[] keyHash) {
+    return Base64.getEncoder().encodeToString(keyHash);
+  }
+
+  private static class Pending {
+    private final ConcurrentMap<String, Long> writtenAt = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> invalidatedAt = new ConcurrentHashMap<>();
+    private final AtomicLong lastPurge = new AtomicLong(System.currentTimeMillis());
+    private int stampListener;
+    private int invalidationListener;
+    // Guarded by the compute methods of the map of pending stamps
+    private int maps;
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import io.opentracing.Span;
+import io.opentracing.tag.Tags;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.redisson.api.RLock;
+
+/**
+ * Tracks locks acquired through the tracing wrappers so that hold time can be compared against
+ * the lease (or the watchdog renewal period) when they are unlocked.
+ */
+class LockLeaseTracker {
+  static final String LOCK_HOLD_MS = "lock.hold.ms";
+  static final String LOCK_REMAIN_TTL_MS = "lock.remain_ttl.ms";
+  static final String LOCK_LEASE_NEAR_EXPIRY = "lock.lease.near_expiry";
+  static final String LOCK_LEASE_EXPIRED = "lock.lease.expired";
+  static final String LOCK_WATCHDOG_RENEWALS = "lock.watchdog.renewals";
+  static final double NEAR_EXPIRY_RATIO = 0.9;
+  private static final long NO_LEASE = -1;
+
+  private final ConcurrentMap<String, Hold> holds = new ConcurrentHashMap<>();
+  private final TracingMetrics metrics;
+  private final long lockWatchdogTimeout;
+
+  LockLeaseTracker(TracingMetrics metrics, long lockWatchdogTimeout) {
+    this.metrics = metrics;
+    this.lockWatchdogTimeout = lockWatchdogTimeout;
+  }
+
+  void onAcquired(String lockName, long threadId, long leaseTime, TimeUnit unit) {
+    long leaseMillis = leaseTime > 0 && unit != null ? unit.toMillis(leaseTime) : NO_LEASE;
+    long now = System.nanoTime();
+    holds.compute(key(lockName, threadId), (key, hold) -> {
+      if (hold == null) {
+        return new Hold(now, leaseMillis);
+      }
+      // Reentrant acquisition re-applies the lease to the lock key
+      hold.depth++;
+      hold.leaseStart = now;
+      hold.leaseMillis = leaseMillis;
+      return hold;
+    });
+  }
+
+  void onForceUnlocked(String lockName) {
+    String prefix = lockName + ':';
+    holds.keySet().removeIf(
+        key -> key.startsWith(prefix) && key.indexOf(':', prefix.length()) < 0);
+  }
+
+  void release(Span span, RLock lock, long threadId, Action unlock) {
+    boolean expired = beforeRelease(span, lock, threadId, true);
+    try {
+      unlock.execute();
+    } catch (IllegalMonitorStateException e) {
+      // Lock is no longer owned by this thread, i.e. its lease ran out while it was held
+      expired = true;
+      throw e;
+    } finally {
+      if (expired) {
+        onExpired(span, lock.getName());
+      }
+    }
+  }
+
+  void releaseAsync(Span span, RLock lock, long threadId) {
+    if (beforeRelease(span, lock, threadId, false)) {
+      onExpired(span, lock.getName());
+    }
+  }
+
+  private boolean beforeRelease(Span span, RLock lock, long threadId, boolean sampleTtl) {
+    String key = key(lock.getName(), threadId);
+    Hold hold = holds.get(key);
+    if (hold == null) {
+      return false;
+    }
+    holds.computeIfPresent(key, (ignored, current) -> --current.depth <= 0 ? null : current);
+
+    long now = System.nanoTime();
+    long heldMillis = TimeUnit.NANOSECONDS.toMillis(now - hold.acquiredAt);
+    span.setTag(LOCK_HOLD_MS, heldMillis);
+    metrics.histogram(LOCK_HOLD_MS, lock.getName()).record(heldMillis);
+
+    if (hold.leaseMillis == NO_LEASE) {
+      long renewals = heldMillis / Math.max(1, lockWatchdogTimeout / 3);
+      span.setTag(LOCK_WATCHDOG_RENEWALS, renewals);
+      metrics.counter(LOCK_WATCHDOG_RENEWALS, lock.getName()).add(renewals);
+      return sampleTtl && heldMillis >= lockWatchdogTimeout && sampleExpired(span, lock);
+    }
+
+    long sinceLeaseMillis = TimeUnit.NANOSECONDS.toMillis(now - hold.leaseStart);
+    span.setTag("lock.lease.ms", hold.leaseMillis);
+    if (sinceLeaseMillis >= hold.leaseMillis) {
+      return true;
+    }
+    if (sinceLeaseMillis >= hold.leaseMillis * NEAR_EXPIRY_RATIO) {
+      Tags.ERROR.set(span, Boolean.TRUE);
+      span.setTag(LOCK_LEASE_NEAR_EXPIRY, true);
+      metrics.counter(LOCK_LEASE_NEAR_EXPIRY, lock.getName()).increment();
+    }
+    return sampleTtl && sinceLeaseMillis >= hold.leaseMillis / 2 && sampleExpired(span, lock);
+  }
+
+  private boolean sampleExpired(Span span, RLock lock) {
+    // Called on the underlying lock, so the sample does not produce a span of its own
+    long remainTimeToLive = lock.remainTimeToLive();
+    span.setTag(LOCK_REMAIN_TTL_MS, remainTimeToLive);
+    if (remainTimeToLive >= 0) {
+      metrics.histogram(LOCK_REMAIN_TTL_MS, lock.getName()).record(remainTimeToLive);
+      return false;
+    }
+    if (remainTimeToLive == -2) {
+      // The lock key is gone, so holds of threads that never unlocked it are stale as well
+      onForceUnlocked(lock.getName());
+      return true;
+    }
+    return false;
+  }
+
+  private void onExpired(Span span, String lockName) {
+    Tags.ERROR.set(span, Boolean.TRUE);
+    span.setTag(LOCK_LEASE_EXPIRED, true);
+    metrics.counter(LOCK_LEASE_EXPIRED, lockName).increment();
+  }
+
+  private static String key(String lockName, long threadId) {
+    return lockName + ':' + threadId;
+  }
+
+  private static class Hold {
+    private final long acquiredAt;
+    private volatile long leaseStart;
+    private volatile long leaseMillis;
+    private int depth = 1;
+
+    private Hold(long acquiredAt, long leaseMillis) {
+      this.acquiredAt = acquiredAt;
+      this.leaseStart = acquiredAt;
+      this.leaseMillis = leaseMillis;
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import io.opentracing.Span;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import org.redisson.Redisson;
+import org.redisson.api.RFuture;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.protocol.RedisCommand;
+import org.redisson.client.protocol.RedisCommands;
+import org.redisson.command.CommandAsyncExecutor;
+import org.redisson.connection.MasterSlaveEntry;
+import org.redisson.misc.RPromise;
+import org.redisson.misc.RedissonPromise;
+
+/**
+ * Sends a command Redisson broadcasts to all masters to each of them separately, with one child
+ * span per node timing that node's reply, so a slow shard shows up as such instead of as a slow
+ * global operation.
+ */
+class NodeBroadcast {
+  static final String NODES_US = "nodes.us";
+  static final String NODES_SLOWEST = "nodes.slowest";
+
+  private final CommandAsyncExecutor executor;
+  private final TracingHelper tracingHelper;
+
+  private NodeBroadcast(CommandAsyncExecutor executor, TracingHelper tracingHelper) {
+    this.executor = executor;
+    this.tracingHelper = tracingHelper;
+  }
+
+  /**
+   * @return broadcast for the client, <code>null</code> if it is not a {@link Redisson} instance
+   */
+  static NodeBroadcast of(RedissonClient redissonClient, TracingHelper tracingHelper) {
+    if (!(redissonClient instanceof Redisson)) {
+      return null;
+    }
+    return new NodeBroadcast(((Redisson) redissonClient).getCommandExecutor(), tracingHelper);
+  }
+
+  RFuture<Collection<String>> keys(Span span, String pattern) {
+    return execute(span, false, RedisCommands.KEYS, (List<List<String>> replies) -> {
+      List<String> keys = new ArrayList<>();
+      replies.forEach(keys::addAll);
+      return keys;
+    }, pattern);
+  }
+
+  RFuture<Long> count(Span span) {
+    return execute(span, false, RedisCommands.DBSIZE,
+        (List<Long> replies) -> replies.stream().mapToLong(Long::longValue).sum());
+  }
+
+  RFuture<Void> flushdb(Span span) {
+    return execute(span, true, RedisCommands.FLUSHDB_ASYNC, replies -> null);
+  }
+
+  RFuture<Void> flushall(Span span) {
+    return execute(span, true, RedisCommands.FLUSHALL_ASYNC, replies -> null);
+  }
+
+  /**
+   * Runs the command on every master, completing once all of them replied. The span is tagged
+   * with the time each node took, the first failure fails the result.
+   */
+  private <R, V> RFuture<V> execute(Span span, boolean write, RedisCommand<?> command,
+      Function<List<R>, V> reducer, Object... params) {
+    Collection<MasterSlaveEntry> entries = executor.getConnectionManager().getEntrySet();
+    Codec codec = executor.getConnectionManager().getCodec();
+    RPromise<V> result = new RedissonPromise<>();
+    if (entries.isEmpty()) {
+      result.trySuccess(reducer.apply(Collections.emptyList()));
+      return result;
+    }
+    List<R> replies = new ArrayList<>(entries.size());
+    Map<String, Long> nodeMicros = new LinkedHashMap<>();
+    AtomicInteger pending = new AtomicInteger(entries.size());
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    for (MasterSlaveEntry entry : entries) {
+      String address = String.valueOf(ClusterTopology.address(entry));
+      Span nodeSpan = tracingHelper.buildNodeSpan(span, address);
+      long startNanos = System.nanoTime();
+      RFuture<R> future = write
+          ? executor.writeAsync(entry, codec, command, params)
+          : executor.readAsync(entry, codec, command, params);
+      future.whenComplete((reply, throwable) -> {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        if (throwable != null) {
+          TracingHelper.onError(throwable, nodeSpan);
+          failure.compareAndSet(null, throwable);
+        }
+        nodeSpan.finish(TracingHelper.nowMicros());
+        synchronized (replies) {
+          nodeMicros.put(address, micros);
+          if (throwable == null) {
+            replies.add(reply);
+          }
+        }
+        if (pending.decrementAndGet() > 0) {
+          return;
+        }
+        span.setTag(NODES_US, TracingHelper.mapToString(nodeMicros));
+        span.setTag(NODES_SLOWEST, Collections.max(nodeMicros.entrySet(),
+            Map.Entry.comparingByValue()).getKey());
+        if (failure.get() != null) {
+          result.tryFailure(failure.get());
+        } else {
+          result.trySuccess(reducer.apply(replies));
+        }
+      });
+    }
+    return result;
+  }
+}
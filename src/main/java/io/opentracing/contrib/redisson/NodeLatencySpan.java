@@ -0,0 +1,35 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import io.opentracing.Span;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Span recording its duration in the latency histogram of the node serving the operation.
+ */
+class NodeLatencySpan extends ForwardingSpan {
+  private final Histogram latency;
+  private final long startNanos = System.nanoTime();
+
+  NodeLatencySpan(Span span, Histogram latency) {
+    super(span);
+    this.latency = latency;
+  }
+
+  @Override
+  void onFinish(long finishNanos) {
+    latency.record(TimeUnit.NANOSECONDS.toMicros(finishNanos - startNanos));
+  }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.redisson.BaseIterator;
+import org.redisson.RedissonKeys;
+import org.redisson.RedissonMap;
+import org.redisson.RedissonMapIterator;
+import org.redisson.RedissonScoredSortedSet;
+import org.redisson.ScanIterator;
+import org.redisson.ScanResult;
+import org.redisson.api.RKeys;
+import org.redisson.api.RList;
+import org.redisson.api.RMap;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RSet;
+import org.redisson.client.RedisClient;
+import org.redisson.connection.ConnectionManager;
+import org.redisson.connection.MasterSlaveEntry;
+
+/**
+ * Iterators fetching pages through the public scan methods of Redisson objects, driven by
+ * Redisson's own cursor handling, so that every page fetch is counted.
+ */
+class PagedIterators {
+  static final int SCAN_COUNT = 10;
+  static final int LIST_PAGE_SIZE = 10;
+
+  private PagedIterators() {
+  }
+
+  /**
+   * Iterates a set with SSCAN, like {@link RSet#iterator(String, int)} does.
+   *
+   * @return iterator, <code>null</code> if the set is not Redisson's
+   */
+  static <V> Iterator<V> set(RSet<V> set, String pattern, int count,
+      TracingIterator.Pages pages) {
+    if (!(set instanceof ScanIterator)) {
+      return null;
+    }
+    ScanIterator scanIterator = (ScanIterator) set;
+    String name = set.getName();
+    return new Scan<V>(pages) {
+      @Override
+      ScanResult<Object> scan(RedisClient client, long nextIterPos) {
+        return scanIterator.scanIterator(name, client, nextIterPos, pattern, count);
+      }
+
+      @Override
+      protected void remove(Object value) {
+        scanIterator.remove(value);
+      }
+    };
+  }
+
+  /**
+   * Iterates a sorted set with ZSCAN, like {@link RScoredSortedSet#iterator(String, int)} does.
+   *
+   * @return iterator, <code>null</code> if the sorted set is not Redisson's
+   */
+  static <V> Iterator<V> scoredSortedSet(RScoredSortedSet<V> set, String pattern, int count,
+      TracingIterator.Pages pages) {
+    if (!(set instanceof RedissonScoredSortedSet)) {
+      return null;
+    }
+    RedissonScoredSortedSet<V> redissonSet = (RedissonScoredSortedSet<V>) set;
+    return new Scan<V>(pages) {
+      @Override
+      ScanResult<Object> scan(RedisClient client, long nextIterPos) {
+        return TracingHelper.await(
+            redissonSet.scanIteratorAsync(client, nextIterPos, pattern, count));
+      }
+
+      @Override
+      protected void remove(Object value) {
+        redissonSet.remove(value);
+      }
+    };
+  }
+
+  /**
+   * Iterates the keys of a map with HSCAN, like its {@link RMap#keySet(String, int)} does.
+   *
+   * @return iterator, <code>null</code> if the map is not Redisson's
+   */
+  static <K> Iterator<K> mapKeys(RMap<K, ?> map, String pattern, int count,
+      TracingIterator.Pages pages) {
+    if (!(map instanceof RedissonMap)) {
+      return null;
+    }
+    return new MapScan<K>((RedissonMap<?, ?>) map, pattern, count, pages) {
+      @Override
+      @SuppressWarnings("unchecked")
+      protected K getValue(Map.Entry<Object, Object> entry) {
+        return (K) entry.getKey();
+      }
+    };
+  }
+
+  /**
+   * Iterates the values of a map with HSCAN, like its {@link RMap#values(String, int)} does.
+   *
+   * @return iterator, <code>null</code> if the map is not Redisson's
+   */
+  static <V> Iterator<V> mapValues(RMap<?, V> map, String pattern, int count,
+      TracingIterator.Pages pages) {
+    if (!(map instanceof RedissonMap)) {
+      return null;
+    }
+    return new MapScan<V>((RedissonMap<?, ?>) map, pattern, count, pages) {
+      @Override
+      @SuppressWarnings("unchecked")
+      protected V getValue(Map.Entry<Object, Object> entry) {
+        return (V) entry.getValue();
+      }
+    };
+  }
+
+  /**
+   * Iterates the entries of a map with HSCAN, like its {@link RMap#entrySet(String, int)} does.
+   *
+   * @return iterator, <code>null</code> if the map is not Redisson's
+   */
+  static <K, V> Iterator<Map.Entry<K, V>> mapEntries(RMap<K, V> map, String pattern, int count,
+      TracingIterator.Pages pages) {
+    if (!(map instanceof RedissonMap)) {
+      return null;
+    }
+    return new MapScan<>((RedissonMap<?, ?>) map, pattern, count, pages);
+  }
+
+  /**
+   * Iterates a list a page of indexes at a time with one script call per page, where Redisson's
+   * own iterator reads every element with a separate LINDEX.
+   */
+  static <E> Iterator<E> list(RList<E> list, TracingIterator.Pages pages) {
+    return new Iterator<E>() {
+      private Iterator<E> page = Collections.emptyIterator();
+      private int index;
+      private boolean exhausted;
+      private boolean removable;
+
+      @Override
+      public boolean hasNext() {
+        if (!page.hasNext() && !exhausted) {
+          int[] indexes = new int[LIST_PAGE_SIZE];
+          for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = index + i;
+          }
+          List<E> values = pages.fetch(() -> list.get(indexes), PagedIterators::elements);
+          exhausted = values.size() > elements(values);
+          page = values.subList(0, elements(values)).iterator();
+        }
+        return page.hasNext();
+      }
+
+      @Override
+      public E next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        index++;
+        removable = true;
+        return page.next();
+      }
+
+      @Override
+      public void remove() {
+        if (!removable) {
+          throw new IllegalStateException();
+        }
+        // Following elements shift down by one, the rest of the page is still in order
+        list.remove(--index);
+        removable = false;
+      }
+    };
+  }
+
+  /**
+   * Iterates the keys of every master one after the other, like
+   * {@link RKeys#getKeysByPattern(String, int)} does.
+   *
+   * @return iterator, <code>null</code> if the keys are not Redisson's
+   */
+  static Iterator<String> keys(RKeys keys, ConnectionManager connectionManager, String pattern,
+      int count, TracingIterator.Pages pages) {
+    if (!(keys instanceof RedissonKeys) || connectionManager == null) {
+      return null;
+    }
+    RedissonKeys redissonKeys = (RedissonKeys) keys;
+    Iterator<MasterSlaveEntry> entries =
+        new ArrayList<>(connectionManager.getEntrySet()).iterator();
+    return new Iterator<String>() {
+      private Iterator<String> current = Collections.emptyIterator();
+
+      @Override
+      public boolean hasNext() {
+        while (!current.hasNext() && entries.hasNext()) {
+          MasterSlaveEntry entry = entries.next();
+          current = new Scan<String>(pages) {
+            @Override
+            ScanResult<Object> scan(RedisClient client, long nextIterPos) {
+              return TracingHelper.await(
+                  redissonKeys.scanIteratorAsync(client, entry, nextIterPos, pattern, count));
+            }
+
+            @Override
+            protected void remove(Object value) {
+              redissonKeys.delete((String) value);
+            }
+          };
+        }
+        return current.hasNext();
+      }
+
+      @Override
+      public String next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return current.next();
+      }
+
+      @Override
+      public void remove() {
+        current.remove();
+      }
+    };
+  }
+
+  /**
+   * @return the elements of a page of list indexes. Indexes past the end of the list are read as
+   * null, lists never hold null elements.
+   */
+  private static int elements(List<?> page) {
+    int size = page.indexOf(null);
+    return size < 0 ? page.size() : size;
+  }
+
+  /**
+   * Redisson's iterator over the pages of a map scan, with each fetch counted. Yields the entries
+   * unless told otherwise.
+   */
+  private static class MapScan<M> extends RedissonMapIterator<M> {
+    private final TracingIterator.Pages pages;
+
+    private MapScan(RedissonMap<?, ?> map, String pattern, int count,
+        TracingIterator.Pages pages) {
+      super(map, pattern, count);
+      this.pages = pages;
+    }
+
+    @Override
+    protected ScanResult<Map.Entry<Object, Object>> iterator(RedisClient client,
+        long nextIterPos) {
+      return pages.fetch(() -> super.iterator(client, nextIterPos),
+          page -> page.getValues().size());
+    }
+  }
+
+  /**
+   * Redisson's iterator over the pages of a scan, with each fetch counted.
+   */
+  private abstract static class Scan<V> extends BaseIterator<V, Object> {
+    private final TracingIterator.Pages pages;
+
+    private Scan(TracingIterator.Pages pages) {
+      this.pages = pages;
+    }
+
+    abstract ScanResult<Object> scan(RedisClient client, long nextIterPos);
+
+    @Override
+    protected final ScanResult<Object> iterator(RedisClient client, long nextIterPos) {
+      return pages.fetch(() -> scan(client, nextIterPos), page -> page.getValues().size());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected V getValue(Object value) {
+      return (V) value;
+    }
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import io.opentracing.Span;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+import org.redisson.api.RQueue;
+import org.redisson.api.RedissonClient;
+
+/**
+ * Counts elements offered to and drained from blocking queues, measures drained batches and
+ * derives per-queue rates and sizes. Rates are computed when read, at most once per second, so
+ * they fall to 0 when a queue goes idle.
+ */
+class QueueThroughputTracker {
+  static final String QUEUE_OFFERED = "queue.offered";
+  static final String QUEUE_DRAINED = "queue.drained";
+  static final String QUEUE_DRAIN_BATCH = "queue.drain.batch";
+  static final String QUEUE_OFFERED_RATE = "queue.offered.rate";
+  static final String QUEUE_DRAINED_RATE = "queue.drained.rate";
+  static final String QUEUE_SIZE = "queue.size";
+  private static final long SAMPLE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final ConcurrentMap<String, Throughput> queues = new ConcurrentHashMap<>();
+  private final TracingMetrics metrics;
+  private final RedissonClient redissonClient;
+  private final boolean resultBytes;
+
+  QueueThroughputTracker(TracingMetrics metrics, RedissonClient redissonClient,
+      boolean resultBytes) {
+    this.metrics = metrics;
+    this.redissonClient = redissonClient;
+    this.resultBytes = resultBytes;
+  }
+
+  void onOffered(String name, long count) {
+    throughput(name);
+    metrics.counter(QUEUE_OFFERED, name).add(count);
+  }
+
+  boolean onOffered(String name, boolean offered) {
+    if (offered) {
+      onOffered(name, 1);
+    }
+    return offered;
+  }
+
+  BiConsumer<Object, Throwable> whenOffered(String name) {
+    return (offered, throwable) -> {
+      if (throwable == null && !Boolean.FALSE.equals(offered)) {
+        onOffered(name, 1);
+      }
+    };
+  }
+
+  void onDrained(String name, long count) {
+    throughput(name);
+    metrics.counter(QUEUE_DRAINED, name).add(count);
+  }
+
+  BiConsumer<Object, Throwable> whenDrained(String name) {
+    return (value, throwable) -> {
+      if (value != null) {
+        onDrained(name, 1);
+      }
+    };
+  }
+
+  <V> Drained<V> drainTo(Collection<? super V> target) {
+    return new Drained<>(Objects.requireNonNull(target));
+  }
+
+  /**
+   * Records a batch moved by a synchronous <code>drainTo</code>. Its size in bytes is estimated
+   * from the first elements if result sizes are enabled.
+   */
+  void onDrained(Span span, RQueue<?> queue, Drained<?> drained) {
+    onDrained(span, queue, drained, resultBytes);
+  }
+
+  /**
+   * Records a batch moved by an asynchronous <code>drainTo</code>, completing on a Netty thread
+   * where it is not encoded again. Its size in bytes is tagged by the payload size codec when
+   * that is enabled.
+   */
+  <V> BiConsumer<Integer, Throwable> whenDrained(Span span, RQueue<?> queue,
+      Drained<V> drained) {
+    return (count, throwable) -> {
+      if (throwable == null) {
+        onDrained(span, queue, drained, false);
+      }
+    };
+  }
+
+  private void onDrained(Span span, RQueue<?> queue, Drained<?> drained, boolean estimateBytes) {
+    span.setTag("queue.transferred", drained.count);
+    metrics.histogram(QUEUE_DRAIN_BATCH, queue.getName()).record(drained.count);
+    onDrained(queue.getName(), drained.count);
+    if (estimateBytes && drained.count > 0) {
+      span.setTag(TracingHelper.DB_RESULT_BYTES_ESTIMATE,
+          TracingHelper.estimatedSize(TracingCodec.unwrap(queue.getCodec()), drained,
+              drained.count));
+    }
+  }
+
+  /**
+   * Records an element moved by <code>pollLastAndOfferFirstTo</code>. The source side is counted
+   * by the caller, the destination is credited with the offer here.
+   */
+  void onMoved(Span span, RQueue<?> queue, String destination, Object value) {
+    span.setTag("queue.transferred", value == null ? 0 : 1);
+    if (value != null) {
+      onOffered(destination, 1);
+    }
+    sampleSize(queue.getName(), queue);
+    if (redissonClient != null && destination != null) {
+      sampleSize(destination, redissonClient.getQueue(destination));
+    }
+    // Sizes are sampled asynchronously, the tags carry the latest sample
+    tagSize(span, "queue.source.size", queue.getName());
+    tagSize(span, "queue.destination.size", destination);
+  }
+
+  <V> V moved(Span span, RQueue<?> queue, String destination, V value) {
+    if (value != null) {
+      onDrained(queue.getName(), 1);
+    }
+    onMoved(span, queue, destination, value);
+    return value;
+  }
+
+  <V> BiConsumer<V, Throwable> whenMoved(Span span, RQueue<?> queue, String destination) {
+    return (value, throwable) -> {
+      if (throwable == null) {
+        moved(span, queue, destination, value);
+      }
+    };
+  }
+
+  private void tagSize(Span span, String tag, String name) {
+    Throughput state = name == null ? null : queues.get(name);
+    if (state != null && state.sizeSampled) {
+      span.setTag(tag, metrics.getGauge(QUEUE_SIZE, name));
+    }
+  }
+
+  private void sampleSize(String name, RQueue<?> queue) {
+    Throughput state = throughput(name);
+    long now = System.nanoTime();
+    long last = state.lastSizeSample.get();
+    if (now - last < SAMPLE_INTERVAL_NANOS || !state.lastSizeSample.compareAndSet(last, now)) {
+      return;
+    }
+    queue.sizeAsync().whenComplete((size, throwable) -> {
+      if (throwable == null) {
+        metrics.gauge(QUEUE_SIZE, name).set(size);
+        state.sizeSampled = true;
+      }
+    });
+  }
+
+  private Throughput throughput(String name) {
+    Throughput state = queues.get(name);
+    if (state == null) {
+      state = queues.computeIfAbsent(name, key -> {
+        metrics.computedGauge(QUEUE_OFFERED_RATE, key,
+            () -> new Rate(metrics.counter(QUEUE_OFFERED, key)));
+        metrics.computedGauge(QUEUE_DRAINED_RATE, key,
+            () -> new Rate(metrics.counter(QUEUE_DRAINED, key)));
+        return new Throughput();
+      });
+    }
+    return state;
+  }
+
+  private static class Throughput {
+    private final AtomicLong lastSizeSample =
+        new AtomicLong(System.nanoTime() - SAMPLE_INTERVAL_NANOS);
+    private volatile boolean sizeSampled;
+  }
+
+  /**
+   * Per-second rate of a counter over the time since the previous sample, taken when read.
+   */
+  private static class Rate implements LongSupplier {
+    private final LongAdder counter;
+    private long sampledAt = System.nanoTime();
+    private long sampledCount;
+    private long rate;
+
+    private Rate(LongAdder counter) {
+      this.counter = counter;
+    }
+
+    @Override
+    public synchronized long getAsLong() {
+      long now = System.nanoTime();
+      long elapsed = now - sampledAt;
+      if (elapsed >= SAMPLE_INTERVAL_NANOS) {
+        long count = counter.sum();
+        rate = (count - sampledCount) * SAMPLE_INTERVAL_NANOS / elapsed;
+        sampledAt = now;
+        sampledCount = count;
+      }
+      return rate;
+    }
+  }
+
+  /**
+   * Forwards drained elements to the caller's collection, counting them and keeping the first
+   * ones to estimate their size. As a collection it holds only those first elements.
+   */
+  static class Drained<V> extends AbstractCollection<V> {
+    private final Collection<? super V> target;
+    private final List<V> sample = new ArrayList<>();
+    private int count;
+
+    private Drained(Collection<? super V> target) {
+      this.target = target;
+    }
+
+    @Override
+    public boolean add(V v) {
+      boolean added = target.add(v);
+      if (sample.size() < TracingHelper.RESULT_SAMPLE) {
+        sample.add(v);
+      }
+      count++;
+      return added;
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+      return sample.iterator();
+    }
+
+    @Override
+    public int size() {
+      return sample.size();
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import io.opentracing.Span;
+import io.opentracing.tag.Tags;
+
+/**
+ * Accumulates the Redis operations finished under a parent span into totals tagged on the parent
+ * once, when it finishes. OpenTracing has no hook into the finish of application spans, so only
+ * parents wrapped by {@link #parent(Span)} are rolled up; operations finishing after their parent
+ * are not counted.
+ */
+class RedisTimeRollup {
+  static final String REDIS_TOTAL_MS = "redis.total_ms";
+  static final String REDIS_OPS = "redis.ops";
+  static final String REDIS_BYTES = "redis.bytes";
+  static final String REDIS_ERRORS = "redis.errors";
+
+  Span parent(Span span) {
+    return span instanceof ParentSpan ? span : new ParentSpan(span);
+  }
+
+  Span wrap(Span span, Span parent) {
+    return parent instanceof ParentSpan ? new RollupSpan(span, ((ParentSpan) parent).totals)
+        : span;
+  }
+
+  private static class Totals {
+    private long nanos;
+    private long ops;
+    private long bytes;
+    private long errors;
+    private boolean tagged;
+
+    private synchronized void add(long opNanos, long opBytes, boolean error) {
+      if (tagged) {
+        return;
+      }
+      nanos += opNanos;
+      ops++;
+      bytes += opBytes;
+      if (error) {
+        errors++;
+      }
+    }
+
+    private synchronized void tag(Span parent) {
+      parent.setTag(REDIS_TOTAL_MS, nanos / 1_000_000.0);
+      parent.setTag(REDIS_OPS, ops);
+      if (bytes > 0) {
+        parent.setTag(REDIS_BYTES, bytes);
+      }
+      if (errors > 0) {
+        parent.setTag(REDIS_ERRORS, errors);
+      }
+      tagged = true;
+    }
+  }
+
+  private static class ParentSpan extends ForwardingSpan {
+    private final Totals totals = new Totals();
+
+    private ParentSpan(Span span) {
+      super(span);
+    }
+
+    @Override
+    void onFinish(long finishNanos) {
+      totals.tag(this);
+    }
+  }
+
+  private static class RollupSpan extends ForwardingSpan {
+    private final Totals totals;
+    private final long startNanos = System.nanoTime();
+    private volatile long bytes;
+    private volatile boolean error;
+
+    private RollupSpan(Span span, Totals totals) {
+      super(span);
+      this.totals = totals;
+    }
+
+    @Override
+    public Span setTag(String key, boolean value) {
+      if (Tags.ERROR.getKey().equals(key)) {
+        error = value;
+      }
+      return super.setTag(key, value);
+    }
+
+    @Override
+    public Span setTag(String key, Number value) {
+      if (TracingCodec.DB_REQUEST_BYTES.equals(key) || TracingCodec.DB_RESPONSE_BYTES.equals(key)) {
+        bytes += value.longValue();
+      }
+      return super.setTag(key, value);
+    }
+
+    @Override
+    void onFinish(long finishNanos) {
+      totals.add(finishNanos - startNanos, bytes, error);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import io.opentracing.Span;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import org.redisson.api.RBucket;
+import org.redisson.api.RObject;
+
+/**
+ * Detects N+1 access patterns: the same operation on the same object issued over and over under
+ * one parent span, typically a loop of single-key reads that one bulk operation or batch would
+ * serve in a single round trip. Each group is reported once per parent, when it reaches the
+ * threshold. Operations are counted per thread, which is where such a loop runs, so there is no
+ * shared state and only the last parent of each thread is remembered.
+ */
+class RepeatedAccessDetector {
+  static final String REPEATED_ACCESS = "repeated_access";
+  private static final Map<String, String> BULK_OPERATIONS = new HashMap<>();
+
+  static {
+    BULK_OPERATIONS.put("get", "getAll");
+    BULK_OPERATIONS.put("put", "putAll");
+    BULK_OPERATIONS.put("fastPut", "putAll");
+    BULK_OPERATIONS.put("remove", "fastRemove");
+    BULK_OPERATIONS.put("fastRemove", "fastRemove");
+    BULK_OPERATIONS.put("add", "addAll");
+    BULK_OPERATIONS.put("contains", "containsAll");
+  }
+
+  private final int threshold;
+  private final TracingMetrics metrics;
+  private final ThreadLocal<Parent> current = new ThreadLocal<>();
+
+  RepeatedAccessDetector(int threshold, TracingMetrics metrics) {
+    this.threshold = threshold;
+    this.metrics = metrics;
+  }
+
+  void record(Span parent, String operationName, RObject rObject) {
+    // Async operations are pipelined, only sequential round trips add up
+    if (parent == null || operationName.endsWith("Async")) {
+      return;
+    }
+    Parent last = current.get();
+    if (last == null || last.get() != parent) {
+      last = new Parent(parent);
+      current.set(last);
+    }
+    int count = last.counts.merge(operationName + '\u0000' + rObject.getName(), 1, Integer::sum);
+    if (count == threshold) {
+      metrics.counter(REPEATED_ACCESS, rObject.getName()).increment();
+      Map<String, Object> fields = new HashMap<>(5);
+      fields.put("event", REPEATED_ACCESS);
+      fields.put("name", rObject.getName());
+      fields.put("operation", operationName);
+      fields.put("count", count);
+      fields.put("suggestion", suggestion(operationName, rObject));
+      parent.log(fields);
+    }
+  }
+
+  private static String suggestion(String operationName, RObject rObject) {
+    String bulkOperation;
+    if (rObject instanceof RBucket) {
+      bulkOperation = "get".equals(operationName) || "set".equals(operationName)
+          ? "RBuckets." + operationName : null;
+    } else {
+      bulkOperation = BULK_OPERATIONS.get(operationName);
+    }
+    return bulkOperation == null ? "RBatch" : bulkOperation + " or RBatch";
+  }
+
+  private static class Parent extends WeakReference<Span> {
+    // The thread must not keep the parent alive once the application is done with it
+    private final Map<String, Integer> counts = new HashMap<>();
+
+    private Parent(Span span) {
+      super(span);
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import io.opentracing.Span;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.LongCodec;
+
+/**
+ * Accounts for semaphore permits acquired and released through the tracing wrappers. Plain
+ * semaphore permits are matched oldest-first on release, expirable ones by permit id.
+ */
+class SemaphorePermitTracker {
+  static final String SEMAPHORE_ACQUIRE_WAIT_MS = "semaphore.acquire.wait.ms";
+  static final String SEMAPHORE_HOLD_MS = "semaphore.hold.ms";
+  static final String SEMAPHORE_ACQUIRE_REJECTED = "semaphore.acquire.rejected";
+  static final String SEMAPHORE_PERMITS_OUTSTANDING = "semaphore.permits.outstanding";
+  static final String SEMAPHORE_PERMITS_AVAILABLE = "semaphore.permits.available";
+  private static final long SAMPLE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final ConcurrentMap<String, Permits> permits = new ConcurrentHashMap<>();
+  private final TracingMetrics metrics;
+  private final RedissonClient redissonClient;
+
+  SemaphorePermitTracker(TracingMetrics metrics, RedissonClient redissonClient) {
+    this.metrics = metrics;
+    this.redissonClient = redissonClient;
+  }
+
+  void onAcquired(Span span, String name, int count, long startNanos) {
+    long now = System.nanoTime();
+    recordWait(span, name, now - startNanos);
+    Permits state = permits(name);
+    synchronized (state) {
+      state.acquired.addLast(new long[]{now, count});
+    }
+    metrics.gauge(SEMAPHORE_PERMITS_OUTSTANDING, name).addAndGet(count);
+  }
+
+  void onAcquired(Span span, String name, String permitId, long leaseTime, TimeUnit unit,
+      long startNanos) {
+    if (permitId == null) {
+      onRejected(span, name);
+      return;
+    }
+    long now = System.nanoTime();
+    recordWait(span, name, now - startNanos);
+    long expiresAt =
+        leaseTime > 0 && unit != null ? now + unit.toNanos(leaseTime) : Long.MAX_VALUE;
+    permits(name).leased.put(permitId, new long[]{now, expiresAt});
+    metrics.gauge(SEMAPHORE_PERMITS_OUTSTANDING, name).incrementAndGet();
+  }
+
+  void onRejected(Span span, String name) {
+    span.setTag("semaphore.rejected", true);
+    metrics.counter(SEMAPHORE_ACQUIRE_REJECTED, name).increment();
+  }
+
+  void onReleased(Span span, String name, int count) {
+    Permits state = permits(name);
+    long now = System.nanoTime();
+    long released = 0;
+    long oldestAcquiredAt = -1;
+    synchronized (state) {
+      while (released < count && !state.acquired.isEmpty()) {
+        long[] batch = state.acquired.peekFirst();
+        long taken = Math.min(batch[1], count - released);
+        if (oldestAcquiredAt < 0) {
+          oldestAcquiredAt = batch[0];
+        }
+        recordHold(name, now - batch[0]);
+        released += taken;
+        batch[1] -= taken;
+        if (batch[1] == 0) {
+          state.acquired.pollFirst();
+        }
+      }
+    }
+    if (oldestAcquiredAt >= 0) {
+      span.setTag(SEMAPHORE_HOLD_MS, TimeUnit.NANOSECONDS.toMillis(now - oldestAcquiredAt));
+      metrics.gauge(SEMAPHORE_PERMITS_OUTSTANDING, name).addAndGet(-released);
+    }
+  }
+
+  void onReleased(Span span, String name, String permitId, boolean released) {
+    if (!released || permitId == null) {
+      return;
+    }
+    long[] permit = permits(name).leased.remove(permitId);
+    if (permit != null) {
+      long heldNanos = System.nanoTime() - permit[0];
+      span.setTag(SEMAPHORE_HOLD_MS, TimeUnit.NANOSECONDS.toMillis(heldNanos));
+      recordHold(name, heldNanos);
+      metrics.gauge(SEMAPHORE_PERMITS_OUTSTANDING, name).decrementAndGet();
+    }
+  }
+
+  boolean shouldSample(String name) {
+    Permits state = permits(name);
+    long now = System.nanoTime();
+    long last = state.lastSample.get();
+    if (now - last < SAMPLE_INTERVAL_NANOS || !state.lastSample.compareAndSet(last, now)) {
+      return false;
+    }
+    // Expirable permits that outlived their lease were released by Redis
+    state.leased.entrySet().removeIf(entry -> {
+      if (entry.getValue()[1] > now) {
+        return false;
+      }
+      metrics.gauge(SEMAPHORE_PERMITS_OUTSTANDING, name).decrementAndGet();
+      return true;
+    });
+    return true;
+  }
+
+  void sampleAsync(String name) {
+    if (redissonClient != null && shouldSample(name)) {
+      // RSemaphore has no async availablePermits() yet, so issue the same GET through a bucket
+      redissonClient.<Long>getBucket(name, LongCodec.INSTANCE).getAsync()
+          .whenComplete((availablePermits, throwable) -> {
+            if (throwable == null) {
+              onSampled(name, availablePermits == null ? 0 : availablePermits.intValue());
+            }
+          });
+    }
+  }
+
+  void onSampled(String name, int availablePermits) {
+    metrics.gauge(SEMAPHORE_PERMITS_AVAILABLE, name).set(availablePermits);
+  }
+
+  private void recordWait(Span span, String name, long waitNanos) {
+    long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+    span.setTag("semaphore.wait.ms", waitMillis);
+    metrics.histogram(SEMAPHORE_ACQUIRE_WAIT_MS, name).record(waitMillis);
+  }
+
+  private void recordHold(String name, long heldNanos) {
+    metrics.histogram(SEMAPHORE_HOLD_MS, name).record(TimeUnit.NANOSECONDS.toMillis(heldNanos));
+  }
+
+  private Permits permits(String name) {
+    Permits state = permits.get(name);
+    if (state == null) {
+      state = permits.computeIfAbsent(name, key -> new Permits());
+    }
+    return state;
+  }
+
+  private static class Permits {
+    private final Deque<long[]> acquired = new ArrayDeque<>();
+    private final ConcurrentMap<String, long[]> leased = new ConcurrentHashMap<>();
+    private final AtomicLong lastSample = new AtomicLong(System.nanoTime() - SAMPLE_INTERVAL_NANOS);
+  }
+}
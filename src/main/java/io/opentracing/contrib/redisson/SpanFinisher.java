@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import io.netty.util.internal.PlatformDependent;
+import io.opentracing.Span;
+import java.util.Queue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Finishes spans of asynchronous operations on a dedicated thread, keeping tracer reporting off
+ * the Netty event loops that complete them. Completed spans are handed over through a bounded
+ * lock-free queue together with their finish timestamp, taken when the operation completed. Spans
+ * are finished on the completing thread if the queue is full.
+ */
+class SpanFinisher {
+  private final Queue<Completion> queue;
+  private final Thread thread;
+  private volatile boolean running = true;
+  private volatile boolean idle;
+
+  SpanFinisher(int capacity) {
+    this.queue = PlatformDependent.newFixedMpscQueue(capacity);
+    this.thread = new Thread(this::run, "redisson-span-finisher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  void finish(Span span, Throwable throwable) {
+    Completion completion = new Completion(span, throwable);
+    if (!running || !queue.offer(completion)) {
+      completion.finish();
+    } else if (idle) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  /**
+   * Stops the finisher thread once all queued spans are finished.
+   */
+  void shutdown() {
+    running = false;
+    LockSupport.unpark(thread);
+  }
+
+  private void run() {
+    while (true) {
+      Completion completion = queue.poll();
+      if (completion != null) {
+        completion.finish();
+      } else if (running) {
+        idle = true;
+        // Checked again once idle is visible, a producer may have missed it
+        if (queue.isEmpty() && running) {
+          LockSupport.park(this);
+        }
+        idle = false;
+      } else {
+        return;
+      }
+    }
+  }
+
+  private static class Completion {
+    private final Span span;
+    private final Throwable throwable;
+    private final long finishMicros = TracingHelper.nowMicros();
+    private final long finishNanos = System.nanoTime();
+
+    private Completion(Span span, Throwable throwable) {
+      this.span = span;
+      this.throwable = throwable;
+    }
+
+    private void finish() {
+      if (throwable != null) {
+        TracingHelper.onError(throwable, span);
+      }
+      if (span instanceof ForwardingSpan) {
+        ((ForwardingSpan) span).finish(finishMicros, finishNanos);
+      } else {
+        span.finish(finishMicros);
+      }
+    }
+  }
+}
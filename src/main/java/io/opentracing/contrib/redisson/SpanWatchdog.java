@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.opentracing.Span;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Force-finishes spans of asynchronous operations whose future has not completed by a deadline,
+ * so that hung or abandoned futures do not keep spans open in the tracer. Deadlines are kept in a
+ * timer wheel, registering and cancelling one is constant time. Once force-finished, a span
+ * ignores the tags, logs and finish of the late completion.
+ */
+class SpanWatchdog {
+  static final String TIMEOUT = "timeout";
+  static final String SPAN_TIMEOUTS = "span.timeouts";
+  private static final long TICK_MILLIS = 100;
+  private static final AtomicIntegerFieldUpdater<WatchedSpan> FINISHED =
+      AtomicIntegerFieldUpdater.newUpdater(WatchedSpan.class, "finished");
+
+  private final HashedWheelTimer timer = new HashedWheelTimer(
+      new DefaultThreadFactory("redisson-span-watchdog", true), TICK_MILLIS,
+      TimeUnit.MILLISECONDS);
+  private final long deadlineMillis;
+  private final TracingMetrics metrics;
+
+  SpanWatchdog(long deadlineMillis, TracingMetrics metrics) {
+    this.deadlineMillis = deadlineMillis;
+    this.metrics = metrics;
+  }
+
+  /**
+   * @return span which can be watched, timeouts are counted under the object name
+   */
+  Span wrap(Span span, String name) {
+    return new WatchedSpan(span, name == null ? "" : name);
+  }
+
+  /**
+   * Starts the deadline of the asynchronous operation of a span returned by
+   * {@link #wrap(Span, String)}.
+   */
+  void watch(Span span) {
+    if (span instanceof WatchedSpan) {
+      WatchedSpan watched = (WatchedSpan) span;
+      watched.timeout = timer.newTimeout(watched, deadlineMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Cancels the deadline of an operation which completed.
+   */
+  void complete(Span span) {
+    if (span instanceof WatchedSpan) {
+      Timeout timeout = ((WatchedSpan) span).timeout;
+      if (timeout != null) {
+        timeout.cancel();
+      }
+    }
+  }
+
+  void shutdown() {
+    timer.stop();
+  }
+
+  private class WatchedSpan extends ForwardingSpan implements TimerTask {
+    private final String name;
+    private volatile Timeout timeout;
+    // Not private, the updater cannot reach private fields of nested classes on Java 8
+    volatile int finished;
+
+    private WatchedSpan(Span span, String name) {
+      super(span);
+      this.name = name;
+    }
+
+    @Override
+    public void run(Timeout timeout) {
+      if (FINISHED.compareAndSet(this, 0, 1)) {
+        metrics.counter(SPAN_TIMEOUTS, name).increment();
+        super.setTag(TIMEOUT, true);
+        super.finish();
+      }
+    }
+
+    @Override
+    public Span setTag(String key, String value) {
+      return finished == 0 ? super.setTag(key, value) : this;
+    }
+
+    @Override
+    public Span setTag(String key, boolean value) {
+      return finished == 0 ? super.setTag(key, value) : this;
+    }
+
+    @Override
+    public Span setTag(String key, Number value) {
+      return finished == 0 ? super.setTag(key, value) : this;
+    }
+
+    @Override
+    public Span log(Map<String, ?> fields) {
+      return finished == 0 ? super.log(fields) : this;
+    }
+
+    @Override
+    public Span log(long timestampMicroseconds, Map<String, ?> fields) {
+      return finished == 0 ? super.log(timestampMicroseconds, fields) : this;
+    }
+
+    @Override
+    public Span log(String event) {
+      return finished == 0 ? super.log(event) : this;
+    }
+
+    @Override
+    public Span log(long timestampMicroseconds, String event) {
+      return finished == 0 ? super.log(timestampMicroseconds, event) : this;
+    }
+
+    @Override
+    public void finish() {
+      if (FINISHED.compareAndSet(this, 0, 1)) {
+        super.finish();
+      }
+    }
+
+    @Override
+    void finish(long finishMicros, long finishNanos) {
+      if (FINISHED.compareAndSet(this, 0, 1)) {
+        super.finish(finishMicros, finishNanos);
+      }
+    }
+
+    @Override
+    void onFinish(long finishNanos) {
+      Timeout timeout = this.timeout;
+      if (timeout != null) {
+        timeout.cancel();
+      }
+    }
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import io.netty.buffer.ByteBuf;
+import io.opentracing.Span;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.handler.State;
+import org.redisson.client.protocol.Decoder;
+import org.redisson.client.protocol.Encoder;
+
+/**
+ * Codec decorator measuring the encoded size of keys and values of one Redisson object and the
+ * time spent encoding and decoding them.
+ *
+ * <p>Redisson encodes arguments on the calling thread, so encoding is attributed to the
+ * operation through a thread-local measurement opened around the call. Replies are decoded on a
+ * Netty thread which then completes the operation's future, so decoding is attributed to
+ * operations whose future completes right after the reply was decoded. A reply decoded by
+ * another object's codec, e.g. that of a synchronous call completing on the same Netty thread,
+ * is not attributed to an operation that encoded its arguments with this codec.
+ *
+ * <p>The tracing wrappers return the decorated codec from <code>getCodec()</code>, so references
+ * to them stored by Redisson record the original codec class, which it can instantiate.
+ */
+class TracingCodec implements Codec {
+  static final String DB_REQUEST_BYTES = "db.request.bytes";
+  static final String DB_RESPONSE_BYTES = "db.response.bytes";
+  static final String CODEC_ENCODE_NS = "codec.encode.ns";
+  static final String CODEC_DECODE_NS = "codec.decode.ns";
+  private static final ThreadLocal<Measurement> REQUEST = new ThreadLocal<>();
+  private static final ThreadLocal<Reply> REPLY = ThreadLocal.withInitial(Reply::new);
+
+  private final Codec codec;
+  private final Histogram requestBytes;
+  private final Histogram responseBytes;
+  private final Histogram encodeNanos;
+  private final Histogram decodeNanos;
+  private final Decoder<Object> mapValueDecoder;
+  private final Encoder mapValueEncoder;
+  private final Decoder<Object> mapKeyDecoder;
+  private final Encoder mapKeyEncoder;
+  private final Decoder<Object> valueDecoder;
+  private final Encoder valueEncoder;
+
+  TracingCodec(Codec codec, String name, TracingConfiguration configuration,
+      TracingMetrics metrics) {
+    this.codec = codec;
+    if (configuration.isPayloadSizes()) {
+      this.requestBytes = metrics.histogram(DB_REQUEST_BYTES, name);
+      this.responseBytes = metrics.histogram(DB_RESPONSE_BYTES, name);
+    } else {
+      this.requestBytes = null;
+      this.responseBytes = null;
+    }
+    if (configuration.isCodecTiming()) {
+      String codecName = codec.getClass().getSimpleName();
+      this.encodeNanos = metrics.histogram(CODEC_ENCODE_NS, codecName);
+      this.decodeNanos = metrics.histogram(CODEC_DECODE_NS, codecName);
+    } else {
+      this.encodeNanos = null;
+      this.decodeNanos = null;
+    }
+    this.mapValueDecoder = decoder(codec.getMapValueDecoder());
+    this.mapValueEncoder = encoder(codec.getMapValueEncoder());
+    this.mapKeyDecoder = decoder(codec.getMapKeyDecoder());
+    this.mapKeyEncoder = encoder(codec.getMapKeyEncoder());
+    this.valueDecoder = decoder(codec.getValueDecoder());
+    this.valueEncoder = encoder(codec.getValueEncoder());
+  }
+
+  /**
+   * @return the decorated codec, so that sizes can be estimated without being recorded
+   */
+  static Codec unwrap(Codec codec) {
+    return codec instanceof TracingCodec ? ((TracingCodec) codec).codec : codec;
+  }
+
+  static Measurement begin() {
+    Measurement measurement = new Measurement(REQUEST.get());
+    REQUEST.set(measurement);
+    return measurement;
+  }
+
+  static void end(Measurement measurement, Span span) {
+    if (measurement.previous == null) {
+      REQUEST.remove();
+    } else {
+      REQUEST.set(measurement.previous);
+    }
+    if (measurement.requestBytes > 0) {
+      span.setTag(DB_REQUEST_BYTES, measurement.requestBytes);
+    }
+    if (measurement.encodeNanos > 0) {
+      span.setTag(CODEC_ENCODE_NS, measurement.encodeNanos);
+    }
+  }
+
+  /**
+   * Tags the bytes and time decoded for the reply that is completing an operation started at
+   * <code>startNanos</code> on this thread.
+   */
+  static void onReply(Span span, Measurement measurement, long startNanos) {
+    Reply reply = REPLY.get();
+    if (reply.state != null && reply.decodedAt - startNanos >= 0
+        && (measurement == null || measurement.codec == null || measurement.codec == reply.codec)) {
+      if (reply.bytes > 0) {
+        span.setTag(DB_RESPONSE_BYTES, reply.bytes);
+      }
+      if (reply.decodeNanos > 0) {
+        span.setTag(CODEC_DECODE_NS, reply.decodeNanos);
+      }
+    }
+    reply.state = null;
+  }
+
+  @Override
+  public Decoder<Object> getMapValueDecoder() {
+    return mapValueDecoder;
+  }
+
+  @Override
+  public Encoder getMapValueEncoder() {
+    return mapValueEncoder;
+  }
+
+  @Override
+  public Decoder<Object> getMapKeyDecoder() {
+    return mapKeyDecoder;
+  }
+
+  @Override
+  public Encoder getMapKeyEncoder() {
+    return mapKeyEncoder;
+  }
+
+  @Override
+  public Decoder<Object> getValueDecoder() {
+    return valueDecoder;
+  }
+
+  @Override
+  public Encoder getValueEncoder() {
+    return valueEncoder;
+  }
+
+  @Override
+  public ClassLoader getClassLoader() {
+    return codec.getClassLoader();
+  }
+
+  private Encoder encoder(Encoder encoder) {
+    return in -> {
+      long startNanos = System.nanoTime();
+      ByteBuf encoded = encoder.encode(in);
+      long nanos = System.nanoTime() - startNanos;
+      Measurement measurement = REQUEST.get();
+      if (measurement != null) {
+        measurement.codec = this;
+      }
+      if (requestBytes != null) {
+        int size = encoded.readableBytes();
+        requestBytes.record(size);
+        if (measurement != null) {
+          measurement.requestBytes += size;
+        }
+      }
+      if (encodeNanos != null) {
+        encodeNanos.record(nanos);
+        if (measurement != null) {
+          measurement.encodeNanos += nanos;
+        }
+      }
+      return encoded;
+    };
+  }
+
+  private Decoder<Object> decoder(Decoder<Object> decoder) {
+    return (buf, state) -> {
+      int size = buf.readableBytes();
+      long startNanos = System.nanoTime();
+      Object decoded = decoder.decode(buf, state);
+      long decodedAt = System.nanoTime();
+      Reply reply = REPLY.get();
+      if (reply.state != state) {
+        // Redisson creates a new decoder state for every reply
+        reply.state = state;
+        reply.codec = this;
+        reply.bytes = 0;
+        reply.decodeNanos = 0;
+      }
+      if (responseBytes != null) {
+        responseBytes.record(size);
+        reply.bytes += size;
+      }
+      if (decodeNanos != null) {
+        decodeNanos.record(decodedAt - startNanos);
+        reply.decodeNanos += decodedAt - startNanos;
+      }
+      reply.decodedAt = decodedAt;
+      return decoded;
+    };
+  }
+
+  static class Measurement {
+    private final Measurement previous;
+    private TracingCodec codec;
+    private long requestBytes;
+    private long encodeNanos;
+
+    private Measurement(Measurement previous) {
+      this.previous = previous;
+    }
+  }
+
+  private static class Reply {
+    private State state;
+    private TracingCodec codec;
+    private long bytes;
+    private long decodeNanos;
+    private long decodedAt;
+  }
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import io.opentracing.Tracer;
+
+public class TracingConfiguration {
+  private final Tracer tracer;
+  private final boolean traceWithActiveSpanOnly;
+  private final int latchReleaserLinks;
+  private final boolean localCacheInvalidationTracking;
+  private final int hotKeys;
+  private final boolean payloadSizes;
+  private final boolean codecTiming;
+  private final boolean fanOutSpans;
+  private final boolean pagedListIteration;
+  private final boolean resultBytes;
+  private final int repeatedAccessThreshold;
+  private final boolean redisTimeRollup;
+  private final boolean spans;
+  private final boolean jfrEvents;
+  private final int spanFinisherCapacity;
+  private final long spanDeadlineMillis;
+  private final boolean inFlightTracking;
+  private final boolean wireTiming;
+  private final boolean connectionEvents;
+
+  private TracingConfiguration(Builder builder) {
+    this.tracer = builder.tracer;
+    this.traceWithActiveSpanOnly = builder.traceWithActiveSpanOnly;
+    this.latchReleaserLinks = builder.latchReleaserLinks;
+    this.localCacheInvalidationTracking = builder.localCacheInvalidationTracking;
+    this.hotKeys = builder.hotKeys;
+    this.payloadSizes = builder.payloadSizes;
+    this.codecTiming = builder.codecTiming;
+    this.fanOutSpans = builder.fanOutSpans;
+    this.pagedListIteration = builder.pagedListIteration;
+    this.resultBytes = builder.resultBytes;
+    this.repeatedAccessThreshold = builder.repeatedAccessThreshold;
+    this.redisTimeRollup = builder.redisTimeRollup;
+    this.spans = builder.spans;
+    this.jfrEvents = builder.jfrEvents;
+    this.spanFinisherCapacity = builder.spanFinisherCapacity;
+    this.spanDeadlineMillis = builder.spanDeadlineMillis;
+    this.inFlightTracking = builder.inFlightTracking;
+    this.wireTiming = builder.wireTiming;
+    this.connectionEvents = builder.connectionEvents;
+  }
+
+  public Tracer getTracer() {
+    return tracer;
+  }
+
+  public boolean isTraceWithActiveSpanOnly() {
+    return traceWithActiveSpanOnly;
+  }
+
+  public int getLatchReleaserLinks() {
+    return latchReleaserLinks;
+  }
+
+  public boolean isLocalCacheInvalidationTracking() {
+    return localCacheInvalidationTracking;
+  }
+
+  public int getHotKeys() {
+    return hotKeys;
+  }
+
+  public boolean isPayloadSizes() {
+    return payloadSizes;
+  }
+
+  public boolean isCodecTiming() {
+    return codecTiming;
+  }
+
+  public boolean isFanOutSpans() {
+    return fanOutSpans;
+  }
+
+  public boolean isPagedListIteration() {
+    return pagedListIteration;
+  }
+
+  public boolean isResultBytes() {
+    return resultBytes;
+  }
+
+  public int getRepeatedAccessThreshold() {
+    return repeatedAccessThreshold;
+  }
+
+  public boolean isRedisTimeRollup() {
+    return redisTimeRollup;
+  }
+
+  public boolean isSpans() {
+    return spans;
+  }
+
+  public boolean isJfrEvents() {
+    return jfrEvents;
+  }
+
+  public int getSpanFinisherCapacity() {
+    return spanFinisherCapacity;
+  }
+
+  public long getSpanDeadlineMillis() {
+    return spanDeadlineMillis;
+  }
+
+  public boolean isInFlightTracking() {
+    return inFlightTracking;
+  }
+
+  public boolean isWireTiming() {
+    return wireTiming;
+  }
+
+  public boolean isConnectionEvents() {
+    return connectionEvents;
+  }
+
+  public static class Builder {
+    private final Tracer tracer;
+    private boolean traceWithActiveSpanOnly;
+    private int latchReleaserLinks;
+    private boolean localCacheInvalidationTracking;
+    private int hotKeys;
+    private boolean payloadSizes;
+    private boolean codecTiming;
+    private boolean fanOutSpans;
+    private boolean pagedListIteration;
+    private boolean resultBytes;
+    private int repeatedAccessThreshold;
+    private boolean redisTimeRollup;
+    private boolean spans = true;
+    private boolean jfrEvents;
+    private int spanFinisherCapacity;
+    private long spanDeadlineMillis;
+    private boolean inFlightTracking;
+    private boolean wireTiming;
+    private boolean connectionEvents;
+
+    public Builder(Tracer tracer) {
+      this.tracer = tracer;
+    }
+
+    /**
+     * @param traceWithActiveSpanOnly if <code>true</code> then create new spans only if there is
+     * an active span
+     */
+    public Builder traceWithActiveSpanOnly(boolean traceWithActiveSpanOnly) {
+      this.traceWithActiveSpanOnly = traceWithActiveSpanOnly;
+      return this;
+    }
+
+    /**
+     * @param latchReleaserLinks number of most recent <code>countDown</code> span contexts kept
+     * per latch and referenced (follows-from) by <code>await</code> spans, <code>0</code> to
+     * disable
+     */
+    public Builder latchReleaserLinks(int latchReleaserLinks) {
+      if (latchReleaserLinks < 0) {
+        throw new IllegalArgumentException("latchReleaserLinks must not be negative");
+      }
+      this.latchReleaserLinks = latchReleaserLinks;
+      return this;
+    }
+
+    /**
+     * @param localCacheInvalidationTracking if <code>true</code> then local cached map writes
+     * publish a stamp on a companion topic and every node measures how long its entries stay
+     * stale until the invalidation arrives
+     */
+    public Builder localCacheInvalidationTracking(boolean localCacheInvalidationTracking) {
+      this.localCacheInvalidationTracking = localCacheInvalidationTracking;
+      return this;
+    }
+
+    /**
+     * @param hotKeys number of most frequently accessed bucket and map keys tracked per window,
+     * <code>0</code> to disable
+     */
+    public Builder hotKeys(int hotKeys) {
+      if (hotKeys < 0) {
+        throw new IllegalArgumentException("hotKeys must not be negative");
+      }
+      this.hotKeys = hotKeys;
+      return this;
+    }
+
+    /**
+     * @param payloadSizes if <code>true</code> then objects created with an explicit codec record
+     * encoded request and decoded response sizes
+     */
+    public Builder payloadSizes(boolean payloadSizes) {
+      this.payloadSizes = payloadSizes;
+      return this;
+    }
+
+    /**
+     * @param codecTiming if <code>true</code> then objects created with an explicit codec record
+     * the time spent encoding and decoding keys and values
+     */
+    public Builder codecTiming(boolean codecTiming) {
+      this.codecTiming = codecTiming;
+      return this;
+    }
+
+    /**
+     * @param fanOutSpans if <code>true</code> then multi-key bucket operations in cluster mode get
+     * a child span per node serving some of the keys. The child spans show which node got which
+     * keys; they are finished with the operation and carry no per-node timing.
+     */
+    public Builder fanOutSpans(boolean fanOutSpans) {
+      this.fanOutSpans = fanOutSpans;
+      return this;
+    }
+
+    /**
+     * @param pagedListIteration if <code>true</code> then list iterators read a page of elements
+     * with one call instead of Redisson's iterator reading every element with its own LINDEX
+     */
+    public Builder pagedListIteration(boolean pagedListIteration) {
+      this.pagedListIteration = pagedListIteration;
+      return this;
+    }
+
+    /**
+     * @param resultBytes if <code>true</code> then synchronous bulk reads and drains tag the
+     * encoded size of their result, estimated from a sample of its elements. Asynchronous reads
+     * complete on a Netty thread and are not encoded again there, see
+     * {@link #payloadSizes(boolean)} for their size
+     */
+    public Builder resultBytes(boolean resultBytes) {
+      this.resultBytes = resultBytes;
+      return this;
+    }
+
+    /**
+     * @param repeatedAccessThreshold number of times the same operation on the same object may be
+     * issued under one parent span before the parent gets a <code>repeated_access</code> event,
+     * <code>0</code> to disable
+     */
+    public Builder repeatedAccessThreshold(int repeatedAccessThreshold) {
+      if (repeatedAccessThreshold < 0) {
+        throw new IllegalArgumentException("repeatedAccessThreshold must not be negative");
+      }
+      this.repeatedAccessThreshold = repeatedAccessThreshold;
+      return this;
+    }
+
+    /**
+     * @param redisTimeRollup if <code>true</code> then parent spans wrapped with
+     * {@link TracingRedissonClient#rollup(io.opentracing.Span)} get the total time, number, bytes
+     * and errors of the Redisson operations issued while they are active as tags
+     */
+    public Builder redisTimeRollup(boolean redisTimeRollup) {
+      this.redisTimeRollup = redisTimeRollup;
+      return this;
+    }
+
+    /**
+     * @param spans if <code>false</code> then operations are not reported as spans, while metrics,
+     * Flight Recorder events and roll-ups on the application's spans are still collected
+     */
+    public Builder spans(boolean spans) {
+      this.spans = spans;
+      return this;
+    }
+
+    /**
+     * @param jfrEvents if <code>true</code> then operations are also recorded as Flight Recorder
+     * events, on Java 11 or later runtimes
+     */
+    public Builder jfrEvents(boolean jfrEvents) {
+      this.jfrEvents = jfrEvents;
+      return this;
+    }
+
+    /**
+     * @param spanFinisherCapacity number of completed asynchronous operations queued for a
+     * dedicated thread finishing their spans off the Netty event loop, <code>0</code> to finish
+     * them on the completing thread
+     */
+    public Builder spanFinisherCapacity(int spanFinisherCapacity) {
+      if (spanFinisherCapacity < 0) {
+        throw new IllegalArgumentException("spanFinisherCapacity must not be negative");
+      }
+      this.spanFinisherCapacity = spanFinisherCapacity;
+      return this;
+    }
+
+    /**
+     * @param spanDeadlineMillis time after which spans of asynchronous operations that have not
+     * completed are finished with a <code>timeout</code> tag, <code>0</code> to wait for
+     * completion
+     */
+    public Builder spanDeadlineMillis(long spanDeadlineMillis) {
+      if (spanDeadlineMillis < 0) {
+        throw new IllegalArgumentException("spanDeadlineMillis must not be negative");
+      }
+      this.spanDeadlineMillis = spanDeadlineMillis;
+      return this;
+    }
+
+    /**
+     * @param inFlightTracking if <code>true</code> then operations are registered while they
+     * execute, so that the oldest ones can be inspected and concurrent operations are gauged per
+     * object type
+     */
+    public Builder inFlightTracking(boolean inFlightTracking) {
+      this.inFlightTracking = inFlightTracking;
+      return this;
+    }
+
+    /**
+     * @param wireTiming if <code>true</code> then a handler is installed into the pipeline of
+     * Redisson's connections, tagging spans of asynchronous operations with the time their command
+     * waited in the client and the time from writing it to reading the reply. The time waited is
+     * also recorded per node, and replies completing operations are counted as timed or untimed.
+     * Synchronous operations are not timed.
+     */
+    public Builder wireTiming(boolean wireTiming) {
+      this.wireTiming = wireTiming;
+      return this;
+    }
+
+    /**
+     * @param connectionEvents if <code>true</code> then reconnects, failovers and topology changes
+     * are traced and counted, and operations running during them are tagged
+     */
+    public Builder connectionEvents(boolean connectionEvents) {
+      this.connectionEvents = connectionEvents;
+      return this;
+    }
+
+    public TracingConfiguration build() {
+      return new TracingConfiguration(this);
+    }
+  }
+}
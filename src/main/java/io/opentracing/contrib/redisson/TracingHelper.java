@@ -13,56 +13,461 @@
  */
 package io.opentracing.contrib.redisson;
 
+import io.netty.buffer.ByteBuf;
+import io.opentracing.References;
 import io.opentracing.Scope;
 import io.opentracing.Span;
 import io.opentracing.SpanContext;
 import io.opentracing.Tracer;
 import io.opentracing.Tracer.SpanBuilder;
 import io.opentracing.noop.NoopSpan;
+import io.opentracing.noop.NoopTracerFactory;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMapExtractAdapter;
+import io.opentracing.propagation.TextMapInjectAdapter;
 import io.opentracing.tag.Tags;
 import io.opentracing.util.GlobalTracer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import org.redisson.Redisson;
 import org.redisson.api.RFuture;
 import org.redisson.api.RObject;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.protocol.Encoder;
+import org.redisson.client.protocol.ScoredEntry;
+import org.redisson.config.Config;
+import org.redisson.connection.ConnectionListener;
+import org.redisson.connection.ConnectionManager;
 
 class TracingHelper {
   static final String COMPONENT_NAME = "java-redisson";
   static final String DB_TYPE = "redis";
+  static final long DEFAULT_LOCK_WATCHDOG_TIMEOUT = 30_000;
+  static final String QUEUE_WAIT_MS = "queue.wait.ms";
+  static final String FANOUT_NODES = "fanout.nodes";
+  static final String FANOUT_SLOTS = "fanout.slots";
+  static final String FANOUT_KEYS_PER_NODE = "fanout.keys_per_node";
+  static final String FANOUT_MAX_GROUP = "fanout.max_group";
+  private static final Tracer NOOP_TRACER = NoopTracerFactory.create();
+  private static final long CLOCK_MICROS =
+      TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+  private static final long CLOCK_NANOS = System.nanoTime();
+  static final String DB_RESULT_SIZE = "db.result.size";
+  static final String DB_RESULT_BYTES_ESTIMATE = "db.result.bytes_estimate";
+  static final int RESULT_SAMPLE = 16;
   private final Tracer tracer;
   private final boolean traceWithActiveSpanOnly;
+  private final TracingConfiguration configuration;
+  private final TracingMetrics metrics = new TracingMetrics();
+  private final LockLeaseTracker lockLeaseTracker;
+  private final SemaphorePermitTracker semaphorePermitTracker;
+  private final QueueThroughputTracker queueThroughputTracker;
+  private final LocalCacheInvalidationTracker localCacheInvalidationTracker;
+  private final HotKeyDetector hotKeyDetector;
+  private final RepeatedAccessDetector repeatedAccessDetector;
+  private final RedisTimeRollup redisTimeRollup;
+  private final boolean spans;
+  private final EventRecorder eventRecorder;
+  private final SpanFinisher spanFinisher;
+  private final SpanWatchdog spanWatchdog;
+  private final InFlightRegistry inFlightRegistry;
+  private final boolean codecMeasurement;
+  private final WireTimingHandler.Installer wireTiming;
+  private final ConnectionEventTracker connectionEventTracker;
+  private final ClusterTopology clusterTopology;
+  private final NodeBroadcast nodeBroadcast;
+  private final ConnectionManager connectionManager;
+  private final TracingIterator.Abandoned abandonedIterations = new TracingIterator.Abandoned();
 
-  TracingHelper(Tracer tracer, boolean traceWithActiveSpanOnly) {
-    this.tracer = tracer;
-    this.traceWithActiveSpanOnly = traceWithActiveSpanOnly;
+  TracingHelper(TracingConfiguration configuration, RedissonClient redissonClient) {
+    this.tracer = configuration.getTracer();
+    this.traceWithActiveSpanOnly = configuration.isTraceWithActiveSpanOnly();
+    this.configuration = configuration;
+    this.lockLeaseTracker = new LockLeaseTracker(metrics, lockWatchdogTimeout(redissonClient));
+    this.semaphorePermitTracker = new SemaphorePermitTracker(metrics, redissonClient);
+    this.queueThroughputTracker = new QueueThroughputTracker(metrics, redissonClient,
+        configuration.isResultBytes());
+    this.localCacheInvalidationTracker =
+        configuration.isLocalCacheInvalidationTracking() && redissonClient != null
+            ? new LocalCacheInvalidationTracker(metrics, redissonClient) : null;
+    this.hotKeyDetector =
+        configuration.getHotKeys() > 0 ? new HotKeyDetector(configuration.getHotKeys()) : null;
+    this.repeatedAccessDetector = configuration.getRepeatedAccessThreshold() > 0
+        ? new RepeatedAccessDetector(configuration.getRepeatedAccessThreshold(), metrics) : null;
+    this.redisTimeRollup = configuration.isRedisTimeRollup() ? new RedisTimeRollup() : null;
+    this.spans = configuration.isSpans();
+    this.eventRecorder = configuration.isJfrEvents() ? EventRecorder.flightRecorder() : null;
+    this.spanFinisher = configuration.getSpanFinisherCapacity() > 0
+        ? new SpanFinisher(configuration.getSpanFinisherCapacity()) : null;
+    this.spanWatchdog = configuration.getSpanDeadlineMillis() > 0
+        ? new SpanWatchdog(configuration.getSpanDeadlineMillis(), metrics) : null;
+    this.inFlightRegistry =
+        configuration.isInFlightTracking() ? new InFlightRegistry(metrics) : null;
+    this.codecMeasurement = configuration.isPayloadSizes() || configuration.isCodecTiming();
+    this.clusterTopology = ClusterTopology.of(redissonClient);
+    this.nodeBroadcast = NodeBroadcast.of(redissonClient, this);
+    this.connectionManager = redissonClient instanceof Redisson
+        ? ((Redisson) redissonClient).getConnectionManager() : null;
+    this.wireTiming = configuration.isWireTiming() && connectionManager != null
+        ? new WireTimingHandler.Installer(connectionManager, metrics) : null;
+    this.connectionEventTracker = configuration.isConnectionEvents()
+        ? new ConnectionEventTracker(this, metrics, connectionManager) : null;
   }
 
+  private static long lockWatchdogTimeout(RedissonClient redissonClient) {
+    Config config = redissonClient == null ? null : redissonClient.getConfig();
+    return config == null ? DEFAULT_LOCK_WATCHDOG_TIMEOUT : config.getLockWatchdogTimeout();
+  }
+
+  /**
+   * Releases what needs the Redisson client still running, i.e. its topic listeners.
+   */
+  void beforeShutdown() {
+    if (localCacheInvalidationTracker != null) {
+      localCacheInvalidationTracker.shutdown();
+    }
+  }
+
+  void shutdown() {
+    if (spanFinisher != null) {
+      spanFinisher.shutdown();
+    }
+    if (spanWatchdog != null) {
+      spanWatchdog.shutdown();
+    }
+    abandonedIterations.shutdown();
+  }
+
+  TracingConfiguration getConfiguration() {
+    return configuration;
+  }
+
+  TracingMetrics getMetrics() {
+    return metrics;
+  }
+
+  LockLeaseTracker getLockLeaseTracker() {
+    return lockLeaseTracker;
+  }
+
+  SemaphorePermitTracker getSemaphorePermitTracker() {
+    return semaphorePermitTracker;
+  }
+
+  QueueThroughputTracker getQueueThroughputTracker() {
+    return queueThroughputTracker;
+  }
+
+  LocalCacheInvalidationTracker getLocalCacheInvalidationTracker() {
+    return localCacheInvalidationTracker;
+  }
+
+  RedisTimeRollup getRedisTimeRollup() {
+    return redisTimeRollup;
+  }
+
+  HotKeyDetector getHotKeyDetector() {
+    return hotKeyDetector;
+  }
+
+  InFlightRegistry getInFlightRegistry() {
+    return inFlightRegistry;
+  }
+
+  NodeBroadcast getNodeBroadcast() {
+    return nodeBroadcast;
+  }
+
+  ConnectionManager getConnectionManager() {
+    return connectionManager;
+  }
+
+  boolean isPagedListIteration() {
+    return configuration.isPagedListIteration();
+  }
+
+  /**
+   * @return listener to register for node connection events, <code>null</code> if nothing uses
+   * them
+   */
+  ConnectionListener connectionListener() {
+    if (wireTiming == null && connectionEventTracker == null) {
+      return null;
+    }
+    return new ConnectionListener() {
+      @Override
+      public void onConnect(InetSocketAddress address) {
+        if (wireTiming != null) {
+          wireTiming.install();
+        }
+        if (connectionEventTracker != null) {
+          connectionEventTracker.onConnect(address.getHostString() + ':' + address.getPort());
+        }
+      }
+
+      @Override
+      public void onDisconnect(InetSocketAddress address) {
+        if (connectionEventTracker != null) {
+          connectionEventTracker.onDisconnect(address.getHostString() + ':' + address.getPort());
+        }
+      }
+    };
+  }
+
+  void onKeyAccess(Span span, String name) {
+    if (hotKeyDetector != null) {
+      hotKeyDetector.record(span, name);
+    }
+  }
+
+  void onKeyAccess(Span span, String name, Object field) {
+    if (hotKeyDetector != null) {
+      hotKeyDetector.record(span, name, field);
+    }
+  }
+
+  /**
+   * Wraps the codec of a Redisson object to measure its payload sizes and codec time, if enabled.
+   */
+  Codec codec(Codec codec, String name) {
+    return codecMeasurement && codec != null
+        ? new TracingCodec(codec, name, configuration, metrics) : codec;
+  }
 
   Span buildSpan(String operationName, RObject rObject) {
+    return buildSpan(operationName, rObject, true, true);
+  }
+
+  /**
+   * Builds the span of a blocking operation. Its duration is mostly time spent waiting, so it is
+   * neither a node latency sample nor Redis time of the parent span.
+   */
+  Span buildBlockingSpan(String operationName, RObject rObject) {
+    return buildSpan(operationName, rObject, false, true);
+  }
+
+  /**
+   * Builds the span of an iteration. It also covers the caller's work between page fetches, so it
+   * is neither a node latency sample nor Redis time of the parent span, and the iteration does not
+   * count as in flight.
+   */
+  Span buildIterationSpan(String operationName, RObject rObject) {
+    return buildSpan(operationName, rObject, false, false);
+  }
+
+  private Span buildSpan(String operationName, RObject rObject, boolean redisTime,
+      boolean inFlight) {
+    if (repeatedAccessDetector != null) {
+      repeatedAccessDetector.record(getNullSafeTracer().activeSpan(), operationName, rObject);
+    }
     if (traceWithActiveSpanOnly && getNullSafeTracer().activeSpan() == null) {
       return NoopSpan.INSTANCE;
     } else {
-      return builder(operationName, null).start()
-          .setTag("name", rObject.getName());
+      Span span = builder(operationName, null).start().setTag("name", rObject.getName());
+      span = locate(span, rObject.getName(), redisTime);
+      if (inFlightRegistry != null && inFlight) {
+        span = inFlightRegistry.track(span, operationName, rObject);
+      }
+      return observe(span, operationName, rObject.getName(), redisTime);
     }
   }
 
-  Span buildSpan(String operationName) {
+  /**
+   * Builds a child span of an operation, following from spans of other processes that caused
+   * part of it, e.g. the <code>countDown</code> calls releasing an await.
+   */
+  Span buildLinkSpan(String operationName, Span parent, long startMicros,
+      Collection<SpanContext> followsFrom) {
+    if (parent instanceof NoopSpan) {
+      return NoopSpan.INSTANCE;
+    }
+    SpanBuilder builder =
+        builder(operationName, parent.context()).withStartTimestamp(startMicros);
+    for (SpanContext context : followsFrom) {
+      builder.addReference(References.FOLLOWS_FROM, context);
+    }
+    return builder.start();
+  }
+
+  Span buildNodeSpan(Span parent, String address) {
+    if (parent instanceof NoopSpan) {
+      return NoopSpan.INSTANCE;
+    }
+    return builder("node", parent.context()).start().setTag(ClusterTopology.PEER_ADDRESS, address);
+  }
+
+  /**
+   * Builds the span of an operation not bound to a single object, e.g. of
+   * {@link org.redisson.api.RKeys}. It is tracked in flight under the type of its owner.
+   */
+  Span buildSpan(String operationName, Object owner) {
+    return buildSpan(operationName, owner, true);
+  }
+
+  /**
+   * Builds the span of an iteration not bound to an object, see
+   * {@link #buildIterationSpan(String, RObject)}.
+   */
+  Span buildIterationSpan(String operationName) {
+    return buildSpan(operationName, null, false);
+  }
+
+  private Span buildSpan(String operationName, Object owner, boolean redisTime) {
     if (traceWithActiveSpanOnly && getNullSafeTracer().activeSpan() == null) {
       return NoopSpan.INSTANCE;
     } else {
-      return builder(operationName, null).start();
+      Span span = builder(operationName, null).start();
+      if (inFlightRegistry != null && owner != null) {
+        span = inFlightRegistry.track(span, operationName, null, owner.getClass().getSimpleName());
+      }
+      return observe(span, operationName, null, redisTime);
+    }
+  }
+
+  /**
+   * Builds a span for an event of the client rather than an operation, e.g. a reconnect.
+   */
+  Span buildEventSpan(String operationName, long startMicros) {
+    if (traceWithActiveSpanOnly && getNullSafeTracer().activeSpan() == null) {
+      return NoopSpan.INSTANCE;
+    }
+    return builder(operationName, null).withStartTimestamp(startMicros).start();
+  }
+
+  private Span observe(Span span, String operationName, String name, boolean redisTime) {
+    if (connectionEventTracker != null) {
+      span = connectionEventTracker.wrap(span, address(name));
+    }
+    if (redisTimeRollup != null && redisTime) {
+      span = redisTimeRollup.wrap(span, getNullSafeTracer().activeSpan());
+    }
+    if (eventRecorder != null) {
+      span = eventRecorder.wrap(span, operationName, name);
+    }
+    return spanWatchdog == null ? span : spanWatchdog.wrap(span, name);
+  }
+
+  /**
+   * Groups the keys of a multi-key operation by the node serving them and tags the fan-out. Only
+   * done in cluster mode, where the keys can be split across masters.
+   *
+   * @return one child span per node if enabled, to be finished with the operation. These spans
+   * show the structure of the fan-out only and cover the whole operation, not the per-node call.
+   */
+  List<Span> fanOut(Span span, Collection<String> keys) {
+    if (clusterTopology == null || !clusterTopology.isCluster() || span instanceof NoopSpan
+        || keys.isEmpty()) {
+      return Collections.emptyList();
+    }
+    Map<String, Integer> groups = new LinkedHashMap<>();
+    BitSet slots = new BitSet(ClusterSlots.SLOTS);
+    for (String key : keys) {
+      int slot = clusterTopology.slot(key);
+      slots.set(slot);
+      String address = clusterTopology.address(slot);
+      groups.merge(address == null ? "unknown" : address, 1, Integer::sum);
+    }
+    span.setTag(FANOUT_NODES, groups.size());
+    span.setTag(FANOUT_SLOTS, slots.cardinality());
+    span.setTag(FANOUT_KEYS_PER_NODE, mapToString(groups));
+    span.setTag(FANOUT_MAX_GROUP, Collections.max(groups.values()));
+    if (!configuration.isFanOutSpans()) {
+      return Collections.emptyList();
+    }
+    List<Span> children = new ArrayList<>(groups.size());
+    for (Map.Entry<String, Integer> group : groups.entrySet()) {
+      children.add(buildNodeSpan(span, group.getKey()).setTag("keys", group.getValue()));
+    }
+    return children;
+  }
+
+  <T> T decorateFanOut(Span span, List<Span> children, Supplier<T> supplier) {
+    if (children.isEmpty()) {
+      return decorate(span, supplier);
+    }
+    return decorate(span, () -> {
+      Throwable error = null;
+      try {
+        return supplier.get();
+      } catch (RuntimeException e) {
+        error = e;
+        throw e;
+      } finally {
+        finish(children, error);
+      }
+    });
+  }
+
+  <V> RFuture<V> prepareFanOut(Span span, List<Span> children,
+      Supplier<RFuture<V>> futureSupplier) {
+    if (children.isEmpty()) {
+      return prepareRFuture(span, futureSupplier);
+    }
+    return prepareRFuture(span, futureSupplier, (v, throwable) -> finish(children, throwable));
+  }
+
+  private static void finish(List<Span> spans, Throwable throwable) {
+    for (Span span : spans) {
+      if (throwable != null) {
+        onError(throwable, span);
+      }
+      span.finish(nowMicros());
     }
   }
 
+  /**
+   * Returns the address of the master serving the key, or null if it is unknown.
+   */
+  private String address(String name) {
+    return clusterTopology == null || name == null
+        ? null : clusterTopology.address(clusterTopology.slot(name));
+  }
+
+  /**
+   * Tags the span with the hash slot of the key and the address of the master serving it, and
+   * unless told otherwise records the span's latency against that master.
+   */
+  private Span locate(Span span, String name, boolean recordLatency) {
+    if (clusterTopology == null) {
+      return span;
+    }
+    int slot = clusterTopology.slot(name);
+    if (clusterTopology.isCluster()) {
+      span.setTag(ClusterTopology.REDIS_SLOT, slot);
+    }
+    String address = clusterTopology.address(slot);
+    if (address == null) {
+      return span;
+    }
+    span.setTag(ClusterTopology.PEER_ADDRESS, address);
+    return recordLatency
+        ? new NodeLatencySpan(span, metrics.histogram(ClusterTopology.NODE_LATENCY_US, address))
+        : span;
+  }
+
   private SpanBuilder builder(String operationName, SpanContext parent) {
-    SpanBuilder builder = getNullSafeTracer().buildSpan(operationName)
+    SpanBuilder builder = getSpanTracer().buildSpan(operationName)
         .withTag(Tags.COMPONENT.getKey(), COMPONENT_NAME)
         .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_CLIENT)
-        .withTag(Tags.DB_TYPE.getKey(), DB_TYPE);
+        .withTag(Tags.DB_TYPE.getKey(), DB_TYPE)
+        .withStartTimestamp(nowMicros());
     if (parent != null) {
       builder.asChildOf(parent);
     }
@@ -71,50 +476,166 @@ class TracingHelper {
 
 
   <T> T decorate(Span span, Supplier<T> supplier) {
-    try (Scope ignore = getNullSafeTracer().scopeManager().activate(span, false)) {
+    TracingCodec.Measurement measurement = beginMeasurement();
+    try (Scope ignore = getSpanTracer().scopeManager().activate(span, false)) {
       return supplier.get();
     } catch (Exception e) {
       onError(e, span);
       throw e;
     } finally {
-      span.finish();
+      endMeasurement(measurement, span);
+      span.finish(nowMicros());
     }
   }
 
   void decorate(Span span, Action action) {
-    try (Scope ignore = getNullSafeTracer().scopeManager().activate(span, false)) {
+    TracingCodec.Measurement measurement = beginMeasurement();
+    try (Scope ignore = getSpanTracer().scopeManager().activate(span, false)) {
       action.execute();
     } catch (Exception e) {
       onError(e, span);
       throw e;
     } finally {
-      span.finish();
+      endMeasurement(measurement, span);
+      span.finish(nowMicros());
     }
   }
 
   <T extends Exception> void decorateThrowing(Span span, ThrowingAction<T> action) throws T {
-    try (Scope ignore = getNullSafeTracer().scopeManager().activate(span, false)) {
+    TracingCodec.Measurement measurement = beginMeasurement();
+    try (Scope ignore = getSpanTracer().scopeManager().activate(span, false)) {
       action.execute();
     } catch (Exception e) {
       onError(e, span);
       throw e;
     } finally {
-      span.finish();
+      endMeasurement(measurement, span);
+      span.finish(nowMicros());
     }
   }
 
   <T extends Exception, V> V decorateThrowing(Span span, ThrowingSupplier<T, V> supplier) throws T {
-    try (Scope ignore = getNullSafeTracer().scopeManager().activate(span, false)) {
+    TracingCodec.Measurement measurement = beginMeasurement();
+    try (Scope ignore = getSpanTracer().scopeManager().activate(span, false)) {
       return supplier.get();
     } catch (Exception e) {
       onError(e, span);
       throw e;
     } finally {
-      span.finish();
+      endMeasurement(measurement, span);
+      span.finish(nowMicros());
+    }
+  }
+
+  /**
+   * Runs a bulk read, tagging the number of elements read before the span finishes. Replies are
+   * decoded on a Netty thread, so if codec measurement is enabled the operation is run
+   * asynchronously and awaited the way Redisson awaits its synchronous calls, letting the
+   * completion callback attribute decoding to the span. A reply completing before the callback is
+   * attached is not attributed.
+   */
+  <V> V decorateResult(Span span, RObject rObject, Supplier<V> sync,
+      Supplier<RFuture<V>> async) {
+    if (!codecMeasurement) {
+      return decorate(span, () -> onResult(span, rObject, sync.get(), true));
+    }
+    return await(prepareResult(span, rObject, async, true));
+  }
+
+  <V> RFuture<V> prepareResult(Span span, RObject rObject, Supplier<RFuture<V>> futureSupplier) {
+    return prepareResult(span, rObject, futureSupplier, false);
+  }
+
+  private <V> RFuture<V> prepareResult(Span span, RObject rObject,
+      Supplier<RFuture<V>> futureSupplier, boolean estimateBytes) {
+    return prepareRFuture(span, futureSupplier, (v, throwable) -> {
+      if (throwable == null) {
+        onResult(span, rObject, v, estimateBytes);
+      }
+    });
+  }
+
+  /**
+   * Waits for the future like Redisson's synchronous calls do: an interrupt stops the wait and is
+   * restored, and failures surface as the {@link RedisException} the command failed with.
+   */
+  static <V> V await(RFuture<V> future) {
+    Throwable cause = null;
+    try {
+      return future.toCompletableFuture().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      cause = e.getCause();
+    }
+    if (cause instanceof RedisException) {
+      throw (RedisException) cause;
+    }
+    throw new RedisException("Unexpected exception while processing command", cause);
+  }
+
+  private <V> V onResult(Span span, RObject rObject, V result, boolean estimateBytes) {
+    int size = 0;
+    if (result instanceof Collection) {
+      size = ((Collection<?>) result).size();
+    } else if (result instanceof Map) {
+      size = ((Map<?, ?>) result).size();
+    }
+    span.setTag(DB_RESULT_SIZE, size);
+    metrics.histogram(DB_RESULT_SIZE, rObject.getName()).record(size);
+    if (estimateBytes && configuration.isResultBytes() && size > 0) {
+      span.setTag(DB_RESULT_BYTES_ESTIMATE,
+          estimatedSize(TracingCodec.unwrap(rObject.getCodec()), result, size));
+    }
+    return result;
+  }
+
+  /**
+   * Traces an iteration with one span. The paged iterator is given the pages to count its fetches
+   * in, and if it returns <code>null</code> the fallback iterator is traced without pages.
+   */
+  <E> Iterator<E> iterate(Span span, Function<TracingIterator.Pages, Iterator<E>> paged,
+      Supplier<Iterator<E>> fallback) {
+    TracingIterator.Pages pages = new TracingIterator.Pages();
+    Iterator<E> iterator = paged.apply(pages);
+    return new TracingIterator<>(iterator == null ? fallback.get() : iterator, span, pages,
+        abandonedIterations);
+  }
+
+  /**
+   * Runs a blocking pop as the single blocking command and records how long it waited. Redis does
+   * not report whether an element was already there, so the wait includes the round trip. The span
+   * is expected from {@link #buildBlockingSpan(String, RObject)}.
+   */
+  <V> V decorateBlocking(Span span, RObject queue,
+      ThrowingSupplier<InterruptedException, V> wait, String... otherQueueNames)
+      throws InterruptedException {
+    return decorateThrowing(span, () -> {
+      long startNanos = System.nanoTime();
+      V value = wait.get();
+      long waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+      span.setTag(QUEUE_WAIT_MS, waitMillis);
+      metrics.histogram(QUEUE_WAIT_MS, queue.getName()).record(waitMillis);
+      // Redisson does not report which queue a multi-queue poll was served from
+      if (value != null && otherQueueNames.length == 0) {
+        span.setTag("queue.yielded", queue.getName());
+        queueThroughputTracker.onDrained(queue.getName(), 1);
+      }
+      return value;
+    });
+  }
+
+  private TracingCodec.Measurement beginMeasurement() {
+    return codecMeasurement ? TracingCodec.begin() : null;
+  }
+
+  private static void endMeasurement(TracingCodec.Measurement measurement, Span span) {
+    if (measurement != null) {
+      TracingCodec.end(measurement, span);
     }
   }
 
-  private static void onError(Throwable throwable, Span span) {
+  static void onError(Throwable throwable, Span span) {
     Tags.ERROR.set(span, Boolean.TRUE);
 
     if (throwable != null) {
@@ -129,6 +650,27 @@ class TracingHelper {
     return errorLogs;
   }
 
+  Map<String, String> inject(Span span) {
+    Map<String, String> carrier = new HashMap<>();
+    getSpanTracer()
+        .inject(span.context(), Format.Builtin.TEXT_MAP, new TextMapInjectAdapter(carrier));
+    return carrier;
+  }
+
+  SpanContext extract(Map<String, String> carrier) {
+    return getSpanTracer()
+        .extract(Format.Builtin.TEXT_MAP, new TextMapExtractAdapter(carrier));
+  }
+
+  /**
+   * The clock of all span timestamps, so that the finish of a span taken here is exact relative to
+   * its start whichever thread finishes it. Reads the wall clock once and advances with
+   * <code>System.nanoTime()</code>, in microseconds.
+   */
+  static long nowMicros() {
+    return CLOCK_MICROS + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - CLOCK_NANOS);
+  }
+
   private Tracer getNullSafeTracer() {
     if (tracer == null) {
       return GlobalTracer.get();
@@ -136,6 +678,13 @@ class TracingHelper {
     return tracer;
   }
 
+  /**
+   * @return tracer creating and activating operation spans, a no-op tracer if spans are disabled
+   */
+  private Tracer getSpanTracer() {
+    return spans ? getNullSafeTracer() : NOOP_TRACER;
+  }
+
   static String collectionToString(Collection<?> collection) {
     if (collection == null) {
       return "";
@@ -153,16 +702,98 @@ class TracingHelper {
         .collect(Collectors.joining(", "));
   }
 
+  /**
+   * Size of the value as encoded by the codec, or <code>0</code> if it cannot be encoded.
+   */
+  static long encodedSize(Codec codec, Object value) {
+    return codec == null ? 0 : encodedSize(codec.getValueEncoder(), value);
+  }
+
+  /**
+   * Encoded size of a collection or map result with <code>size</code> elements, extrapolated
+   * from its first elements so that large results are not encoded again in full.
+   */
+  static long estimatedSize(Codec codec, Object result, int size) {
+    if (codec == null) {
+      return 0;
+    }
+    long bytes = 0;
+    int sampled = 0;
+    if (result instanceof Map) {
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) result).entrySet()) {
+        if (sampled == RESULT_SAMPLE) {
+          break;
+        }
+        bytes += encodedSize(codec.getMapKeyEncoder(), entry.getKey());
+        bytes += encodedSize(codec.getMapValueEncoder(), entry.getValue());
+        sampled++;
+      }
+    } else {
+      for (Object element : (Collection<?>) result) {
+        if (sampled == RESULT_SAMPLE) {
+          break;
+        }
+        if (element instanceof Map.Entry) {
+          bytes += encodedSize(codec.getMapKeyEncoder(), ((Map.Entry<?, ?>) element).getKey());
+          bytes += encodedSize(codec.getMapValueEncoder(), ((Map.Entry<?, ?>) element).getValue());
+        } else if (element instanceof ScoredEntry) {
+          bytes += encodedSize(codec.getValueEncoder(), ((ScoredEntry<?>) element).getValue());
+        } else {
+          bytes += encodedSize(codec.getValueEncoder(), element);
+        }
+        sampled++;
+      }
+    }
+    return sampled == 0 ? 0 : bytes * size / sampled;
+  }
+
+  private static long encodedSize(Encoder encoder, Object value) {
+    if (value == null) {
+      return 0;
+    }
+    try {
+      ByteBuf encoded = encoder.encode(value);
+      try {
+        return encoded.readableBytes();
+      } finally {
+        encoded.release();
+      }
+    } catch (IOException | RuntimeException e) {
+      return 0;
+    }
+  }
+
   static String nullable(Object object) {
     return object == null ? "" : object.toString();
   }
 
-  private <T> RFuture<T> continueScopeSpan(RFuture<T> redisFuture) {
+  private <V> RFuture<V> setCompleteAction(RFuture<V> future, Span span, long startNanos,
+      TracingCodec.Measurement measurement, BiConsumer<? super V, Throwable> onComplete) {
     Tracer tracer = getNullSafeTracer();
-    Span span = tracer.activeSpan();
-    CompletableRFuture<T> customRedisFuture = new CompletableRFuture<>(redisFuture);
-    redisFuture.whenComplete((v, throwable) -> {
-      try (Scope ignored = tracer.scopeManager().activate(span, false)) {
+    Span activeSpan = tracer.activeSpan();
+    CompletableRFuture<V> customRedisFuture = new CompletableRFuture<>(future);
+    if (spanWatchdog != null) {
+      spanWatchdog.watch(span);
+    }
+    // The operation is in flight until its future completes, not until its span finishes
+    InFlightRegistry.TrackedSpan tracked =
+        ForwardingSpan.find(span, InFlightRegistry.TrackedSpan.class);
+    if (tracked != null) {
+      tracked.hold();
+    }
+    future.whenComplete((v, throwable) -> {
+      // A span finished by the watchdog ignores the late completion, child spans still finish
+      if (spanWatchdog != null) {
+        spanWatchdog.complete(span);
+      }
+      if (tracked != null) {
+        tracked.release();
+      }
+      completeSpan(span, startNanos, measurement, v, throwable, onComplete);
+
+      // Callers continue in the scope they started from, once the span is completed, although
+      // the span finisher may not have finished it yet
+      try (Scope ignored = tracer.scopeManager().activate(activeSpan, false)) {
         if (throwable != null) {
           customRedisFuture.completeExceptionally(throwable);
         } else {
@@ -173,27 +804,46 @@ class TracingHelper {
     return customRedisFuture;
   }
 
-  private <V> RFuture<V> setCompleteAction(RFuture<V> future, Span span) {
-    future.whenComplete((v, throwable) -> {
+  private <V> void completeSpan(Span span, long startNanos, TracingCodec.Measurement measurement,
+      V v, Throwable throwable, BiConsumer<? super V, Throwable> onComplete) {
+    if (onComplete != null) {
+      onComplete.accept(v, throwable);
+    }
+    if (codecMeasurement) {
+      TracingCodec.onReply(span, measurement, startNanos);
+    }
+    if (wireTiming != null) {
+      wireTiming.onReply(span, startNanos);
+    }
+    if (spanFinisher != null) {
+      spanFinisher.finish(span, throwable);
+    } else {
       if (throwable != null) {
         onError(throwable, span);
       }
-      span.finish();
-    });
-
-    return future;
+      span.finish(nowMicros());
+    }
   }
 
   <V> RFuture<V> prepareRFuture(Span span, Supplier<RFuture<V>> futureSupplier) {
+    return prepareRFuture(span, futureSupplier, null);
+  }
+
+  <V> RFuture<V> prepareRFuture(Span span, Supplier<RFuture<V>> futureSupplier,
+      BiConsumer<? super V, Throwable> onComplete) {
+    long startNanos = System.nanoTime();
+    TracingCodec.Measurement measurement = beginMeasurement();
     RFuture<V> future;
     try {
       future = futureSupplier.get();
     } catch (Exception e) {
       onError(e, span);
-      span.finish();
+      endMeasurement(measurement, span);
+      span.finish(nowMicros());
       throw e;
     }
+    endMeasurement(measurement, span);
 
-    return continueScopeSpan(setCompleteAction(future, span));
+    return setCompleteAction(future, span, startNanos, measurement, onComplete);
   }
 }
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import io.opentracing.Span;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Iterator decorator covering a whole iteration with one span. Iterators from
+ * {@link PagedIterators} count each page they fetch; iterations of other iterators are not tagged
+ * with pages. The span finishes when the iteration is exhausted or fails, or, for iterators
+ * abandoned before that, once they are garbage collected, at the time of their last use.
+ */
+class TracingIterator<E> implements Iterator<E> {
+  static final String ITERATION_ELEMENTS = "iteration.elements";
+  static final String ITERATION_PAGES = "iteration.pages";
+  static final String ITERATION_PAGES_US = "iteration.pages.us";
+  static final String ITERATION_PAGE_ELEMENTS = "iteration.page.elements";
+  static final String ITERATION_PAGE_MAX_ELEMENTS = "iteration.page.max_elements";
+  static final String ITERATION_ABANDONED = "iteration.abandoned";
+
+  private final Iterator<E> iterator;
+  private final Iteration iteration;
+
+  /**
+   * @param pages the pages the iterator counts its fetches in
+   * @param abandoned finisher of the span if the iterator is abandoned
+   */
+  TracingIterator(Iterator<E> iterator, Span span, Pages pages, Abandoned abandoned) {
+    this.iterator = iterator;
+    this.iteration = new Iteration(this, span, pages, abandoned);
+    abandoned.open(iteration);
+  }
+
+  /**
+   * Set view whose iterators are traced, all other operations go to the view itself.
+   */
+  static <E> Set<E> set(Set<E> view, Supplier<Iterator<E>> iterators) {
+    return new AbstractSet<E>() {
+      @Override
+      public Iterator<E> iterator() {
+        return iterators.get();
+      }
+
+      @Override
+      public int size() {
+        return view.size();
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        return view.contains(o);
+      }
+
+      @Override
+      public boolean remove(Object o) {
+        return view.remove(o);
+      }
+
+      @Override
+      public void clear() {
+        view.clear();
+      }
+    };
+  }
+
+  /**
+   * Collection view whose iterators are traced, all other operations go to the view itself.
+   */
+  static <E> Collection<E> collection(Collection<E> view, Supplier<Iterator<E>> iterators) {
+    return new AbstractCollection<E>() {
+      @Override
+      public Iterator<E> iterator() {
+        return iterators.get();
+      }
+
+      @Override
+      public int size() {
+        return view.size();
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        return view.contains(o);
+      }
+
+      @Override
+      public void clear() {
+        view.clear();
+      }
+    };
+  }
+
+  @Override
+  public boolean hasNext() {
+    boolean hasNext;
+    try {
+      hasNext = iterator.hasNext();
+    } catch (RuntimeException e) {
+      iteration.onError(e);
+      throw e;
+    }
+    iteration.lastCallMicros = TracingHelper.nowMicros();
+    if (!hasNext) {
+      iteration.finish();
+    }
+    return hasNext;
+  }
+
+  @Override
+  public E next() {
+    E next;
+    try {
+      next = iterator.next();
+    } catch (NoSuchElementException e) {
+      iteration.finish();
+      throw e;
+    } catch (RuntimeException e) {
+      iteration.onError(e);
+      throw e;
+    }
+    iteration.lastCallMicros = TracingHelper.nowMicros();
+    iteration.elements++;
+    return next;
+  }
+
+  @Override
+  public void remove() {
+    try {
+      iterator.remove();
+    } catch (RuntimeException e) {
+      iteration.onError(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Page fetches of an iteration, counted by the iterator fetching them. Iterators which cannot
+   * observe their fetches count none, and their iterations are not tagged with pages.
+   */
+  static class Pages {
+    private long count;
+    private long elements;
+    private long maxElements;
+    private long nanos;
+
+    <T> T fetch(Supplier<T> fetch, ToIntFunction<T> size) {
+      long startNanos = System.nanoTime();
+      T page = fetch.get();
+      int pageElements = size.applyAsInt(page);
+      synchronized (this) {
+        nanos += System.nanoTime() - startNanos;
+        count++;
+        elements += pageElements;
+        maxElements = Math.max(maxElements, pageElements);
+      }
+      return page;
+    }
+
+    synchronized void tag(Span span) {
+      if (count == 0) {
+        return;
+      }
+      span.setTag(ITERATION_PAGES, count);
+      span.setTag(ITERATION_PAGES_US, TimeUnit.NANOSECONDS.toMicros(nanos));
+      span.setTag(ITERATION_PAGE_ELEMENTS, elements);
+      span.setTag(ITERATION_PAGE_MAX_ELEMENTS, maxElements);
+    }
+  }
+
+  /**
+   * Finishes the spans of a client's iterations whose iterator was garbage collected before the
+   * iteration ended. A daemon thread, started with the first iteration, waits for the collected
+   * iterators.
+   */
+  static class Abandoned {
+    private final ReferenceQueue<TracingIterator<?>> queue = new ReferenceQueue<>();
+    private final Set<Iteration> open = ConcurrentHashMap.newKeySet();
+    private Thread thread;
+
+    private void open(Iteration iteration) {
+      open.add(iteration);
+      synchronized (this) {
+        if (thread == null) {
+          thread = new Thread(this::run, "redisson-abandoned-iterations");
+          thread.setDaemon(true);
+          thread.start();
+        }
+      }
+    }
+
+    private void run() {
+      try {
+        while (!Thread.currentThread().isInterrupted()) {
+          Reference<?> reference = queue.remove();
+          ((Iteration) reference).abandon();
+        }
+      } catch (InterruptedException e) {
+        // shut down
+      }
+    }
+
+    /**
+     * Stops waiting for collected iterators.
+     */
+    synchronized void shutdown() {
+      if (thread != null) {
+        thread.interrupt();
+      }
+    }
+  }
+
+  /**
+   * State of the iteration, kept apart from the iterator so that the span can still be finished
+   * once the iterator is collected.
+   */
+  private static class Iteration extends WeakReference<TracingIterator<?>> {
+    private final Span span;
+    private final Pages pages;
+    private final Abandoned abandoned;
+    private long elements;
+    private long lastCallMicros = TracingHelper.nowMicros();
+    private boolean finished;
+
+    private Iteration(TracingIterator<?> iterator, Span span, Pages pages, Abandoned abandoned) {
+      super(iterator, abandoned.queue);
+      this.span = span;
+      this.pages = pages;
+      this.abandoned = abandoned;
+    }
+
+    private void onError(RuntimeException e) {
+      if (!finished) {
+        TracingHelper.onError(e, span);
+      }
+      finish();
+    }
+
+    private synchronized void finish() {
+      if (!finished) {
+        tag();
+        span.finish(TracingHelper.nowMicros());
+      }
+    }
+
+    private synchronized void abandon() {
+      if (!finished) {
+        span.setTag(ITERATION_ABANDONED, true);
+        tag();
+        span.finish(lastCallMicros);
+      }
+    }
+
+    private void tag() {
+      span.setTag(ITERATION_ELEMENTS, elements);
+      pages.tag(span);
+      finished = true;
+      abandoned.open.remove(this);
+    }
+  }
+}
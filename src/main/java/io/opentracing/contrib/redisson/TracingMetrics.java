@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Counters, gauges and histograms collected by the tracing wrappers, keyed by metric name and
+ * Redisson object name.
+ */
+public class TracingMetrics {
+  private final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> counters =
+      new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, ConcurrentMap<String, Histogram>> histograms =
+      new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> gauges =
+      new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, ConcurrentMap<String, LongSupplier>> computedGauges =
+      new ConcurrentHashMap<>();
+
+  LongAdder counter(String metric, String objectName) {
+    return lookup(counters, metric, objectName, LongAdder::new);
+  }
+
+  Histogram histogram(String metric, String objectName) {
+    return lookup(histograms, metric, objectName, Histogram::new);
+  }
+
+  AtomicLong gauge(String metric, String objectName) {
+    return lookup(gauges, metric, objectName, AtomicLong::new);
+  }
+
+  /**
+   * Registers a gauge computed when read, unless one is registered already.
+   */
+  void computedGauge(String metric, String objectName, Supplier<LongSupplier> factory) {
+    lookup(computedGauges, metric, objectName, factory);
+  }
+
+  public long getCount(String metric, String objectName) {
+    LongAdder counter = find(counters, metric, objectName);
+    return counter == null ? 0 : counter.sum();
+  }
+
+  public Histogram getHistogram(String metric, String objectName) {
+    return find(histograms, metric, objectName);
+  }
+
+  public long getGauge(String metric, String objectName) {
+    AtomicLong gauge = find(gauges, metric, objectName);
+    if (gauge != null) {
+      return gauge.get();
+    }
+    LongSupplier computed = find(computedGauges, metric, objectName);
+    return computed == null ? 0 : computed.getAsLong();
+  }
+
+  public double getLocalCacheHitRatio(String mapName) {
+    long hits = getCount(TracingRLocalCachedMap.LOCAL_CACHE_HITS, mapName);
+    long lookups = hits + getCount(TracingRLocalCachedMap.LOCAL_CACHE_MISSES, mapName);
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  public Map<String, Long> getCounts(String metric) {
+    Map<String, LongAdder> byName = counters.get(metric);
+    if (byName == null) {
+      return Collections.emptyMap();
+    }
+    Map<String, Long> snapshot = new HashMap<>();
+    byName.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+    return snapshot;
+  }
+
+  public Map<String, Long> getGauges(String metric) {
+    Map<String, AtomicLong> byName = gauges.get(metric);
+    Map<String, LongSupplier> computedByName = computedGauges.get(metric);
+    if (byName == null && computedByName == null) {
+      return Collections.emptyMap();
+    }
+    Map<String, Long> snapshot = new HashMap<>();
+    if (computedByName != null) {
+      computedByName.forEach((name, gauge) -> snapshot.put(name, gauge.getAsLong()));
+    }
+    if (byName != null) {
+      byName.forEach((name, gauge) -> snapshot.put(name, gauge.get()));
+    }
+    return snapshot;
+  }
+
+  public Map<String, Histogram> getHistograms(String metric) {
+    Map<String, Histogram> byName = histograms.get(metric);
+    if (byName == null) {
+      return Collections.emptyMap();
+    }
+    return Collections.unmodifiableMap(byName);
+  }
+
+  private static <T> T find(ConcurrentMap<String, ConcurrentMap<String, T>> metrics,
+      String metric, String objectName) {
+    Map<String, T> byName = metrics.get(metric);
+    return byName == null ? null : byName.get(objectName);
+  }
+
+  private static <T> T lookup(ConcurrentMap<String, ConcurrentMap<String, T>> metrics,
+      String metric, String objectName, Supplier<T> factory) {
+    ConcurrentMap<String, T> byName = metrics.get(metric);
+    if (byName == null) {
+      byName = metrics.computeIfAbsent(metric, key -> new ConcurrentHashMap<>());
+    }
+    T value = byName.get(objectName);
+    if (value == null) {
+      value = byName.computeIfAbsent(objectName, key -> factory.get());
+    }
+    return value;
+  }
+}
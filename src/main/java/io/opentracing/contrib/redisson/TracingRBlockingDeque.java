@@ -26,75 +26,89 @@ import org.redisson.api.RFuture;
 public class TracingRBlockingDeque<V> extends TracingRDeque<V> implements RBlockingDeque<V> {
   private final RBlockingDeque<V> deque;
   private final TracingHelper tracingHelper;
+  private final QueueThroughputTracker throughput;
 
   public TracingRBlockingDeque(RBlockingDeque<V> deque, TracingHelper tracingHelper) {
     super(deque, tracingHelper);
     this.deque = deque;
     this.tracingHelper = tracingHelper;
+    this.throughput = tracingHelper.getQueueThroughputTracker();
   }
 
   @Override
   public V pollFirstFromAny(long timeout, TimeUnit unit, String... queueNames)
       throws InterruptedException {
-    Span span = tracingHelper.buildSpan("pollFirstFromAny", deque);
+    Span span = tracingHelper.buildBlockingSpan("pollFirstFromAny", deque);
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
     span.setTag("queueNames", Arrays.toString(queueNames));
-    return tracingHelper
-        .decorateThrowing(span, () -> deque.pollFirstFromAny(timeout, unit, queueNames));
+    return tracingHelper.decorateBlocking(span, deque,
+        () -> deque.pollFirstFromAny(timeout, unit, queueNames), queueNames);
   }
 
   @Override
   public V pollLastFromAny(long timeout, TimeUnit unit, String... queueNames)
       throws InterruptedException {
-    Span span = tracingHelper.buildSpan("pollLastFromAny", deque);
+    Span span = tracingHelper.buildBlockingSpan("pollLastFromAny", deque);
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
     span.setTag("queueNames", Arrays.toString(queueNames));
-    return tracingHelper
-        .decorateThrowing(span, () -> deque.pollLastFromAny(timeout, unit, queueNames));
+    return tracingHelper.decorateBlocking(span, deque,
+        () -> deque.pollLastFromAny(timeout, unit, queueNames), queueNames);
   }
 
   @Override
   public void addFirst(V v) {
     Span span = tracingHelper.buildSpan("addFirst", deque);
     span.setTag("element", nullable(v));
-    tracingHelper.decorate(span, () -> deque.addFirst(v));
+    tracingHelper.decorate(span, () -> {
+      deque.addFirst(v);
+      offered();
+    });
   }
 
   @Override
   public void addLast(V v) {
     Span span = tracingHelper.buildSpan("addLast", deque);
     span.setTag("element", nullable(v));
-    tracingHelper.decorate(span, () -> deque.addLast(v));
+    tracingHelper.decorate(span, () -> {
+      deque.addLast(v);
+      offered();
+    });
   }
 
   @Override
   public boolean offerFirst(V v) {
     Span span = tracingHelper.buildSpan("offerFirst", deque);
     span.setTag("element", nullable(v));
-    return tracingHelper.decorate(span, () -> deque.offerFirst(v));
+    return tracingHelper.decorate(span, () -> offered(deque.offerFirst(v)));
   }
 
   @Override
   public boolean offerLast(V v) {
     Span span = tracingHelper.buildSpan("offerLast", deque);
     span.setTag("element", nullable(v));
-    return tracingHelper.decorate(span, () -> deque.offerLast(v));
+    return tracingHelper.decorate(span, () -> offered(deque.offerLast(v)));
   }
 
   @Override
   public void putFirst(V v) throws InterruptedException {
     Span span = tracingHelper.buildSpan("putFirst", deque);
     span.setTag("element", nullable(v));
-    tracingHelper.decorateThrowing(span, () -> deque.putFirst(v));
+    tracingHelper.decorateThrowing(span, () -> {
+      deque.putFirst(v);
+      offered();
+    });
   }
 
   @Override
   public void putLast(V v) throws InterruptedException {
     Span span = tracingHelper.buildSpan("putLast", deque);
     span.setTag("element", nullable(v));
-    tracingHelper.decorateThrowing(span, () -> deque.putLast(v));
+    tracingHelper.decorateThrowing(span, () -> {
+      deque.putLast(v);
+      offered();
+    });
   }
 
   @Override
@@ -103,7 +117,8 @@ public class TracingRBlockingDeque<V> extends TracingRDeque<V> implements RBlock
     span.setTag("element", nullable(v));
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.decorateThrowing(span, () -> deque.offerFirst(v, timeout, unit));
+    return tracingHelper
+        .decorateThrowing(span, () -> offered(deque.offerFirst(v, timeout, unit)));
   }
 
   @Override
@@ -112,35 +127,36 @@ public class TracingRBlockingDeque<V> extends TracingRDeque<V> implements RBlock
     span.setTag("element", nullable(v));
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.decorateThrowing(span, () -> deque.offerLast(v, timeout, unit));
+    return tracingHelper
+        .decorateThrowing(span, () -> offered(deque.offerLast(v, timeout, unit)));
   }
 
   @Override
   public V takeFirst() throws InterruptedException {
-    Span span = tracingHelper.buildSpan("takeFirst", deque);
-    return tracingHelper.decorateThrowing(span, deque::takeFirst);
+    Span span = tracingHelper.buildBlockingSpan("takeFirst", deque);
+    return tracingHelper.decorateBlocking(span, deque, deque::takeFirst);
   }
 
   @Override
   public V takeLast() throws InterruptedException {
-    Span span = tracingHelper.buildSpan("takeLast", deque);
-    return tracingHelper.decorateThrowing(span, deque::takeLast);
+    Span span = tracingHelper.buildBlockingSpan("takeLast", deque);
+    return tracingHelper.decorateBlocking(span, deque, deque::takeLast);
   }
 
   @Override
   public V pollFirst(long timeout, TimeUnit unit) throws InterruptedException {
-    Span span = tracingHelper.buildSpan("pollFirst", deque);
+    Span span = tracingHelper.buildBlockingSpan("pollFirst", deque);
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.decorateThrowing(span, () -> deque.pollFirst(timeout, unit));
+    return tracingHelper.decorateBlocking(span, deque, () -> deque.pollFirst(timeout, unit));
   }
 
   @Override
   public V pollLast(long timeout, TimeUnit unit) throws InterruptedException {
-    Span span = tracingHelper.buildSpan("pollLast", deque);
+    Span span = tracingHelper.buildBlockingSpan("pollLast", deque);
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.decorateThrowing(span, () -> deque.pollLast(timeout, unit));
+    return tracingHelper.decorateBlocking(span, deque, () -> deque.pollLast(timeout, unit));
   }
 
   @Override
@@ -161,21 +177,24 @@ public class TracingRBlockingDeque<V> extends TracingRDeque<V> implements RBlock
   public boolean add(V v) {
     Span span = tracingHelper.buildSpan("add", deque);
     span.setTag("element", nullable(v));
-    return tracingHelper.decorate(span, () -> deque.add(v));
+    return tracingHelper.decorate(span, () -> offered(deque.add(v)));
   }
 
   @Override
   public boolean offer(V v) {
     Span span = tracingHelper.buildSpan("offer", deque);
     span.setTag("element", nullable(v));
-    return tracingHelper.decorate(span, () -> deque.offer(v));
+    return tracingHelper.decorate(span, () -> offered(deque.offer(v)));
   }
 
   @Override
   public void put(V v) throws InterruptedException {
     Span span = tracingHelper.buildSpan("put", deque);
     span.setTag("element", nullable(v));
-    tracingHelper.decorateThrowing(span, () -> deque.put(v));
+    tracingHelper.decorateThrowing(span, () -> {
+      deque.put(v);
+      offered();
+    });
   }
 
   @Override
@@ -184,7 +203,8 @@ public class TracingRBlockingDeque<V> extends TracingRDeque<V> implements RBlock
     span.setTag("element", nullable(v));
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.decorateThrowing(span, () -> deque.offer(v, timeout, unit));
+    return tracingHelper
+        .decorateThrowing(span, () -> offered(deque.offer(v, timeout, unit)));
   }
 
   @Override
@@ -201,16 +221,16 @@ public class TracingRBlockingDeque<V> extends TracingRDeque<V> implements RBlock
 
   @Override
   public V take() throws InterruptedException {
-    Span span = tracingHelper.buildSpan("take", deque);
-    return tracingHelper.decorateThrowing(span, deque::take);
+    Span span = tracingHelper.buildBlockingSpan("take", deque);
+    return tracingHelper.decorateBlocking(span, deque, deque::take);
   }
 
   @Override
   public V poll(long timeout, TimeUnit unit) throws InterruptedException {
-    Span span = tracingHelper.buildSpan("poll", deque);
+    Span span = tracingHelper.buildBlockingSpan("poll", deque);
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.decorateThrowing(span, () -> deque.poll(timeout, unit));
+    return tracingHelper.decorateBlocking(span, deque, () -> deque.poll(timeout, unit));
   }
 
   @Override
@@ -254,7 +274,10 @@ public class TracingRBlockingDeque<V> extends TracingRDeque<V> implements RBlock
   public void push(V v) {
     Span span = tracingHelper.buildSpan("push", deque);
     span.setTag("element", nullable(v));
-    tracingHelper.decorate(span, () -> deque.push(v));
+    tracingHelper.decorate(span, () -> {
+      deque.push(v);
+      offered();
+    });
   }
 
   @Override
@@ -266,42 +289,54 @@ public class TracingRBlockingDeque<V> extends TracingRDeque<V> implements RBlock
   @Override
   public int drainTo(Collection<? super V> c) {
     Span span = tracingHelper.buildSpan("drainTo", deque);
-    return tracingHelper.decorate(span, () -> deque.drainTo(c));
+    QueueThroughputTracker.Drained<V> drained = throughput.drainTo(c);
+    return tracingHelper.decorate(span, () -> {
+      int count = deque.drainTo(drained);
+      throughput.onDrained(span, deque, drained);
+      return count;
+    });
   }
 
   @Override
   public int drainTo(Collection<? super V> c, int maxElements) {
     Span span = tracingHelper.buildSpan("drainTo", deque);
     span.setTag("maxElements", maxElements);
-    return tracingHelper.decorate(span, () -> deque.drainTo(c, maxElements));
+    QueueThroughputTracker.Drained<V> drained = throughput.drainTo(c);
+    return tracingHelper.decorate(span, () -> {
+      int count = deque.drainTo(drained, maxElements);
+      throughput.onDrained(span, deque, drained);
+      return count;
+    });
   }
 
   @Override
   public V pollFromAny(long timeout, TimeUnit unit, String... queueNames)
       throws InterruptedException {
-    Span span = tracingHelper.buildSpan("pollFromAny", deque);
+    Span span = tracingHelper.buildBlockingSpan("pollFromAny", deque);
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
     span.setTag("queueNames", Arrays.toString(queueNames));
-    return tracingHelper.decorateThrowing(span, () -> deque.pollFromAny(timeout, unit, queueNames));
+    return tracingHelper.decorateBlocking(span, deque,
+        () -> deque.pollFromAny(timeout, unit, queueNames), queueNames);
   }
 
   @Override
   public V pollLastAndOfferFirstTo(String queueName, long timeout, TimeUnit unit)
       throws InterruptedException {
-    Span span = tracingHelper.buildSpan("pollLastAndOfferFirstTo", deque);
+    Span span = tracingHelper.buildBlockingSpan("pollLastAndOfferFirstTo", deque);
     span.setTag("queueName", nullable(queueName));
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
-    return tracingHelper
-        .decorateThrowing(span, () -> deque.pollLastAndOfferFirstTo(queueName, timeout, unit));
+    return tracingHelper.decorateBlocking(span, deque,
+        () -> moved(span, queueName, deque.pollLastAndOfferFirstTo(queueName, timeout, unit)));
   }
 
   @Override
   public V takeLastAndOfferFirstTo(String queueName) throws InterruptedException {
-    Span span = tracingHelper.buildSpan("takeLastAndOfferFirstTo", deque);
+    Span span = tracingHelper.buildBlockingSpan("takeLastAndOfferFirstTo", deque);
     span.setTag("queueName", nullable(queueName));
-    return tracingHelper.decorateThrowing(span, () -> deque.takeLastAndOfferFirstTo(queueName));
+    return tracingHelper.decorateBlocking(span, deque,
+        () -> moved(span, queueName, deque.takeLastAndOfferFirstTo(queueName)));
   }
 
   @Override
@@ -318,13 +353,17 @@ public class TracingRBlockingDeque<V> extends TracingRDeque<V> implements RBlock
   public RFuture<Integer> drainToAsync(Collection<? super V> c, int maxElements) {
     Span span = tracingHelper.buildSpan("drainToAsync", deque);
     span.setTag("maxElements", maxElements);
-    return tracingHelper.prepareRFuture(span, () -> deque.drainToAsync(c, maxElements));
+    QueueThroughputTracker.Drained<V> drained = throughput.drainTo(c);
+    return tracingHelper.prepareRFuture(span, () -> deque.drainToAsync(drained, maxElements),
+        throughput.whenDrained(span, deque, drained));
   }
 
   @Override
   public RFuture<Integer> drainToAsync(Collection<? super V> c) {
     Span span = tracingHelper.buildSpan("drainToAsync", deque);
-    return tracingHelper.prepareRFuture(span, () -> deque.drainToAsync(c));
+    QueueThroughputTracker.Drained<V> drained = throughput.drainTo(c);
+    return tracingHelper.prepareRFuture(span, () -> deque.drainToAsync(drained),
+        throughput.whenDrained(span, deque, drained));
   }
 
   @Override
@@ -334,15 +373,16 @@ public class TracingRBlockingDeque<V> extends TracingRDeque<V> implements RBlock
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
     return tracingHelper
-        .prepareRFuture(span, () -> deque.pollLastAndOfferFirstToAsync(queueName, timeout, unit));
+        .prepareRFuture(span, () -> deque.pollLastAndOfferFirstToAsync(queueName, timeout, unit),
+            throughput.whenMoved(span, deque, queueName));
   }
 
   @Override
   public RFuture<V> takeLastAndOfferFirstToAsync(String queueName) {
     Span span = tracingHelper.buildSpan("takeLastAndOfferFirstToAsync", deque);
     span.setTag("queueName", nullable(queueName));
-    return tracingHelper
-        .prepareRFuture(span, () -> deque.takeLastAndOfferFirstToAsync(queueName));
+    return tracingHelper.prepareRFuture(span, () -> deque.takeLastAndOfferFirstToAsync(queueName),
+        throughput.whenMoved(span, deque, queueName));
   }
 
   @Override
@@ -350,20 +390,23 @@ public class TracingRBlockingDeque<V> extends TracingRDeque<V> implements RBlock
     Span span = tracingHelper.buildSpan("pollAsync", deque);
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.prepareRFuture(span, () -> deque.pollAsync(timeout, unit));
+    return tracingHelper.prepareRFuture(span, () -> deque.pollAsync(timeout, unit),
+        throughput.whenDrained(deque.getName()));
   }
 
   @Override
   public RFuture<V> takeAsync() {
     Span span = tracingHelper.buildSpan("takeAsync", deque);
-    return tracingHelper.prepareRFuture(span, deque::takeAsync);
+    return tracingHelper
+        .prepareRFuture(span, deque::takeAsync, throughput.whenDrained(deque.getName()));
   }
 
   @Override
   public RFuture<Void> putAsync(V e) {
     Span span = tracingHelper.buildSpan("putAsync", deque);
     span.setTag("element", nullable(e));
-    return tracingHelper.prepareRFuture(span, () -> deque.putAsync(e));
+    return tracingHelper.prepareRFuture(span, () -> deque.putAsync(e),
+        throughput.whenOffered(deque.getName()));
   }
 
   @Override
@@ -390,14 +433,16 @@ public class TracingRBlockingDeque<V> extends TracingRDeque<V> implements RBlock
   public RFuture<Void> putFirstAsync(V e) {
     Span span = tracingHelper.buildSpan("putFirstAsync", deque);
     span.setTag("element", nullable(e));
-    return tracingHelper.prepareRFuture(span, () -> deque.putFirstAsync(e));
+    return tracingHelper.prepareRFuture(span, () -> deque.putFirstAsync(e),
+        throughput.whenOffered(deque.getName()));
   }
 
   @Override
   public RFuture<Void> putLastAsync(V e) {
     Span span = tracingHelper.buildSpan("putLastAsync", deque);
     span.setTag("element", nullable(e));
-    return tracingHelper.prepareRFuture(span, () -> deque.putLastAsync(e));
+    return tracingHelper.prepareRFuture(span, () -> deque.putLastAsync(e),
+        throughput.whenOffered(deque.getName()));
   }
 
   @Override
@@ -405,14 +450,15 @@ public class TracingRBlockingDeque<V> extends TracingRDeque<V> implements RBlock
     Span span = tracingHelper.buildSpan("pollLastAsync", deque);
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
-    return tracingHelper
-        .prepareRFuture(span, () -> deque.pollLastAsync(timeout, unit));
+    return tracingHelper.prepareRFuture(span, () -> deque.pollLastAsync(timeout, unit),
+        throughput.whenDrained(deque.getName()));
   }
 
   @Override
   public RFuture<V> takeLastAsync() {
     Span span = tracingHelper.buildSpan("takeLastAsync", deque);
-    return tracingHelper.prepareRFuture(span, deque::takeLastAsync);
+    return tracingHelper
+        .prepareRFuture(span, deque::takeLastAsync, throughput.whenDrained(deque.getName()));
   }
 
   @Override
@@ -420,14 +466,28 @@ public class TracingRBlockingDeque<V> extends TracingRDeque<V> implements RBlock
     Span span = tracingHelper.buildSpan("pollFirstAsync", deque);
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
-    return tracingHelper
-        .prepareRFuture(span, () -> deque.pollFirstAsync(timeout, unit));
+    return tracingHelper.prepareRFuture(span, () -> deque.pollFirstAsync(timeout, unit),
+        throughput.whenDrained(deque.getName()));
   }
 
   @Override
   public RFuture<V> takeFirstAsync() {
     Span span = tracingHelper.buildSpan("takeFirstAsync", deque);
-    return tracingHelper.prepareRFuture(span, deque::takeFirstAsync);
+    return tracingHelper
+        .prepareRFuture(span, deque::takeFirstAsync, throughput.whenDrained(deque.getName()));
   }
 
+  private boolean offered(boolean offered) {
+    return throughput.onOffered(deque.getName(), offered);
+  }
+
+  private void offered() {
+    throughput.onOffered(deque.getName(), 1);
+  }
+
+  private V moved(Span span, String queueName, V value) {
+    // The source side was counted by the blocking poll
+    throughput.onMoved(span, deque, queueName, value);
+    return value;
+  }
 }
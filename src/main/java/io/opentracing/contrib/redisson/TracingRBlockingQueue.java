@@ -25,60 +25,67 @@ import org.redisson.api.RFuture;
 public class TracingRBlockingQueue<V> extends TracingRQueue<V> implements RBlockingQueue<V> {
   private final RBlockingQueue<V> queue;
   private final TracingHelper tracingHelper;
+  private final QueueThroughputTracker throughput;
 
   public TracingRBlockingQueue(RBlockingQueue<V> queue, TracingHelper tracingHelper) {
     super(queue, tracingHelper);
     this.queue = queue;
     this.tracingHelper = tracingHelper;
+    this.throughput = tracingHelper.getQueueThroughputTracker();
   }
 
   @Override
   public V pollFromAny(long timeout, TimeUnit unit, String... queueNames)
       throws InterruptedException {
-    Span span = tracingHelper.buildSpan("pollFromAny", queue);
+    Span span = tracingHelper.buildBlockingSpan("pollFromAny", queue);
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
     span.setTag("queueNames", Arrays.toString(queueNames));
-    return tracingHelper.decorateThrowing(span, () -> queue.pollFromAny(timeout, unit, queueNames));
+    return tracingHelper.decorateBlocking(span, queue,
+        () -> queue.pollFromAny(timeout, unit, queueNames), queueNames);
   }
 
   @Override
   public V pollLastAndOfferFirstTo(String queueName, long timeout, TimeUnit unit)
       throws InterruptedException {
-    Span span = tracingHelper.buildSpan("pollLastAndOfferFirstTo", queue);
+    Span span = tracingHelper.buildBlockingSpan("pollLastAndOfferFirstTo", queue);
     span.setTag("queueName", nullable(queueName));
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
-    return tracingHelper
-        .decorateThrowing(span, () -> queue.pollLastAndOfferFirstTo(queueName, timeout, unit));
+    return tracingHelper.decorateBlocking(span, queue,
+        () -> moved(span, queueName, queue.pollLastAndOfferFirstTo(queueName, timeout, unit)));
   }
 
   @Override
   public V takeLastAndOfferFirstTo(String queueName) throws InterruptedException {
-    Span span = tracingHelper.buildSpan("takeLastAndOfferFirstTo", queue);
+    Span span = tracingHelper.buildBlockingSpan("takeLastAndOfferFirstTo", queue);
     span.setTag("queueName", nullable(queueName));
-    return tracingHelper.decorateThrowing(span, () -> queue.takeLastAndOfferFirstTo(queueName));
+    return tracingHelper.decorateBlocking(span, queue,
+        () -> moved(span, queueName, queue.takeLastAndOfferFirstTo(queueName)));
   }
 
   @Override
   public boolean add(V v) {
     Span span = tracingHelper.buildSpan("add", queue);
     span.setTag("element", nullable(v));
-    return tracingHelper.decorate(span, () -> queue.add(v));
+    return tracingHelper.decorate(span, () -> offered(queue.add(v)));
   }
 
   @Override
   public boolean offer(V v) {
     Span span = tracingHelper.buildSpan("offer", queue);
     span.setTag("element", nullable(v));
-    return tracingHelper.decorate(span, () -> queue.offer(v));
+    return tracingHelper.decorate(span, () -> offered(queue.offer(v)));
   }
 
   @Override
   public void put(V v) throws InterruptedException {
     Span span = tracingHelper.buildSpan("put", queue);
     span.setTag("element", nullable(v));
-    tracingHelper.decorateThrowing(span, () -> queue.put(v));
+    tracingHelper.decorateThrowing(span, () -> {
+      queue.put(v);
+      offered();
+    });
   }
 
   @Override
@@ -87,21 +94,22 @@ public class TracingRBlockingQueue<V> extends TracingRQueue<V> implements RBlock
     span.setTag("element", nullable(v));
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.decorateThrowing(span, () -> queue.offer(v, timeout, unit));
+    return tracingHelper
+        .decorateThrowing(span, () -> offered(queue.offer(v, timeout, unit)));
   }
 
   @Override
   public V take() throws InterruptedException {
-    Span span = tracingHelper.buildSpan("take", queue);
-    return tracingHelper.decorateThrowing(span, queue::take);
+    Span span = tracingHelper.buildBlockingSpan("take", queue);
+    return tracingHelper.decorateBlocking(span, queue, queue::take);
   }
 
   @Override
   public V poll(long timeout, TimeUnit unit) throws InterruptedException {
-    Span span = tracingHelper.buildSpan("poll", queue);
+    Span span = tracingHelper.buildBlockingSpan("poll", queue);
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.decorateThrowing(span, () -> queue.poll(timeout, unit));
+    return tracingHelper.decorateBlocking(span, queue, () -> queue.poll(timeout, unit));
   }
 
   @Override
@@ -127,14 +135,24 @@ public class TracingRBlockingQueue<V> extends TracingRQueue<V> implements RBlock
   @Override
   public int drainTo(Collection<? super V> c) {
     Span span = tracingHelper.buildSpan("drainTo", queue);
-    return tracingHelper.decorate(span, () -> queue.drainTo(c));
+    QueueThroughputTracker.Drained<V> drained = throughput.drainTo(c);
+    return tracingHelper.decorate(span, () -> {
+      int count = queue.drainTo(drained);
+      throughput.onDrained(span, queue, drained);
+      return count;
+    });
   }
 
   @Override
   public int drainTo(Collection<? super V> c, int maxElements) {
     Span span = tracingHelper.buildSpan("drainTo", queue);
     span.setTag("maxElements", maxElements);
-    return tracingHelper.decorate(span, () -> queue.drainTo(c, maxElements));
+    QueueThroughputTracker.Drained<V> drained = throughput.drainTo(c);
+    return tracingHelper.decorate(span, () -> {
+      int count = queue.drainTo(drained, maxElements);
+      throughput.onDrained(span, queue, drained);
+      return count;
+    });
   }
 
   @Override
@@ -151,13 +169,17 @@ public class TracingRBlockingQueue<V> extends TracingRQueue<V> implements RBlock
   public RFuture<Integer> drainToAsync(Collection<? super V> c, int maxElements) {
     Span span = tracingHelper.buildSpan("drainToAsync", queue);
     span.setTag("maxElements", maxElements);
-    return tracingHelper.prepareRFuture(span, () -> queue.drainToAsync(c, maxElements));
+    QueueThroughputTracker.Drained<V> drained = throughput.drainTo(c);
+    return tracingHelper.prepareRFuture(span, () -> queue.drainToAsync(drained, maxElements),
+        throughput.whenDrained(span, queue, drained));
   }
 
   @Override
   public RFuture<Integer> drainToAsync(Collection<? super V> c) {
     Span span = tracingHelper.buildSpan("drainToAsync", queue);
-    return tracingHelper.prepareRFuture(span, () -> queue.drainToAsync(c));
+    QueueThroughputTracker.Drained<V> drained = throughput.drainTo(c);
+    return tracingHelper.prepareRFuture(span, () -> queue.drainToAsync(drained),
+        throughput.whenDrained(span, queue, drained));
   }
 
   @Override
@@ -167,15 +189,16 @@ public class TracingRBlockingQueue<V> extends TracingRQueue<V> implements RBlock
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
     return tracingHelper
-        .prepareRFuture(span, () -> queue.pollLastAndOfferFirstToAsync(queueName, timeout, unit));
+        .prepareRFuture(span, () -> queue.pollLastAndOfferFirstToAsync(queueName, timeout, unit),
+            throughput.whenMoved(span, queue, queueName));
   }
 
   @Override
   public RFuture<V> takeLastAndOfferFirstToAsync(String queueName) {
     Span span = tracingHelper.buildSpan("takeLastAndOfferFirstToAsync", queue);
     span.setTag("queueName", nullable(queueName));
-    return tracingHelper
-        .prepareRFuture(span, () -> queue.takeLastAndOfferFirstToAsync(queueName));
+    return tracingHelper.prepareRFuture(span, () -> queue.takeLastAndOfferFirstToAsync(queueName),
+        throughput.whenMoved(span, queue, queueName));
   }
 
   @Override
@@ -183,20 +206,36 @@ public class TracingRBlockingQueue<V> extends TracingRQueue<V> implements RBlock
     Span span = tracingHelper.buildSpan("pollAsync", queue);
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.prepareRFuture(span, () -> queue.pollAsync(timeout, unit));
+    return tracingHelper.prepareRFuture(span, () -> queue.pollAsync(timeout, unit),
+        throughput.whenDrained(queue.getName()));
   }
 
   @Override
   public RFuture<V> takeAsync() {
     Span span = tracingHelper.buildSpan("takeAsync", queue);
-    return tracingHelper.prepareRFuture(span, queue::takeAsync);
+    return tracingHelper
+        .prepareRFuture(span, queue::takeAsync, throughput.whenDrained(queue.getName()));
   }
 
   @Override
   public RFuture<Void> putAsync(V e) {
     Span span = tracingHelper.buildSpan("putAsync", queue);
     span.setTag("element", nullable(e));
-    return tracingHelper.prepareRFuture(span, () -> queue.putAsync(e));
+    return tracingHelper.prepareRFuture(span, () -> queue.putAsync(e),
+        throughput.whenOffered(queue.getName()));
   }
 
+  private boolean offered(boolean offered) {
+    return throughput.onOffered(queue.getName(), offered);
+  }
+
+  private void offered() {
+    throughput.onOffered(queue.getName(), 1);
+  }
+
+  private V moved(Span span, String queueName, V value) {
+    // The source side was counted by the blocking poll
+    throughput.onMoved(span, queue, queueName, value);
+    return value;
+  }
 }
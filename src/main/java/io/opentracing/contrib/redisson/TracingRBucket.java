@@ -39,6 +39,7 @@ public class TracingRBucket<V> extends TracingRExpirable implements RBucket<V> {
   @Override
   public V get() {
     Span span = tracingHelper.buildSpan("get", bucket);
+    tracingHelper.onKeyAccess(span, bucket.getName());
     return tracingHelper.decorate(span, bucket::get);
   }
 
@@ -83,6 +84,7 @@ public class TracingRBucket<V> extends TracingRExpirable implements RBucket<V> {
   public void set(V value) {
     Span span = tracingHelper.buildSpan("set", bucket);
     span.setTag("value", nullable(value));
+    tracingHelper.onKeyAccess(span, bucket.getName());
     tracingHelper.decorate(span, () -> bucket.set(value));
   }
 
@@ -92,6 +94,7 @@ public class TracingRBucket<V> extends TracingRExpirable implements RBucket<V> {
     span.setTag("value", nullable(value));
     span.setTag("timeToLive", timeToLive);
     span.setTag("timeUnit", nullable(timeUnit));
+    tracingHelper.onKeyAccess(span, bucket.getName());
     tracingHelper.decorate(span, () -> bucket.set(value, timeToLive, timeUnit));
   }
 
@@ -104,6 +107,7 @@ public class TracingRBucket<V> extends TracingRExpirable implements RBucket<V> {
   @Override
   public RFuture<V> getAsync() {
     Span span = tracingHelper.buildSpan("getAsync", bucket);
+    tracingHelper.onKeyAccess(span, bucket.getName());
     return tracingHelper.prepareRFuture(span, bucket::getAsync);
   }
 
@@ -149,6 +153,7 @@ public class TracingRBucket<V> extends TracingRExpirable implements RBucket<V> {
   public RFuture<Void> setAsync(V value) {
     Span span = tracingHelper.buildSpan("setAsync", bucket);
     span.setTag("value", nullable(value));
+    tracingHelper.onKeyAccess(span, bucket.getName());
     return tracingHelper.prepareRFuture(span, () -> bucket.setAsync(value));
   }
 
@@ -158,6 +163,7 @@ public class TracingRBucket<V> extends TracingRExpirable implements RBucket<V> {
     span.setTag("value", nullable(value));
     span.setTag("timeToLive", timeToLive);
     span.setTag("timeUnit", nullable(timeUnit));
+    tracingHelper.onKeyAccess(span, bucket.getName());
     return tracingHelper.prepareRFuture(span, () -> bucket.setAsync(value, timeToLive, timeUnit));
   }
 
@@ -17,6 +17,9 @@ import static io.opentracing.contrib.redisson.TracingHelper.nullable;
 
 import io.opentracing.Span;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import org.redisson.api.RBuckets;
 import org.redisson.api.RFuture;
@@ -32,44 +35,62 @@ public class TracingRBuckets implements RBuckets {
 
   @Override
   public <V> Map<String, V> get(String... keys) {
-    Span span = tracingHelper.buildSpan("get");
+    Span span = tracingHelper.buildSpan("get", buckets);
     span.setTag("keys", Arrays.toString(keys));
-    return tracingHelper.decorate(span, () -> buckets.get(keys));
+    onKeyAccess(span, keys);
+    List<Span> groups = tracingHelper.fanOut(span, Arrays.asList(keys));
+    return tracingHelper.decorateFanOut(span, groups, () -> buckets.get(keys));
   }
 
   @Override
   public boolean trySet(Map<String, ?> buckets) {
-    Span span = tracingHelper.buildSpan("trySet");
+    Span span = tracingHelper.buildSpan("trySet", buckets);
     span.setTag("buckets", nullable(buckets));
     return tracingHelper.decorate(span, () -> this.buckets.trySet(buckets));
   }
 
   @Override
   public void set(Map<String, ?> buckets) {
-    Span span = tracingHelper.buildSpan("set");
+    Span span = tracingHelper.buildSpan("set", buckets);
     span.setTag("buckets", nullable(buckets));
-    tracingHelper.decorate(span, () -> this.buckets.set(buckets));
+    List<Span> groups = tracingHelper.fanOut(span, keys(buckets));
+    tracingHelper.decorateFanOut(span, groups, () -> {
+      this.buckets.set(buckets);
+      return null;
+    });
   }
 
   @Override
   public <V> RFuture<Map<String, V>> getAsync(String... keys) {
-    Span span = tracingHelper.buildSpan("getAsync");
+    Span span = tracingHelper.buildSpan("getAsync", buckets);
     span.setTag("keys", Arrays.toString(keys));
-    return tracingHelper.prepareRFuture(span, () -> buckets.getAsync(keys));
+    onKeyAccess(span, keys);
+    List<Span> groups = tracingHelper.fanOut(span, Arrays.asList(keys));
+    return tracingHelper.prepareFanOut(span, groups, () -> buckets.getAsync(keys));
   }
 
   @Override
   public RFuture<Boolean> trySetAsync(Map<String, ?> buckets) {
-    Span span = tracingHelper.buildSpan("trySetAsync");
+    Span span = tracingHelper.buildSpan("trySetAsync", buckets);
     span.setTag("buckets", nullable(buckets));
     return tracingHelper.prepareRFuture(span, () -> this.buckets.trySetAsync(buckets));
   }
 
   @Override
   public RFuture<Void> setAsync(Map<String, ?> buckets) {
-    Span span = tracingHelper.buildSpan("setAsync");
+    Span span = tracingHelper.buildSpan("setAsync", buckets);
     span.setTag("buckets", nullable(buckets));
-    return tracingHelper.prepareRFuture(span, () -> this.buckets.setAsync(buckets));
+    List<Span> groups = tracingHelper.fanOut(span, keys(buckets));
+    return tracingHelper.prepareFanOut(span, groups, () -> this.buckets.setAsync(buckets));
   }
 
+  private static Collection<String> keys(Map<String, ?> buckets) {
+    return buckets == null ? Collections.emptySet() : buckets.keySet();
+  }
+
+  private void onKeyAccess(Span span, String... keys) {
+    for (String key : keys) {
+      tracingHelper.onKeyAccess(span, key);
+    }
+  }
 }
@@ -16,23 +16,57 @@ package io.opentracing.contrib.redisson;
 import static io.opentracing.contrib.redisson.TracingHelper.nullable;
 
 import io.opentracing.Span;
+import io.opentracing.SpanContext;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import org.redisson.api.RCountDownLatch;
 import org.redisson.api.RFuture;
+import org.redisson.api.RList;
 
 public class TracingRCountDownLatch extends TracingRObject implements RCountDownLatch {
+  static final String LATCH_WAKEUP_DELAY_MS = "latch.wakeup.delay.ms";
+  private static final String TIMESTAMP_KEY = "redisson.countDown.timestamp";
+  private static final long RELEASERS_TIME_TO_LIVE_HOURS = 1;
   private final RCountDownLatch latch;
+  private final RList<Map<String, String>> releasers;
   private final TracingHelper tracingHelper;
 
   public TracingRCountDownLatch(RCountDownLatch latch, TracingHelper tracingHelper) {
+    this(latch, null, tracingHelper);
+  }
+
+  /**
+   * @param releasers list shared by all nodes in which <code>countDown</code> calls publish their
+   * span context, see {@link TracingConfiguration.Builder#latchReleaserLinks(int)}
+   */
+  public TracingRCountDownLatch(RCountDownLatch latch, RList<Map<String, String>> releasers,
+      TracingHelper tracingHelper) {
     super(latch, tracingHelper);
     this.latch = latch;
+    this.releasers = releasers;
     this.tracingHelper = tracingHelper;
   }
 
+  static String releasersName(String latchName) {
+    if (latchName.contains("{")) {
+      return "redisson_latch_releasers:" + latchName;
+    }
+    return "redisson_latch_releasers:{" + latchName + "}";
+  }
+
   @Override
   public void await() throws InterruptedException {
     Span span = tracingHelper.buildSpan("await", latch);
+    if (releasers != null) {
+      awaitWithReleasers(span, () -> {
+        latch.await();
+        return true;
+      });
+      return;
+    }
     tracingHelper.decorateThrowing(span, () -> latch.await());
   }
 
@@ -41,13 +75,19 @@ public class TracingRCountDownLatch extends TracingRObject implements RCountDown
     Span span = tracingHelper.buildSpan("await", latch);
     span.setTag("timeout", timeout);
     span.setTag("unit", nullable(unit));
+    if (releasers != null) {
+      return awaitWithReleasers(span, () -> latch.await(timeout, unit));
+    }
     return tracingHelper.decorateThrowing(span, () -> latch.await(timeout, unit));
   }
 
   @Override
   public void countDown() {
     Span span = tracingHelper.buildSpan("countDown", latch);
-    tracingHelper.decorate(span, latch::countDown);
+    tracingHelper.decorate(span, () -> {
+      latch.countDown();
+      publishReleaser(span);
+    });
   }
 
   @Override
@@ -60,13 +100,24 @@ public class TracingRCountDownLatch extends TracingRObject implements RCountDown
   public boolean trySetCount(long count) {
     Span span = tracingHelper.buildSpan("trySetCount", latch);
     span.setTag("count", count);
-    return tracingHelper.decorateThrowing(span, () -> latch.trySetCount(count));
+    return tracingHelper.decorateThrowing(span, () -> {
+      boolean set = latch.trySetCount(count);
+      if (set && releasers != null) {
+        // New latch generation, releasers of the previous one must not be linked
+        releasers.deleteAsync();
+      }
+      return set;
+    });
   }
 
   @Override
   public RFuture<Void> countDownAsync() {
     Span span = tracingHelper.buildSpan("countDownAsync", latch);
-    return tracingHelper.prepareRFuture(span, latch::countDownAsync);
+    return tracingHelper.prepareRFuture(span, latch::countDownAsync, (ignore, throwable) -> {
+      if (throwable == null) {
+        publishReleaser(span);
+      }
+    });
   }
 
   @Override
@@ -81,4 +132,78 @@ public class TracingRCountDownLatch extends TracingRObject implements RCountDown
     return tracingHelper.prepareRFuture(span, () -> latch.trySetCountAsync(count));
   }
 
+  private void publishReleaser(Span span) {
+    if (releasers == null) {
+      return;
+    }
+    Map<String, String> releaser = new HashMap<>(tracingHelper.inject(span));
+    releaser.put(TIMESTAMP_KEY, String.valueOf(System.currentTimeMillis()));
+    int links = tracingHelper.getConfiguration().getLatchReleaserLinks();
+    releasers.addAsync(releaser).whenComplete((added, throwable) -> {
+      if (throwable == null) {
+        releasers.trimAsync(-links, -1);
+        releasers.expireAsync(RELEASERS_TIME_TO_LIVE_HOURS, TimeUnit.HOURS);
+      }
+    });
+  }
+
+  private boolean awaitWithReleasers(Span span,
+      ThrowingSupplier<InterruptedException, Boolean> await) throws InterruptedException {
+    long startMicros = TracingHelper.nowMicros();
+    long[] wokeAt = new long[1];
+    boolean released = tracingHelper.decorateThrowing(span, () -> {
+      boolean result = await.get();
+      wokeAt[0] = TracingHelper.nowMicros();
+      return result;
+    });
+    if (released) {
+      // Read once the await span is finished, the round trip is neither waiting nor wake-up delay
+      linkReleasers(span, startMicros, wokeAt[0]);
+    }
+    return released;
+  }
+
+  /**
+   * Traces the release of an await as a child span following from the <code>countDown</code>
+   * calls that released it, lasting from the last one to the wake-up.
+   */
+  private void linkReleasers(Span span, long startMicros, long wokeAtMicros) {
+    List<Map<String, String>> entries;
+    try {
+      entries = releasers.readAll();
+    } catch (RuntimeException ignore) {
+      // Links are best effort and must not fail the await itself
+      return;
+    }
+
+    List<SpanContext> contexts = new ArrayList<>(entries.size());
+    long lastReleasedAt = -1;
+    for (Map<String, String> entry : entries) {
+      SpanContext context = tracingHelper.extract(entry);
+      if (context != null) {
+        contexts.add(context);
+      }
+      try {
+        lastReleasedAt = Math.max(lastReleasedAt, Long.parseLong(entry.get(TIMESTAMP_KEY)));
+      } catch (NumberFormatException ignore) {
+        // Missing or written by something else, the link is kept without a timestamp
+      }
+    }
+
+    // Releasers stamp the wall clock of their own process, in milliseconds
+    long lastReleasedAtMicros = TimeUnit.MILLISECONDS.toMicros(lastReleasedAt);
+    long releasedAt =
+        lastReleasedAt > 0 ? Math.max(lastReleasedAtMicros, startMicros) : wokeAtMicros;
+    Span released = tracingHelper.buildLinkSpan("released", span,
+        Math.min(releasedAt, wokeAtMicros), contexts);
+    released.setTag("latch.releasers", contexts.size());
+    if (lastReleasedAt > 0) {
+      long wakeupDelay =
+          Math.max(0, TimeUnit.MICROSECONDS.toMillis(wokeAtMicros - lastReleasedAtMicros));
+      released.setTag(LATCH_WAKEUP_DELAY_MS, wakeupDelay);
+      tracingHelper.getMetrics().histogram(LATCH_WAKEUP_DELAY_MS, latch.getName())
+          .record(wakeupDelay);
+    }
+    released.finish(wokeAtMicros);
+  }
 }
@@ -16,26 +16,39 @@ package io.opentracing.contrib.redisson;
 import static io.opentracing.contrib.redisson.TracingHelper.nullable;
 
 import io.opentracing.Span;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import org.redisson.api.RFuture;
 import org.redisson.api.RKeys;
 import org.redisson.api.RObject;
 import org.redisson.api.RType;
+import org.redisson.connection.ConnectionManager;
 
 public class TracingRKeys implements RKeys {
+  private static final int DELETE_BATCH_SIZE = 100;
   private final RKeys keys;
   private final TracingHelper tracingHelper;
+  private final NodeBroadcast broadcast;
+  private final ConnectionManager connectionManager;
 
   public TracingRKeys(RKeys keys, TracingHelper tracingHelper) {
     this.keys = keys;
     this.tracingHelper = tracingHelper;
+    this.broadcast = tracingHelper.getNodeBroadcast();
+    this.connectionManager = tracingHelper.getConnectionManager();
   }
 
   @Override
   public boolean move(String name, int database) {
-    Span span = tracingHelper.buildSpan("move");
+    Span span = tracingHelper.buildSpan("move", keys);
     span.setTag("name", nullable(name));
     span.setTag("database", database);
     return tracingHelper.decorate(span, () -> keys.move(name, database));
@@ -43,7 +56,7 @@ public class TracingRKeys implements RKeys {
 
   @Override
   public void migrate(String name, String host, int port, int database, long timeout) {
-    Span span = tracingHelper.buildSpan("migrate");
+    Span span = tracingHelper.buildSpan("migrate", keys);
     span.setTag("name", nullable(name));
     span.setTag("host", nullable(host));
     span.setTag("port", port);
@@ -54,7 +67,7 @@ public class TracingRKeys implements RKeys {
 
   @Override
   public void copy(String name, String host, int port, int database, long timeout) {
-    Span span = tracingHelper.buildSpan("copy");
+    Span span = tracingHelper.buildSpan("copy", keys);
     span.setTag("name", nullable(name));
     span.setTag("host", nullable(host));
     span.setTag("port", port);
@@ -65,7 +78,7 @@ public class TracingRKeys implements RKeys {
 
   @Override
   public boolean expire(String name, long timeToLive, TimeUnit timeUnit) {
-    Span span = tracingHelper.buildSpan("expire");
+    Span span = tracingHelper.buildSpan("expire", keys);
     span.setTag("name", nullable(name));
     span.setTag("timeToLive", timeToLive);
     span.setTag("timeUnit", nullable(timeUnit));
@@ -74,7 +87,7 @@ public class TracingRKeys implements RKeys {
 
   @Override
   public boolean expireAt(String name, long timestamp) {
-    Span span = tracingHelper.buildSpan("expireAt");
+    Span span = tracingHelper.buildSpan("expireAt", keys);
     span.setTag("name", nullable(name));
     span.setTag("timestamp", timestamp);
     return tracingHelper.decorate(span, () -> keys.expireAt(name, timestamp));
@@ -82,14 +95,14 @@ public class TracingRKeys implements RKeys {
 
   @Override
   public boolean clearExpire(String name) {
-    Span span = tracingHelper.buildSpan("clearExpire");
+    Span span = tracingHelper.buildSpan("clearExpire", keys);
     span.setTag("name", nullable(name));
     return tracingHelper.decorate(span, () -> keys.clearExpire(name));
   }
 
   @Override
   public boolean renamenx(String oldName, String newName) {
-    Span span = tracingHelper.buildSpan("renamenx");
+    Span span = tracingHelper.buildSpan("renamenx", keys);
     span.setTag("oldName", nullable(oldName));
     span.setTag("newName", nullable(newName));
     return tracingHelper.decorate(span, () -> keys.renamenx(oldName, newName));
@@ -97,7 +110,7 @@ public class TracingRKeys implements RKeys {
 
   @Override
   public void rename(String currentName, String newName) {
-    Span span = tracingHelper.buildSpan("rename");
+    Span span = tracingHelper.buildSpan("rename", keys);
     span.setTag("currentName", nullable(currentName));
     span.setTag("newName", nullable(newName));
     tracingHelper.decorate(span, () -> keys.rename(currentName, newName));
@@ -105,142 +118,196 @@ public class TracingRKeys implements RKeys {
 
   @Override
   public long remainTimeToLive(String name) {
-    Span span = tracingHelper.buildSpan("remainTimeToLive");
+    Span span = tracingHelper.buildSpan("remainTimeToLive", keys);
     span.setTag("name", nullable(name));
     return tracingHelper.decorate(span, () -> keys.remainTimeToLive(name));
   }
 
   @Override
   public long touch(String... names) {
-    Span span = tracingHelper.buildSpan("touch");
+    Span span = tracingHelper.buildSpan("touch", keys);
     span.setTag("names", Arrays.toString(names));
     return tracingHelper.decorate(span, () -> keys.touch(names));
   }
 
   @Override
   public long countExists(String... names) {
-    Span span = tracingHelper.buildSpan("countExists");
+    Span span = tracingHelper.buildSpan("countExists", keys);
     span.setTag("names", Arrays.toString(names));
     return tracingHelper.decorate(span, () -> keys.countExists(names));
   }
 
   @Override
   public RType getType(String key) {
-    Span span = tracingHelper.buildSpan("getType");
+    Span span = tracingHelper.buildSpan("getType", keys);
     span.setTag("key", nullable(key));
     return tracingHelper.decorate(span, () -> keys.getType(key));
   }
 
   @Override
   public int getSlot(String key) {
-    Span span = tracingHelper.buildSpan("getSlot");
+    Span span = tracingHelper.buildSpan("getSlot", keys);
     span.setTag("key", nullable(key));
     return tracingHelper.decorate(span, () -> keys.getSlot(key));
   }
 
   @Override
   public Iterable<String> getKeysByPattern(String pattern) {
-    Span span = tracingHelper.buildSpan("getKeysByPattern");
-    span.setTag("pattern", nullable(pattern));
-    return tracingHelper.decorate(span, () -> keys.getKeysByPattern(pattern));
+    return iterable(pattern, PagedIterators.SCAN_COUNT, () -> {
+      Span span = tracingHelper.buildIterationSpan("getKeysByPattern");
+      span.setTag("pattern", nullable(pattern));
+      return span;
+    }, () -> keys.getKeysByPattern(pattern).iterator());
   }
 
   @Override
   public Iterable<String> getKeysByPattern(String pattern, int count) {
-    Span span = tracingHelper.buildSpan("getKeysByPattern");
-    span.setTag("pattern", nullable(pattern));
-    span.setTag("count", count);
-    return tracingHelper.decorate(span, () -> keys.getKeysByPattern(pattern, count));
+    return iterable(pattern, count, () -> {
+      Span span = tracingHelper.buildIterationSpan("getKeysByPattern");
+      span.setTag("pattern", nullable(pattern));
+      span.setTag("count", count);
+      return span;
+    }, () -> keys.getKeysByPattern(pattern, count).iterator());
   }
 
   @Override
   public Iterable<String> getKeys() {
-    Span span = tracingHelper.buildSpan("getKeys");
-    return tracingHelper.decorate(span, () -> keys.getKeys());
+    return iterable(null, PagedIterators.SCAN_COUNT,
+        () -> tracingHelper.buildIterationSpan("getKeys"), () -> keys.getKeys().iterator());
   }
 
   @Override
   public Iterable<String> getKeys(int count) {
-    Span span = tracingHelper.buildSpan("getKeys");
-    span.setTag("count", count);
-    return tracingHelper.decorate(span, () -> keys.getKeys(count));
+    return iterable(null, count, () -> {
+      Span span = tracingHelper.buildIterationSpan("getKeys");
+      span.setTag("count", count);
+      return span;
+    }, () -> keys.getKeys(count).iterator());
+  }
+
+  /**
+   * Iterable whose iterations are traced with their SCAN pages, if the keys are Redisson's.
+   */
+  private Iterable<String> iterable(String pattern, int count, Supplier<Span> spanSupplier,
+      Supplier<Iterator<String>> delegate) {
+    return () -> tracingHelper.iterate(spanSupplier.get(),
+        pages -> PagedIterators.keys(keys, connectionManager, pattern, count, pages), delegate);
   }
 
   @Override
   public String randomKey() {
-    Span span = tracingHelper.buildSpan("randomKey");
+    Span span = tracingHelper.buildSpan("randomKey", keys);
     return tracingHelper.decorate(span, keys::randomKey);
   }
 
   @Override
   @Deprecated
   public Collection<String> findKeysByPattern(String pattern) {
-    Span span = tracingHelper.buildSpan("findKeysByPattern");
+    Span span = tracingHelper.buildSpan("findKeysByPattern", keys);
     span.setTag("pattern", nullable(pattern));
-    return tracingHelper.decorate(span, () -> keys.findKeysByPattern(pattern));
+    return broadcast(span, () -> keys.findKeysByPattern(pattern), b -> b.keys(span, pattern));
   }
 
   @Override
   public long deleteByPattern(String pattern) {
-    Span span = tracingHelper.buildSpan("deleteByPattern");
+    Span span = tracingHelper.buildSpan("deleteByPattern", keys);
     span.setTag("pattern", nullable(pattern));
-    return tracingHelper.decorate(span, () -> keys.deleteByPattern(pattern));
+    TracingIterator.Pages pages = new TracingIterator.Pages();
+    Iterator<String> scan =
+        PagedIterators.keys(keys, connectionManager, pattern, DELETE_BATCH_SIZE, pages);
+    if (scan == null) {
+      return tracingHelper.decorate(span, () -> keys.deleteByPattern(pattern));
+    }
+    return tracingHelper.decorate(span, () -> {
+      long deleted = delete(span, scan);
+      pages.tag(span);
+      return deleted;
+    });
+  }
+
+  /**
+   * Deletes the scanned keys in batches, as Redisson does, logging the progress after each batch.
+   */
+  private long delete(Span span, Iterator<String> scan) {
+    List<String> batch = new ArrayList<>(DELETE_BATCH_SIZE);
+    long scanned = 0;
+    long deleted = 0;
+    while (scan.hasNext()) {
+      batch.add(scan.next());
+      scanned++;
+      if (batch.size() == DELETE_BATCH_SIZE || !scan.hasNext()) {
+        deleted += keys.delete(batch.toArray(new String[0]));
+        batch.clear();
+        Map<String, Object> fields = new HashMap<>(3);
+        fields.put("event", "progress");
+        fields.put("scanned", scanned);
+        fields.put("deleted", deleted);
+        span.log(fields);
+      }
+    }
+    return deleted;
   }
 
   @Override
   public long delete(RObject... objects) {
-    Span span = tracingHelper.buildSpan("delete");
+    Span span = tracingHelper.buildSpan("delete", keys);
     span.setTag("objects", Arrays.toString(objects));
     return tracingHelper.decorate(span, () -> keys.delete(objects));
   }
 
   @Override
   public long delete(String... keys) {
-    Span span = tracingHelper.buildSpan("delete");
+    Span span = tracingHelper.buildSpan("delete", keys);
     span.setTag("keys", Arrays.toString(keys));
     return tracingHelper.decorate(span, () -> this.keys.delete(keys));
   }
 
   @Override
   public long unlink(String... keys) {
-    Span span = tracingHelper.buildSpan("unlink");
+    Span span = tracingHelper.buildSpan("unlink", keys);
     span.setTag("keys", Arrays.toString(keys));
     return tracingHelper.decorate(span, () -> this.keys.unlink(keys));
   }
 
   @Override
   public long count() {
-    Span span = tracingHelper.buildSpan("count");
-    return tracingHelper.decorate(span, keys::count);
+    Span span = tracingHelper.buildSpan("count", keys);
+    return broadcast(span, keys::count, b -> b.count(span));
   }
 
   @Override
   public void flushdb() {
-    Span span = tracingHelper.buildSpan("flushdb");
+    Span span = tracingHelper.buildSpan("flushdb", keys);
     tracingHelper.decorate(span, keys::flushdb);
   }
 
   @Override
   public void flushdbParallel() {
-    Span span = tracingHelper.buildSpan("flushdbParallel");
-    tracingHelper.decorate(span, keys::flushdbParallel);
+    Span span = tracingHelper.buildSpan("flushdbParallel", keys);
+    broadcast(span, () -> {
+      keys.flushdbParallel();
+      return null;
+    }, b -> b.flushdb(span));
   }
 
   @Override
   public void flushall() {
-    Span span = tracingHelper.buildSpan("flushall");
+    Span span = tracingHelper.buildSpan("flushall", keys);
     tracingHelper.decorate(span, keys::flushall);
   }
 
   @Override
   public void flushallParallel() {
-    Span span = tracingHelper.buildSpan("flushallParallel");
-    tracingHelper.decorate(span, keys::flushallParallel);
+    Span span = tracingHelper.buildSpan("flushallParallel", keys);
+    broadcast(span, () -> {
+      keys.flushallParallel();
+      return null;
+    }, b -> b.flushall(span));
   }
 
   @Override
   public RFuture<Boolean> moveAsync(String name, int database) {
-    Span span = tracingHelper.buildSpan("moveAsync");
+    Span span = tracingHelper.buildSpan("moveAsync", keys);
     span.setTag("name", nullable(name));
     span.setTag("database", database);
     return tracingHelper.prepareRFuture(span, () -> keys.moveAsync(name, database));
@@ -249,7 +316,7 @@ public class TracingRKeys implements RKeys {
   @Override
   public RFuture<Void> migrateAsync(String name, String host, int port, int database,
       long timeout) {
-    Span span = tracingHelper.buildSpan("migrateAsync");
+    Span span = tracingHelper.buildSpan("migrateAsync", keys);
     span.setTag("name", nullable(name));
     span.setTag("host", nullable(host));
     span.setTag("port", port);
@@ -261,7 +328,7 @@ public class TracingRKeys implements RKeys {
 
   @Override
   public RFuture<Void> copyAsync(String name, String host, int port, int database, long timeout) {
-    Span span = tracingHelper.buildSpan("copyAsync");
+    Span span = tracingHelper.buildSpan("copyAsync", keys);
     span.setTag("name", nullable(name));
     span.setTag("host", nullable(host));
     span.setTag("port", port);
@@ -273,7 +340,7 @@ public class TracingRKeys implements RKeys {
 
   @Override
   public RFuture<Boolean> expireAsync(String name, long timeToLive, TimeUnit timeUnit) {
-    Span span = tracingHelper.buildSpan("expireAsync");
+    Span span = tracingHelper.buildSpan("expireAsync", keys);
     span.setTag("name", nullable(name));
     span.setTag("timeToLive", timeToLive);
     span.setTag("timeUnit", nullable(timeUnit));
@@ -282,7 +349,7 @@ public class TracingRKeys implements RKeys {
 
   @Override
   public RFuture<Boolean> expireAtAsync(String name, long timestamp) {
-    Span span = tracingHelper.buildSpan("expireAtAsync");
+    Span span = tracingHelper.buildSpan("expireAtAsync", keys);
     span.setTag("name", nullable(name));
     span.setTag("timestamp", timestamp);
     return tracingHelper.prepareRFuture(span, () -> keys.expireAtAsync(name, timestamp));
@@ -290,14 +357,14 @@ public class TracingRKeys implements RKeys {
 
   @Override
   public RFuture<Boolean> clearExpireAsync(String name) {
-    Span span = tracingHelper.buildSpan("clearExpireAsync");
+    Span span = tracingHelper.buildSpan("clearExpireAsync", keys);
     span.setTag("name", nullable(name));
     return tracingHelper.prepareRFuture(span, () -> keys.clearExpireAsync(name));
   }
 
   @Override
   public RFuture<Boolean> renamenxAsync(String oldName, String newName) {
-    Span span = tracingHelper.buildSpan("renamenxAsync");
+    Span span = tracingHelper.buildSpan("renamenxAsync", keys);
     span.setTag("oldName", nullable(oldName));
     span.setTag("newName", nullable(newName));
     return tracingHelper.prepareRFuture(span, () -> keys.renamenxAsync(oldName, newName));
@@ -305,7 +372,7 @@ public class TracingRKeys implements RKeys {
 
   @Override
   public RFuture<Void> renameAsync(String currentName, String newName) {
-    Span span = tracingHelper.buildSpan("renameAsync");
+    Span span = tracingHelper.buildSpan("renameAsync", keys);
     span.setTag("currentName", nullable(currentName));
     span.setTag("newName", nullable(newName));
     return tracingHelper.prepareRFuture(span, () -> keys.renameAsync(currentName, newName));
@@ -313,109 +380,129 @@ public class TracingRKeys implements RKeys {
 
   @Override
   public RFuture<Long> remainTimeToLiveAsync(String name) {
-    Span span = tracingHelper.buildSpan("remainTimeToLiveAsync");
+    Span span = tracingHelper.buildSpan("remainTimeToLiveAsync", keys);
     span.setTag("name", nullable(name));
     return tracingHelper.prepareRFuture(span, () -> keys.remainTimeToLiveAsync(name));
   }
 
   @Override
   public RFuture<Long> touchAsync(String... names) {
-    Span span = tracingHelper.buildSpan("touchAsync");
+    Span span = tracingHelper.buildSpan("touchAsync", keys);
     span.setTag("names", Arrays.toString(names));
     return tracingHelper.prepareRFuture(span, () -> keys.touchAsync(names));
   }
 
   @Override
   public RFuture<Long> countExistsAsync(String... names) {
-    Span span = tracingHelper.buildSpan("countExistsAsync");
+    Span span = tracingHelper.buildSpan("countExistsAsync", keys);
     span.setTag("names", Arrays.toString(names));
     return tracingHelper.prepareRFuture(span, () -> keys.countExistsAsync(names));
   }
 
   @Override
   public RFuture<RType> getTypeAsync(String key) {
-    Span span = tracingHelper.buildSpan("getTypeAsync");
+    Span span = tracingHelper.buildSpan("getTypeAsync", keys);
     span.setTag("key", nullable(key));
     return tracingHelper.prepareRFuture(span, () -> keys.getTypeAsync(key));
   }
 
   @Override
   public RFuture<Integer> getSlotAsync(String key) {
-    Span span = tracingHelper.buildSpan("getSlotAsync");
+    Span span = tracingHelper.buildSpan("getSlotAsync", keys);
     span.setTag("key", nullable(key));
     return tracingHelper.prepareRFuture(span, () -> keys.getSlotAsync(key));
   }
 
   @Override
   public RFuture<String> randomKeyAsync() {
-    Span span = tracingHelper.buildSpan("randomKeyAsync");
+    Span span = tracingHelper.buildSpan("randomKeyAsync", keys);
     return tracingHelper.prepareRFuture(span, keys::randomKeyAsync);
   }
 
   @Override
   @Deprecated
   public RFuture<Collection<String>> findKeysByPatternAsync(String pattern) {
-    Span span = tracingHelper.buildSpan("findKeysByPatternAsync");
+    Span span = tracingHelper.buildSpan("findKeysByPatternAsync", keys);
     span.setTag("pattern", nullable(pattern));
-    return tracingHelper.prepareRFuture(span, () -> keys.findKeysByPatternAsync(pattern));
+    return broadcastAsync(span, () -> keys.findKeysByPatternAsync(pattern),
+        b -> b.keys(span, pattern));
   }
 
   @Override
   public RFuture<Long> deleteByPatternAsync(String pattern) {
-    Span span = tracingHelper.buildSpan("deleteByPatternAsync");
+    Span span = tracingHelper.buildSpan("deleteByPatternAsync", keys);
     span.setTag("pattern", nullable(pattern));
     return tracingHelper.prepareRFuture(span, () -> keys.deleteByPatternAsync(pattern));
   }
 
   @Override
   public RFuture<Long> deleteAsync(RObject... objects) {
-    Span span = tracingHelper.buildSpan("deleteAsync");
+    Span span = tracingHelper.buildSpan("deleteAsync", keys);
     span.setTag("objects", Arrays.toString(objects));
     return tracingHelper.prepareRFuture(span, () -> keys.deleteAsync(objects));
   }
 
   @Override
   public RFuture<Long> deleteAsync(String... keys) {
-    Span span = tracingHelper.buildSpan("deleteAsync");
+    Span span = tracingHelper.buildSpan("deleteAsync", keys);
     span.setTag("keys", Arrays.toString(keys));
     return tracingHelper.prepareRFuture(span, () -> this.keys.deleteAsync(keys));
   }
 
   @Override
   public RFuture<Long> unlinkAsync(String... keys) {
-    Span span = tracingHelper.buildSpan("unlinkAsync");
+    Span span = tracingHelper.buildSpan("unlinkAsync", keys);
     span.setTag("keys", Arrays.toString(keys));
     return tracingHelper.prepareRFuture(span, () -> this.keys.unlinkAsync(keys));
   }
 
   @Override
   public RFuture<Long> countAsync() {
-    Span span = tracingHelper.buildSpan("countAsync");
-    return tracingHelper.prepareRFuture(span, keys::countAsync);
+    Span span = tracingHelper.buildSpan("countAsync", keys);
+    return broadcastAsync(span, keys::countAsync, b -> b.count(span));
   }
 
   @Override
   public RFuture<Void> flushdbAsync() {
-    Span span = tracingHelper.buildSpan("flushdbAsync");
+    Span span = tracingHelper.buildSpan("flushdbAsync", keys);
     return tracingHelper.prepareRFuture(span, keys::flushdbAsync);
   }
 
   @Override
   public RFuture<Void> flushallAsync() {
-    Span span = tracingHelper.buildSpan("flushallAsync");
+    Span span = tracingHelper.buildSpan("flushallAsync", keys);
     return tracingHelper.prepareRFuture(span, keys::flushallAsync);
   }
 
   @Override
   public RFuture<Void> flushdbParallelAsync() {
-    Span span = tracingHelper.buildSpan("flushdbParallelAsync");
-    return tracingHelper.prepareRFuture(span, keys::flushdbParallelAsync);
+    Span span = tracingHelper.buildSpan("flushdbParallelAsync", keys);
+    return broadcastAsync(span, keys::flushdbParallelAsync, b -> b.flushdb(span));
   }
 
   @Override
   public RFuture<Void> flushallParallelAsync() {
-    Span span = tracingHelper.buildSpan("flushallParallelAsync");
-    return tracingHelper.prepareRFuture(span, keys::flushallParallelAsync);
+    Span span = tracingHelper.buildSpan("flushallParallelAsync", keys);
+    return broadcastAsync(span, keys::flushallParallelAsync, b -> b.flushall(span));
   }
 
+  /**
+   * Runs the command on each master separately if possible, waiting for all of them the way
+   * Redisson waits for its own broadcast.
+   */
+  private <V> V broadcast(Span span, Supplier<V> supplier,
+      Function<NodeBroadcast, RFuture<V>> perNode) {
+    if (broadcast == null) {
+      return tracingHelper.decorate(span, supplier);
+    }
+    return TracingHelper.await(tracingHelper.prepareRFuture(span, () -> perNode.apply(broadcast)));
+  }
+
+  private <V> RFuture<V> broadcastAsync(Span span, Supplier<RFuture<V>> futureSupplier,
+      Function<NodeBroadcast, RFuture<V>> perNode) {
+    if (broadcast == null) {
+      return tracingHelper.prepareRFuture(span, futureSupplier);
+    }
+    return tracingHelper.prepareRFuture(span, () -> perNode.apply(broadcast));
+  }
 }
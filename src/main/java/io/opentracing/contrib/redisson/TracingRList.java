@@ -24,10 +24,12 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.redisson.api.RFuture;
 import org.redisson.api.RList;
 import org.redisson.api.SortOrder;
@@ -87,7 +89,7 @@ public class TracingRList<V> extends TracingRExpirable implements RList<V> {
   @Override
   public List<V> readAll() {
     Span span = tracingHelper.buildSpan("readAll", list);
-    return tracingHelper.decorate(span, list::readAll);
+    return tracingHelper.decorateResult(span, list, list::readAll, list::readAllAsync);
   }
 
   @Override
@@ -134,7 +136,10 @@ public class TracingRList<V> extends TracingRExpirable implements RList<V> {
 
   @Override
   public Iterator<V> iterator() {
-    return list.iterator();
+    Span span = tracingHelper.buildIterationSpan("iterator", list);
+    boolean paged = tracingHelper.isPagedListIteration();
+    return tracingHelper.iterate(span, pages -> paged ? PagedIterators.list(list, pages) : null,
+        list::iterator);
   }
 
   @Override
@@ -283,7 +288,7 @@ public class TracingRList<V> extends TracingRExpirable implements RList<V> {
 
   @Override
   public Spliterator<V> spliterator() {
-    return list.spliterator();
+    return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED);
   }
 
   @Override
@@ -295,12 +300,12 @@ public class TracingRList<V> extends TracingRExpirable implements RList<V> {
 
   @Override
   public Stream<V> stream() {
-    return list.stream();
+    return StreamSupport.stream(spliterator(), false);
   }
 
   @Override
   public Stream<V> parallelStream() {
-    return list.parallelStream();
+    return StreamSupport.stream(spliterator(), true);
   }
 
   @Override
@@ -388,7 +393,7 @@ public class TracingRList<V> extends TracingRExpirable implements RList<V> {
   @Override
   public RFuture<List<V>> readAllAsync() {
     Span span = tracingHelper.buildSpan("readAllAsync", list);
-    return tracingHelper.prepareRFuture(span, list::readAllAsync);
+    return tracingHelper.prepareResult(span, list, list::readAllAsync);
   }
 
   @Override
@@ -13,19 +13,188 @@
  */
 package io.opentracing.contrib.redisson;
 
+import static io.opentracing.contrib.redisson.TracingHelper.collectionToString;
+import static io.opentracing.contrib.redisson.TracingHelper.nullable;
+
 import io.opentracing.Span;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import org.redisson.RedissonLocalCachedMap;
 import org.redisson.api.RFuture;
 import org.redisson.api.RLocalCachedMap;
 
 public class TracingRLocalCachedMap<K, V> extends TracingRMap<K, V> implements
     RLocalCachedMap<K, V> {
+  static final String LOCAL_CACHE_HITS = "local_cache.hits";
+  static final String LOCAL_CACHE_MISSES = "local_cache.misses";
+  private static final Field CACHE = cacheField();
   private final RLocalCachedMap<K, V> map;
   private final TracingHelper tracingHelper;
+  private final LongAdder hits;
+  private final LongAdder misses;
+  private final LocalCacheInvalidationTracker invalidationTracker;
+  private final Map<?, ?> localCache;
 
   public TracingRLocalCachedMap(RLocalCachedMap<K, V> map, TracingHelper tracingHelper) {
     super(map, tracingHelper);
     this.map = map;
     this.tracingHelper = tracingHelper;
+    this.hits = tracingHelper.getMetrics().counter(LOCAL_CACHE_HITS, map.getName());
+    this.misses = tracingHelper.getMetrics().counter(LOCAL_CACHE_MISSES, map.getName());
+    this.invalidationTracker = tracingHelper.getLocalCacheInvalidationTracker();
+    this.localCache = localCache(map);
+    if (invalidationTracker != null) {
+      invalidationTracker.register(map);
+    }
+  }
+
+  @Override
+  public V get(Object key) {
+    if (isLocalHit(key)) {
+      onLocalHit(key);
+      return map.get(key);
+    }
+    Span span = tracingHelper.buildSpan("get", map);
+    span.setTag("key", nullable(key));
+    return tracingHelper.decorate(span, () -> map.get(key));
+  }
+
+  @Override
+  public RFuture<V> getAsync(K key) {
+    if (isLocalHit(key)) {
+      onLocalHit(key);
+      return map.getAsync(key);
+    }
+    Span span = tracingHelper.buildSpan("getAsync", map);
+    span.setTag("key", nullable(key));
+    return tracingHelper.prepareRFuture(span, () -> map.getAsync(key));
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    if (isLocalHit(key)) {
+      onLocalHit(key);
+      return map.containsKey(key);
+    }
+    Span span = tracingHelper.buildSpan("containsKey", map);
+    span.setTag("key", nullable(key));
+    return tracingHelper.decorate(span, () -> map.containsKey(key));
+  }
+
+  @Override
+  public RFuture<Boolean> containsKeyAsync(Object key) {
+    if (isLocalHit(key)) {
+      onLocalHit(key);
+      return map.containsKeyAsync(key);
+    }
+    Span span = tracingHelper.buildSpan("containsKeyAsync", map);
+    span.setTag("key", nullable(key));
+    return tracingHelper.prepareRFuture(span, () -> map.containsKeyAsync(key));
+  }
+
+  @Override
+  public Map<K, V> getAll(Set<K> keys) {
+    if (isLocalHit(keys)) {
+      keys.forEach(this::onLocalHit);
+      return map.getAll(keys);
+    }
+    Span span = tracingHelper.buildSpan("getAll", map);
+    span.setTag("keys", collectionToString(keys));
+    return tracingHelper.decorate(span, () -> map.getAll(keys));
+  }
+
+  @Override
+  public RFuture<Map<K, V>> getAllAsync(Set<K> keys) {
+    if (isLocalHit(keys)) {
+      keys.forEach(this::onLocalHit);
+      return map.getAllAsync(keys);
+    }
+    Span span = tracingHelper.buildSpan("getAllAsync", map);
+    span.setTag("keys", collectionToString(keys));
+    return tracingHelper.prepareRFuture(span, () -> map.getAllAsync(keys));
+  }
+
+  @Override
+  public V put(K key, V value) {
+    onWrite(Collections.singleton(key));
+    return super.put(key, value);
+  }
+
+  @Override
+  public RFuture<V> putAsync(K key, V value) {
+    onWrite(Collections.singleton(key));
+    return super.putAsync(key, value);
+  }
+
+  @Override
+  public boolean fastPut(K key, V value) {
+    onWrite(Collections.singleton(key));
+    return super.fastPut(key, value);
+  }
+
+  @Override
+  public RFuture<Boolean> fastPutAsync(K key, V value) {
+    onWrite(Collections.singleton(key));
+    return super.fastPutAsync(key, value);
+  }
+
+  @Override
+  public V replace(K key, V value) {
+    onWrite(Collections.singleton(key));
+    return super.replace(key, value);
+  }
+
+  @Override
+  public RFuture<V> replaceAsync(K key, V value) {
+    onWrite(Collections.singleton(key));
+    return super.replaceAsync(key, value);
+  }
+
+  @Override
+  public boolean fastReplace(K key, V value) {
+    onWrite(Collections.singleton(key));
+    return super.fastReplace(key, value);
+  }
+
+  @Override
+  public V remove(Object key) {
+    onWrite(Collections.singleton(key));
+    return super.remove(key);
+  }
+
+  @Override
+  public RFuture<V> removeAsync(K key) {
+    onWrite(Collections.singleton(key));
+    return super.removeAsync(key);
+  }
+
+  @Override
+  public long fastRemove(K... keys) {
+    onWrite(Arrays.asList(keys));
+    return super.fastRemove(keys);
+  }
+
+  @Override
+  public RFuture<Long> fastRemoveAsync(K... keys) {
+    onWrite(Arrays.asList(keys));
+    return super.fastRemoveAsync(keys);
+  }
+
+  @Override
+  public void putAll(Map<? extends K, ? extends V> map) {
+    onWrite(map.keySet());
+    super.putAll(map);
+  }
+
+  @Override
+  public RFuture<Void> putAllAsync(Map<? extends K, ? extends V> map) {
+    onWrite(map.keySet());
+    return super.putAllAsync(map);
   }
 
   @Override
@@ -50,5 +219,72 @@ public class TracingRLocalCachedMap<K, V> extends TracingRMap<K, V> implements
   public void destroy() {
     Span span = tracingHelper.buildSpan("destroy", map);
     tracingHelper.decorate(span, map::destroy);
+    if (invalidationTracker != null) {
+      invalidationTracker.unregister(map);
+    }
+  }
+
+  /**
+   * Lookups served from the local cache complete before they return, anything else went to
+   * Redis. A <code>getAll</code> counts as a hit only if every key was cached.
+   */
+  private boolean isLocalHit(Object key) {
+    if (key != null && isCached(key)) {
+      hits.increment();
+      return true;
+    }
+    misses.increment();
+    return false;
+  }
+
+  private boolean isLocalHit(Collection<?> keys) {
+    for (Object key : keys) {
+      if (key == null || !isCached(key)) {
+        misses.increment();
+        return false;
+      }
+    }
+    hits.increment();
+    return true;
+  }
+
+  private boolean isCached(Object key) {
+    // Same lookup Redisson does before deciding whether to send a command
+    return localCache != null
+        && localCache.containsKey(((RedissonLocalCachedMap<?, ?>) map).toCacheKey(key));
+  }
+
+  private static Map<?, ?> localCache(RLocalCachedMap<?, ?> map) {
+    if (!(map instanceof RedissonLocalCachedMap) || CACHE == null) {
+      return null;
+    }
+    try {
+      return (Map<?, ?>) CACHE.get(map);
+    } catch (IllegalAccessException e) {
+      return null;
+    }
+  }
+
+  private static Field cacheField() {
+    try {
+      // Redisson 3.9 has no public view of the local cache
+      Field field = RedissonLocalCachedMap.class.getDeclaredField("cache");
+      field.setAccessible(true);
+      return field;
+    } catch (NoSuchFieldException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  private void onLocalHit(Object key) {
+    if (invalidationTracker != null) {
+      invalidationTracker.onLocalHit(map, key);
+    }
+  }
+
+  private void onWrite(Collection<?> keys) {
+    if (invalidationTracker != null) {
+      invalidationTracker.onWrite(map, keys);
+    }
   }
 }
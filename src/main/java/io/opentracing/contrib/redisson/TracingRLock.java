@@ -18,17 +18,20 @@ import static io.opentracing.contrib.redisson.TracingHelper.nullable;
 import io.opentracing.Span;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
+import java.util.function.BiConsumer;
 import org.redisson.api.RFuture;
 import org.redisson.api.RLock;
 
 public class TracingRLock extends TracingRExpirable implements RLock {
   private final RLock lock;
   private final TracingHelper tracingHelper;
+  private final LockLeaseTracker leaseTracker;
 
   public TracingRLock(RLock lock, TracingHelper tracingHelper) {
     super(lock, tracingHelper);
     this.lock = lock;
     this.tracingHelper = tracingHelper;
+    this.leaseTracker = tracingHelper.getLockLeaseTracker();
   }
 
   @Override
@@ -36,7 +39,10 @@ public class TracingRLock extends TracingRExpirable implements RLock {
     Span span = tracingHelper.buildSpan("lockInterruptibly", lock);
     span.setTag("leaseTime", leaseTime);
     span.setTag("unit", nullable(unit));
-    tracingHelper.decorateThrowing(span, () -> lock.lockInterruptibly(leaseTime, unit));
+    tracingHelper.decorateThrowing(span, () -> {
+      lock.lockInterruptibly(leaseTime, unit);
+      onAcquired(leaseTime, unit);
+    });
   }
 
   @Override
@@ -44,7 +50,9 @@ public class TracingRLock extends TracingRExpirable implements RLock {
     Span span = tracingHelper.buildSpan("tryLock", lock);
     span.setTag("leaseTime", leaseTime);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.decorateThrowing(span, () -> lock.tryLock(waitTime, leaseTime, unit));
+    return tracingHelper
+        .decorateThrowing(span, () -> onAcquired(lock.tryLock(waitTime, leaseTime, unit),
+            leaseTime, unit));
   }
 
   @Override
@@ -52,13 +60,19 @@ public class TracingRLock extends TracingRExpirable implements RLock {
     Span span = tracingHelper.buildSpan("lock", lock);
     span.setTag("leaseTime", leaseTime);
     span.setTag("unit", nullable(unit));
-    tracingHelper.decorate(span, () -> lock.lock(leaseTime, unit));
+    tracingHelper.decorate(span, () -> {
+      lock.lock(leaseTime, unit);
+      onAcquired(leaseTime, unit);
+    });
   }
 
   @Override
   public boolean forceUnlock() {
     Span span = tracingHelper.buildSpan("forceUnlock", lock);
-    return tracingHelper.decorate(span, lock::forceUnlock);
+    return tracingHelper.decorate(span, () -> {
+      leaseTracker.onForceUnlocked(lock.getName());
+      return lock.forceUnlock();
+    });
   }
 
   @Override
@@ -82,19 +96,25 @@ public class TracingRLock extends TracingRExpirable implements RLock {
   @Override
   public void lock() {
     Span span = tracingHelper.buildSpan("lock", lock);
-    tracingHelper.decorate(span, () -> lock.lock());
+    tracingHelper.decorate(span, () -> {
+      lock.lock();
+      onAcquired(-1, null);
+    });
   }
 
   @Override
   public void lockInterruptibly() throws InterruptedException {
     Span span = tracingHelper.buildSpan("lockInterruptibly", lock);
-    tracingHelper.decorateThrowing(span, () -> lock.lockInterruptibly());
+    tracingHelper.decorateThrowing(span, () -> {
+      lock.lockInterruptibly();
+      onAcquired(-1, null);
+    });
   }
 
   @Override
   public boolean tryLock() {
     Span span = tracingHelper.buildSpan("tryLock", lock);
-    return tracingHelper.decorate(span, () -> lock.tryLock());
+    return tracingHelper.decorate(span, () -> onAcquired(lock.tryLock(), -1, null));
   }
 
   @Override
@@ -102,13 +122,15 @@ public class TracingRLock extends TracingRExpirable implements RLock {
     Span span = tracingHelper.buildSpan("tryLock", lock);
     span.setTag("time", time);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.decorateThrowing(span, () -> lock.tryLock(time, unit));
+    return tracingHelper
+        .decorateThrowing(span, () -> onAcquired(lock.tryLock(time, unit), -1, null));
   }
 
   @Override
   public void unlock() {
     Span span = tracingHelper.buildSpan("unlock", lock);
-    tracingHelper.decorate(span, lock::unlock);
+    tracingHelper.decorate(span,
+        () -> leaseTracker.release(span, lock, Thread.currentThread().getId(), lock::unlock));
   }
 
   @Override
@@ -120,12 +142,14 @@ public class TracingRLock extends TracingRExpirable implements RLock {
   @Override
   public RFuture<Boolean> forceUnlockAsync() {
     Span span = tracingHelper.buildSpan("forceUnlockAsync", lock);
+    leaseTracker.onForceUnlocked(lock.getName());
     return tracingHelper.prepareRFuture(span, lock::forceUnlockAsync);
   }
 
   @Override
   public RFuture<Void> unlockAsync() {
     Span span = tracingHelper.buildSpan("unlockAsync", lock);
+    leaseTracker.releaseAsync(span, lock, Thread.currentThread().getId());
     return tracingHelper.prepareRFuture(span, lock::unlockAsync);
   }
 
@@ -133,26 +157,31 @@ public class TracingRLock extends TracingRExpirable implements RLock {
   public RFuture<Void> unlockAsync(long threadId) {
     Span span = tracingHelper.buildSpan("unlockAsync", lock);
     span.setTag("threadId", threadId);
+    leaseTracker.releaseAsync(span, lock, threadId);
     return tracingHelper.prepareRFuture(span, () -> lock.unlockAsync(threadId));
   }
 
   @Override
   public RFuture<Boolean> tryLockAsync() {
     Span span = tracingHelper.buildSpan("tryLockAsync", lock);
-    return tracingHelper.prepareRFuture(span, lock::tryLockAsync);
+    long threadId = Thread.currentThread().getId();
+    return tracingHelper
+        .prepareRFuture(span, lock::tryLockAsync, whenAcquired(threadId, -1, null));
   }
 
   @Override
   public RFuture<Void> lockAsync() {
     Span span = tracingHelper.buildSpan("lockAsync", lock);
-    return tracingHelper.prepareRFuture(span, lock::lockAsync);
+    long threadId = Thread.currentThread().getId();
+    return tracingHelper.prepareRFuture(span, lock::lockAsync, whenAcquired(threadId, -1, null));
   }
 
   @Override
   public RFuture<Void> lockAsync(long threadId) {
     Span span = tracingHelper.buildSpan("lockAsync", lock);
     span.setTag("threadId", threadId);
-    return tracingHelper.prepareRFuture(span, () -> lock.lockAsync(threadId));
+    return tracingHelper
+        .prepareRFuture(span, () -> lock.lockAsync(threadId), whenAcquired(threadId, -1, null));
   }
 
   @Override
@@ -160,7 +189,9 @@ public class TracingRLock extends TracingRExpirable implements RLock {
     Span span = tracingHelper.buildSpan("lockAsync", lock);
     span.setTag("leaseTime", leaseTime);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.prepareRFuture(span, () -> lock.lockAsync(leaseTime, unit));
+    long threadId = Thread.currentThread().getId();
+    return tracingHelper.prepareRFuture(span, () -> lock.lockAsync(leaseTime, unit),
+        whenAcquired(threadId, leaseTime, unit));
   }
 
   @Override
@@ -170,14 +201,16 @@ public class TracingRLock extends TracingRExpirable implements RLock {
     span.setTag("leaseTime", leaseTime);
     span.setTag("unit", nullable(unit));
     span.setTag("threadId", threadId);
-    return tracingHelper.prepareRFuture(span, () -> lock.lockAsync(leaseTime, unit, threadId));
+    return tracingHelper.prepareRFuture(span, () -> lock.lockAsync(leaseTime, unit, threadId),
+        whenAcquired(threadId, leaseTime, unit));
   }
 
   @Override
   public RFuture<Boolean> tryLockAsync(long threadId) {
     Span span = tracingHelper.buildSpan("tryLockAsync", lock);
     span.setTag("threadId", threadId);
-    return tracingHelper.prepareRFuture(span, () -> lock.tryLockAsync(threadId));
+    return tracingHelper
+        .prepareRFuture(span, () -> lock.tryLockAsync(threadId), whenAcquired(threadId, -1, null));
   }
 
   @Override
@@ -185,7 +218,9 @@ public class TracingRLock extends TracingRExpirable implements RLock {
     Span span = tracingHelper.buildSpan("tryLockAsync", lock);
     span.setTag("waitTime", waitTime);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.prepareRFuture(span, () -> lock.tryLockAsync(waitTime, unit));
+    long threadId = Thread.currentThread().getId();
+    return tracingHelper.prepareRFuture(span, () -> lock.tryLockAsync(waitTime, unit),
+        whenAcquired(threadId, -1, null));
   }
 
   @Override
@@ -194,7 +229,9 @@ public class TracingRLock extends TracingRExpirable implements RLock {
     span.setTag("waitTime", waitTime);
     span.setTag("leaseTime", leaseTime);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.prepareRFuture(span, () -> lock.tryLockAsync(waitTime, leaseTime, unit));
+    long threadId = Thread.currentThread().getId();
+    return tracingHelper.prepareRFuture(span, () -> lock.tryLockAsync(waitTime, leaseTime, unit),
+        whenAcquired(threadId, leaseTime, unit));
   }
 
   @Override
@@ -205,8 +242,9 @@ public class TracingRLock extends TracingRExpirable implements RLock {
     span.setTag("leaseTime", leaseTime);
     span.setTag("unit", nullable(unit));
     span.setTag("threadId", threadId);
-    return tracingHelper
-        .prepareRFuture(span, () -> lock.tryLockAsync(waitTime, leaseTime, unit, threadId));
+    return tracingHelper.prepareRFuture(span,
+        () -> lock.tryLockAsync(waitTime, leaseTime, unit, threadId),
+        whenAcquired(threadId, leaseTime, unit));
   }
 
   @Override
@@ -214,4 +252,24 @@ public class TracingRLock extends TracingRExpirable implements RLock {
     Span span = tracingHelper.buildSpan("getHoldCountAsync", lock);
     return tracingHelper.prepareRFuture(span, lock::getHoldCountAsync);
   }
+
+  private void onAcquired(long leaseTime, TimeUnit unit) {
+    leaseTracker.onAcquired(lock.getName(), Thread.currentThread().getId(), leaseTime, unit);
+  }
+
+  private boolean onAcquired(boolean acquired, long leaseTime, TimeUnit unit) {
+    if (acquired) {
+      onAcquired(leaseTime, unit);
+    }
+    return acquired;
+  }
+
+  private BiConsumer<Object, Throwable> whenAcquired(long threadId, long leaseTime,
+      TimeUnit unit) {
+    return (acquired, throwable) -> {
+      if (throwable == null && !Boolean.FALSE.equals(acquired)) {
+        leaseTracker.onAcquired(lock.getName(), threadId, leaseTime, unit);
+      }
+    };
+  }
 }
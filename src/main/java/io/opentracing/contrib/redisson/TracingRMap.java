@@ -62,6 +62,7 @@ public class TracingRMap<K, V> extends TracingRExpirable implements RMap<K, V> {
   public V get(Object key) {
     Span span = tracingHelper.buildSpan("get", map);
     span.setTag("key", nullable(key));
+    tracingHelper.onKeyAccess(span, map.getName(), key);
     return tracingHelper.decorate(span, () -> map.get(key));
   }
 
@@ -70,6 +71,7 @@ public class TracingRMap<K, V> extends TracingRExpirable implements RMap<K, V> {
     Span span = tracingHelper.buildSpan("put", map);
     span.setTag("key", nullable(key));
     span.setTag("value", nullable(value));
+    tracingHelper.onKeyAccess(span, map.getName(), key);
     return tracingHelper.decorate(span, () -> map.put(key, value));
   }
 
@@ -162,7 +164,8 @@ public class TracingRMap<K, V> extends TracingRExpirable implements RMap<K, V> {
   public Map<K, V> getAll(Set<K> keys) {
     Span span = tracingHelper.buildSpan("getAll", map);
     span.setTag("keys", collectionToString(keys));
-    return tracingHelper.decorate(span, () -> map.getAll(keys));
+    return tracingHelper.decorateResult(span, map, () -> map.getAll(keys),
+        () -> map.getAllAsync(keys));
   }
 
   @Override
@@ -199,38 +202,38 @@ public class TracingRMap<K, V> extends TracingRExpirable implements RMap<K, V> {
   @Override
   public Set<K> readAllKeySet() {
     Span span = tracingHelper.buildSpan("readAllKeySet", map);
-    return tracingHelper.decorate(span, map::readAllKeySet);
+    return tracingHelper.decorateResult(span, map, map::readAllKeySet, map::readAllKeySetAsync);
   }
 
   @Override
   public Collection<V> readAllValues() {
     Span span = tracingHelper.buildSpan("readAllValues", map);
-    return tracingHelper.decorate(span, map::readAllValues);
+    return tracingHelper.decorateResult(span, map, map::readAllValues, map::readAllValuesAsync);
   }
 
   @Override
   public Set<Entry<K, V>> readAllEntrySet() {
     Span span = tracingHelper.buildSpan("readAllEntrySet", map);
-    return tracingHelper.decorate(span, map::readAllEntrySet);
+    return tracingHelper.decorateResult(span, map, map::readAllEntrySet, map::readAllEntrySetAsync);
   }
 
   @Override
   public Map<K, V> readAllMap() {
     Span span = tracingHelper.buildSpan("readAllMap", map);
-    return tracingHelper.decorate(span, map::readAllMap);
+    return tracingHelper.decorateResult(span, map, map::readAllMap, map::readAllMapAsync);
   }
 
   @Override
   public Set<K> keySet() {
     Span span = tracingHelper.buildSpan("keySet", map);
-    return tracingHelper.decorate(span, () -> map.keySet());
+    return keys(tracingHelper.decorate(span, () -> map.keySet()), null, null);
   }
 
   @Override
   public Set<K> keySet(int count) {
     Span span = tracingHelper.buildSpan("keySet", map);
     span.setTag("count", count);
-    return tracingHelper.decorate(span, () -> map.keySet(count));
+    return keys(tracingHelper.decorate(span, () -> map.keySet(count)), null, count);
   }
 
   @Override
@@ -238,27 +241,27 @@ public class TracingRMap<K, V> extends TracingRExpirable implements RMap<K, V> {
     Span span = tracingHelper.buildSpan("keySet", map);
     span.setTag("pattern", pattern);
     span.setTag("count", count);
-    return tracingHelper.decorate(span, () -> map.keySet(pattern, count));
+    return keys(tracingHelper.decorate(span, () -> map.keySet(pattern, count)), pattern, count);
   }
 
   @Override
   public Set<K> keySet(String pattern) {
     Span span = tracingHelper.buildSpan("keySet", map);
     span.setTag("pattern", pattern);
-    return tracingHelper.decorate(span, () -> map.keySet(pattern));
+    return keys(tracingHelper.decorate(span, () -> map.keySet(pattern)), pattern, null);
   }
 
   @Override
   public Collection<V> values() {
     Span span = tracingHelper.buildSpan("values", map);
-    return tracingHelper.decorate(span, () -> map.values());
+    return values(tracingHelper.decorate(span, () -> map.values()), null, null);
   }
 
   @Override
   public Collection<V> values(String keyPattern) {
     Span span = tracingHelper.buildSpan("values", map);
     span.setTag("keyPattern", keyPattern);
-    return tracingHelper.decorate(span, () -> map.values(keyPattern));
+    return values(tracingHelper.decorate(span, () -> map.values(keyPattern)), keyPattern, null);
   }
 
   @Override
@@ -266,27 +269,28 @@ public class TracingRMap<K, V> extends TracingRExpirable implements RMap<K, V> {
     Span span = tracingHelper.buildSpan("values", map);
     span.setTag("keyPattern", keyPattern);
     span.setTag("count", count);
-    return tracingHelper.decorate(span, () -> map.values(keyPattern, count));
+    return values(tracingHelper.decorate(span, () -> map.values(keyPattern, count)), keyPattern,
+        count);
   }
 
   @Override
   public Collection<V> values(int count) {
     Span span = tracingHelper.buildSpan("values", map);
     span.setTag("count", count);
-    return tracingHelper.decorate(span, () -> map.values(count));
+    return values(tracingHelper.decorate(span, () -> map.values(count)), null, count);
   }
 
   @Override
   public Set<Entry<K, V>> entrySet() {
     Span span = tracingHelper.buildSpan("entrySet", map);
-    return tracingHelper.decorate(span, () -> map.entrySet());
+    return entries(tracingHelper.decorate(span, () -> map.entrySet()), null, null);
   }
 
   @Override
   public Set<Entry<K, V>> entrySet(String keyPattern) {
     Span span = tracingHelper.buildSpan("entrySet", map);
     span.setTag("keyPattern", keyPattern);
-    return tracingHelper.decorate(span, () -> map.entrySet(keyPattern));
+    return entries(tracingHelper.decorate(span, () -> map.entrySet(keyPattern)), keyPattern, null);
   }
 
   @Override
@@ -294,14 +298,15 @@ public class TracingRMap<K, V> extends TracingRExpirable implements RMap<K, V> {
     Span span = tracingHelper.buildSpan("entrySet", map);
     span.setTag("keyPattern", keyPattern);
     span.setTag("count", count);
-    return tracingHelper.decorate(span, () -> map.entrySet(keyPattern, count));
+    return entries(tracingHelper.decorate(span, () -> map.entrySet(keyPattern, count)), keyPattern,
+        count);
   }
 
   @Override
   public Set<Entry<K, V>> entrySet(int count) {
     Span span = tracingHelper.buildSpan("entrySet", map);
     span.setTag("count", count);
-    return tracingHelper.decorate(span, () -> map.entrySet(count));
+    return entries(tracingHelper.decorate(span, () -> map.entrySet(count)), null, count);
   }
 
   @Override
@@ -438,7 +443,7 @@ public class TracingRMap<K, V> extends TracingRExpirable implements RMap<K, V> {
   public RFuture<Map<K, V>> getAllAsync(Set<K> keys) {
     Span span = tracingHelper.buildSpan("getAllAsync", map);
     span.setTag("keys", collectionToString(keys));
-    return tracingHelper.prepareRFuture(span, () -> map.getAllAsync(keys));
+    return tracingHelper.prepareResult(span, map, () -> map.getAllAsync(keys));
   }
 
   @Override
@@ -518,31 +523,32 @@ public class TracingRMap<K, V> extends TracingRExpirable implements RMap<K, V> {
   @Override
   public RFuture<Set<K>> readAllKeySetAsync() {
     Span span = tracingHelper.buildSpan("readAllKeySetAsync", map);
-    return tracingHelper.prepareRFuture(span, map::readAllKeySetAsync);
+    return tracingHelper.prepareResult(span, map, map::readAllKeySetAsync);
   }
 
   @Override
   public RFuture<Collection<V>> readAllValuesAsync() {
     Span span = tracingHelper.buildSpan("readAllValuesAsync", map);
-    return tracingHelper.prepareRFuture(span, map::readAllValuesAsync);
+    return tracingHelper.prepareResult(span, map, map::readAllValuesAsync);
   }
 
   @Override
   public RFuture<Set<Entry<K, V>>> readAllEntrySetAsync() {
     Span span = tracingHelper.buildSpan("readAllEntrySetAsync", map);
-    return tracingHelper.prepareRFuture(span, map::readAllEntrySetAsync);
+    return tracingHelper.prepareResult(span, map, map::readAllEntrySetAsync);
   }
 
   @Override
   public RFuture<Map<K, V>> readAllMapAsync() {
     Span span = tracingHelper.buildSpan("readAllMapAsync", map);
-    return tracingHelper.prepareRFuture(span, map::readAllMapAsync);
+    return tracingHelper.prepareResult(span, map, map::readAllMapAsync);
   }
 
   @Override
   public RFuture<V> getAsync(K key) {
     Span span = tracingHelper.buildSpan("getAsync", map);
     span.setTag("key", nullable(key));
+    tracingHelper.onKeyAccess(span, map.getName(), key);
     return tracingHelper.prepareRFuture(span, () -> map.getAsync(key));
   }
 
@@ -551,6 +557,7 @@ public class TracingRMap<K, V> extends TracingRExpirable implements RMap<K, V> {
     Span span = tracingHelper.buildSpan("putAsync", map);
     span.setTag("key", nullable(key));
     span.setTag("value", nullable(value));
+    tracingHelper.onKeyAccess(span, map.getName(), key);
     return tracingHelper.prepareRFuture(span, () -> map.putAsync(key, value));
   }
 
@@ -593,4 +600,39 @@ public class TracingRMap<K, V> extends TracingRExpirable implements RMap<K, V> {
     span.setTag("value", nullable(value));
     return tracingHelper.prepareRFuture(span, () -> map.putIfAbsentAsync(key, value));
   }
+
+  private Set<K> keys(Set<K> view, String pattern, Integer count) {
+    return TracingIterator.set(view, () -> tracingHelper.iterate(
+        buildIteratorSpan("keySet", pattern, count),
+        pages -> PagedIterators.mapKeys(map, pattern, scanCount(count), pages), view::iterator));
+  }
+
+  private Collection<V> values(Collection<V> view, String pattern, Integer count) {
+    return TracingIterator.collection(view, () -> tracingHelper.iterate(
+        buildIteratorSpan("values", pattern, count),
+        pages -> PagedIterators.mapValues(map, pattern, scanCount(count), pages), view::iterator));
+  }
+
+  private Set<Entry<K, V>> entries(Set<Entry<K, V>> view, String pattern, Integer count) {
+    return TracingIterator.set(view, () -> tracingHelper.iterate(
+        buildIteratorSpan("entrySet", pattern, count),
+        pages -> PagedIterators.mapEntries(map, pattern, scanCount(count), pages),
+        view::iterator));
+  }
+
+  private static int scanCount(Integer count) {
+    return count == null ? PagedIterators.SCAN_COUNT : count;
+  }
+
+  private Span buildIteratorSpan(String view, String pattern, Integer count) {
+    Span span = tracingHelper.buildIterationSpan("iterator", map);
+    span.setTag("view", view);
+    if (pattern != null) {
+      span.setTag("pattern", pattern);
+    }
+    if (count != null) {
+      span.setTag("count", count);
+    }
+    return span;
+  }
 }
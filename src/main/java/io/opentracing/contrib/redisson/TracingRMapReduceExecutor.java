@@ -34,40 +34,40 @@ public class TracingRMapReduceExecutor<VIn, KOut, VOut> implements
 
   @Override
   public Map<KOut, VOut> execute() {
-    Span span = tracingHelper.buildSpan("execute");
+    Span span = tracingHelper.buildSpan("execute", executor);
     return tracingHelper.decorate(span, () -> executor.execute());
   }
 
   @Override
   public RFuture<Map<KOut, VOut>> executeAsync() {
-    Span span = tracingHelper.buildSpan("executeAsync");
+    Span span = tracingHelper.buildSpan("executeAsync", executor);
     return tracingHelper.prepareRFuture(span, executor::executeAsync);
   }
 
   @Override
   public void execute(String resultMapName) {
-    Span span = tracingHelper.buildSpan("execute");
+    Span span = tracingHelper.buildSpan("execute", executor);
     span.setTag("resultMapName", nullable(resultMapName));
     tracingHelper.decorate(span, () -> executor.execute(resultMapName));
   }
 
   @Override
   public RFuture<Void> executeAsync(String resultMapName) {
-    Span span = tracingHelper.buildSpan("executeAsync");
+    Span span = tracingHelper.buildSpan("executeAsync", executor);
     span.setTag("resultMapName", nullable(resultMapName));
     return tracingHelper.prepareRFuture(span, () -> executor.executeAsync(resultMapName));
   }
 
   @Override
   public <R> R execute(RCollator<KOut, VOut, R> collator) {
-    Span span = tracingHelper.buildSpan("execute");
+    Span span = tracingHelper.buildSpan("execute", executor);
     span.setTag("collator", nullable(collator));
     return tracingHelper.decorate(span, () -> executor.execute(collator));
   }
 
   @Override
   public <R> RFuture<R> executeAsync(RCollator<KOut, VOut, R> collator) {
-    Span span = tracingHelper.buildSpan("executeAsync");
+    Span span = tracingHelper.buildSpan("executeAsync", executor);
     span.setTag("collator", nullable(collator));
     return tracingHelper.prepareRFuture(span, () -> executor.executeAsync(collator));
   }
@@ -141,7 +141,7 @@ public class TracingRObject implements RObject {
 
   @Override
   public Codec getCodec() {
-    return object.getCodec();
+    return TracingCodec.unwrap(object.getCodec());
   }
 
   @Override
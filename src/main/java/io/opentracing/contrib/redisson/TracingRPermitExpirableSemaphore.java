@@ -17,6 +17,7 @@ import static io.opentracing.contrib.redisson.TracingHelper.nullable;
 
 import io.opentracing.Span;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import org.redisson.api.RFuture;
 import org.redisson.api.RPermitExpirableSemaphore;
 
@@ -24,18 +25,22 @@ public class TracingRPermitExpirableSemaphore extends TracingRExpirable implemen
     RPermitExpirableSemaphore {
   private final RPermitExpirableSemaphore semaphore;
   private final TracingHelper tracingHelper;
+  private final SemaphorePermitTracker permitTracker;
 
   public TracingRPermitExpirableSemaphore(RPermitExpirableSemaphore semaphore,
       TracingHelper tracingHelper) {
     super(semaphore, tracingHelper);
     this.semaphore = semaphore;
     this.tracingHelper = tracingHelper;
+    this.permitTracker = tracingHelper.getSemaphorePermitTracker();
   }
 
   @Override
   public String acquire() throws InterruptedException {
     Span span = tracingHelper.buildSpan("acquire", semaphore);
-    return tracingHelper.decorateThrowing(span, () -> semaphore.acquire());
+    long startNanos = System.nanoTime();
+    return tracingHelper
+        .decorateThrowing(span, () -> onAcquired(span, semaphore.acquire(), -1, null, startNanos));
   }
 
   @Override
@@ -43,13 +48,17 @@ public class TracingRPermitExpirableSemaphore extends TracingRExpirable implemen
     Span span = tracingHelper.buildSpan("acquire", semaphore);
     span.setTag("leaseTime", leaseTime);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.decorateThrowing(span, () -> semaphore.acquire(leaseTime, unit));
+    long startNanos = System.nanoTime();
+    return tracingHelper.decorateThrowing(span,
+        () -> onAcquired(span, semaphore.acquire(leaseTime, unit), leaseTime, unit, startNanos));
   }
 
   @Override
   public String tryAcquire() {
     Span span = tracingHelper.buildSpan("tryAcquire", semaphore);
-    return tracingHelper.decorate(span, () -> semaphore.tryAcquire());
+    long startNanos = System.nanoTime();
+    return tracingHelper
+        .decorate(span, () -> onAcquired(span, semaphore.tryAcquire(), -1, null, startNanos));
   }
 
   @Override
@@ -57,7 +66,9 @@ public class TracingRPermitExpirableSemaphore extends TracingRExpirable implemen
     Span span = tracingHelper.buildSpan("tryAcquire", semaphore);
     span.setTag("waitTime", waitTime);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.decorateThrowing(span, () -> semaphore.tryAcquire(waitTime, unit));
+    long startNanos = System.nanoTime();
+    return tracingHelper.decorateThrowing(span,
+        () -> onAcquired(span, semaphore.tryAcquire(waitTime, unit), -1, null, startNanos));
   }
 
   @Override
@@ -67,28 +78,39 @@ public class TracingRPermitExpirableSemaphore extends TracingRExpirable implemen
     span.setTag("waitTime", waitTime);
     span.setTag("leaseTime", leaseTime);
     span.setTag("unit", nullable(unit));
-    return tracingHelper
-        .decorateThrowing(span, () -> semaphore.tryAcquire(waitTime, leaseTime, unit));
+    long startNanos = System.nanoTime();
+    return tracingHelper.decorateThrowing(span,
+        () -> onAcquired(span, semaphore.tryAcquire(waitTime, leaseTime, unit), leaseTime, unit,
+            startNanos));
   }
 
   @Override
   public boolean tryRelease(String permitId) {
     Span span = tracingHelper.buildSpan("tryRelease", semaphore);
     span.setTag("permitId", nullable(permitId));
-    return tracingHelper.decorate(span, () -> semaphore.tryRelease(permitId));
+    return tracingHelper.decorate(span, () -> {
+      boolean released = semaphore.tryRelease(permitId);
+      permitTracker.onReleased(span, semaphore.getName(), permitId, released);
+      return released;
+    });
   }
 
   @Override
   public void release(String permitId) {
     Span span = tracingHelper.buildSpan("release", semaphore);
     span.setTag("permitId", nullable(permitId));
-    tracingHelper.decorate(span, () -> semaphore.release(permitId));
+    tracingHelper.decorate(span, () -> {
+      semaphore.release(permitId);
+      permitTracker.onReleased(span, semaphore.getName(), permitId, true);
+    });
   }
 
   @Override
   public int availablePermits() {
     Span span = tracingHelper.buildSpan("availablePermits", semaphore);
-    return tracingHelper.decorate(span, semaphore::availablePermits);
+    int availablePermits = tracingHelper.decorate(span, semaphore::availablePermits);
+    permitTracker.onSampled(semaphore.getName(), availablePermits);
+    return availablePermits;
   }
 
   @Override
@@ -118,7 +140,9 @@ public class TracingRPermitExpirableSemaphore extends TracingRExpirable implemen
   @Override
   public RFuture<String> acquireAsync() {
     Span span = tracingHelper.buildSpan("acquireAsync", semaphore);
-    return tracingHelper.prepareRFuture(span, semaphore::acquireAsync);
+    long startNanos = System.nanoTime();
+    return tracingHelper
+        .prepareRFuture(span, semaphore::acquireAsync, whenAcquired(span, -1, null, startNanos));
   }
 
   @Override
@@ -126,13 +150,17 @@ public class TracingRPermitExpirableSemaphore extends TracingRExpirable implemen
     Span span = tracingHelper.buildSpan("acquireAsync", semaphore);
     span.setTag("leaseTime", leaseTime);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.prepareRFuture(span, () -> semaphore.acquireAsync(leaseTime, unit));
+    long startNanos = System.nanoTime();
+    return tracingHelper.prepareRFuture(span, () -> semaphore.acquireAsync(leaseTime, unit),
+        whenAcquired(span, leaseTime, unit, startNanos));
   }
 
   @Override
   public RFuture<String> tryAcquireAsync() {
     Span span = tracingHelper.buildSpan("tryAcquireAsync", semaphore);
-    return tracingHelper.prepareRFuture(span, semaphore::tryAcquireAsync);
+    long startNanos = System.nanoTime();
+    return tracingHelper
+        .prepareRFuture(span, semaphore::tryAcquireAsync, whenAcquired(span, -1, null, startNanos));
   }
 
   @Override
@@ -140,7 +168,9 @@ public class TracingRPermitExpirableSemaphore extends TracingRExpirable implemen
     Span span = tracingHelper.buildSpan("tryAcquireAsync", semaphore);
     span.setTag("waitTime", waitTime);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.prepareRFuture(span, () -> semaphore.tryAcquireAsync(waitTime, unit));
+    long startNanos = System.nanoTime();
+    return tracingHelper.prepareRFuture(span, () -> semaphore.tryAcquireAsync(waitTime, unit),
+        whenAcquired(span, -1, null, startNanos));
   }
 
   @Override
@@ -149,28 +179,37 @@ public class TracingRPermitExpirableSemaphore extends TracingRExpirable implemen
     span.setTag("waitTime", waitTime);
     span.setTag("leaseTime", leaseTime);
     span.setTag("unit", nullable(unit));
-    return tracingHelper
-        .prepareRFuture(span, () -> semaphore.tryAcquireAsync(waitTime, leaseTime, unit));
+    long startNanos = System.nanoTime();
+    return tracingHelper.prepareRFuture(span,
+        () -> semaphore.tryAcquireAsync(waitTime, leaseTime, unit),
+        whenAcquired(span, leaseTime, unit, startNanos));
   }
 
   @Override
   public RFuture<Boolean> tryReleaseAsync(String permitId) {
     Span span = tracingHelper.buildSpan("tryReleaseAsync", semaphore);
     span.setTag("permitId", permitId);
-    return tracingHelper.prepareRFuture(span, () -> semaphore.tryReleaseAsync(permitId));
+    return tracingHelper.prepareRFuture(span, () -> semaphore.tryReleaseAsync(permitId),
+        whenReleased(span, permitId));
   }
 
   @Override
   public RFuture<Void> releaseAsync(String permitId) {
     Span span = tracingHelper.buildSpan("releaseAsync", semaphore);
     span.setTag("permitId", permitId);
-    return tracingHelper.prepareRFuture(span, () -> semaphore.releaseAsync(permitId));
+    return tracingHelper
+        .prepareRFuture(span, () -> semaphore.releaseAsync(permitId), whenReleased(span, permitId));
   }
 
   @Override
   public RFuture<Integer> availablePermitsAsync() {
     Span span = tracingHelper.buildSpan("availablePermitsAsync", semaphore);
-    return tracingHelper.prepareRFuture(span, semaphore::availablePermitsAsync);
+    return tracingHelper.prepareRFuture(span, semaphore::availablePermitsAsync,
+        (availablePermits, throwable) -> {
+          if (throwable == null) {
+            permitTracker.onSampled(semaphore.getName(), availablePermits);
+          }
+        });
   }
 
   @Override
@@ -196,4 +235,39 @@ public class TracingRPermitExpirableSemaphore extends TracingRExpirable implemen
     return tracingHelper
         .prepareRFuture(span, () -> semaphore.updateLeaseTimeAsync(permitId, leaseTime, unit));
   }
+
+  private String onAcquired(Span span, String permitId, long leaseTime, TimeUnit unit,
+      long startNanos) {
+    permitTracker.onAcquired(span, semaphore.getName(), permitId, leaseTime, unit, startNanos);
+    sampleAvailablePermits();
+    return permitId;
+  }
+
+  private BiConsumer<String, Throwable> whenAcquired(Span span, long leaseTime, TimeUnit unit,
+      long startNanos) {
+    return (permitId, throwable) -> {
+      if (throwable == null) {
+        onAcquired(span, permitId, leaseTime, unit, startNanos);
+      }
+    };
+  }
+
+  private BiConsumer<Object, Throwable> whenReleased(Span span, String permitId) {
+    return (released, throwable) -> {
+      if (throwable == null) {
+        permitTracker.onReleased(span, semaphore.getName(), permitId,
+            !Boolean.FALSE.equals(released));
+      }
+    };
+  }
+
+  private void sampleAvailablePermits() {
+    if (permitTracker.shouldSample(semaphore.getName())) {
+      semaphore.availablePermitsAsync().whenComplete((availablePermits, throwable) -> {
+        if (throwable == null) {
+          permitTracker.onSampled(semaphore.getName(), availablePermits);
+        }
+      });
+    }
+  }
 }
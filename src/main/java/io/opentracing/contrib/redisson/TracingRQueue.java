@@ -40,7 +40,8 @@ public class TracingRQueue<V> extends TracingRExpirable implements RQueue<V> {
   public V pollLastAndOfferFirstTo(String dequeName) {
     Span span = tracingHelper.buildSpan("pollLastAndOfferFirstTo", queue);
     span.setTag("dequeName", nullable(dequeName));
-    return tracingHelper.decorate(span, () -> queue.pollLastAndOfferFirstTo(dequeName));
+    return tracingHelper.decorate(span, () -> tracingHelper.getQueueThroughputTracker()
+        .moved(span, queue, dequeName, queue.pollLastAndOfferFirstTo(dequeName)));
   }
 
   @Override
@@ -212,7 +213,8 @@ public class TracingRQueue<V> extends TracingRExpirable implements RQueue<V> {
   public RFuture<V> pollLastAndOfferFirstToAsync(String queueName) {
     Span span = tracingHelper.buildSpan("pollLastAndOfferFirstToAsync", queue);
     span.setTag("queueName", nullable(queueName));
-    return tracingHelper.prepareRFuture(span, () -> queue.pollLastAndOfferFirstToAsync(queueName));
+    return tracingHelper.prepareRFuture(span, () -> queue.pollLastAndOfferFirstToAsync(queueName),
+        tracingHelper.getQueueThroughputTracker().whenMoved(span, queue, queueName));
   }
 
   @Override
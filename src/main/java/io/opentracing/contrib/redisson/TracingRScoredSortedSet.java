@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import org.redisson.api.RFuture;
@@ -224,17 +225,30 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
 
   @Override
   public Iterator<V> iterator(String pattern) {
-    return set.iterator(pattern);
+    Span span = tracingHelper.buildIterationSpan("iterator", set);
+    span.setTag("pattern", pattern);
+    return tracingHelper.iterate(span,
+        pages -> PagedIterators.scoredSortedSet(set, pattern, PagedIterators.SCAN_COUNT, pages),
+        () -> set.iterator(pattern));
   }
 
   @Override
   public Iterator<V> iterator(int count) {
-    return set.iterator(count);
+    Span span = tracingHelper.buildIterationSpan("iterator", set);
+    span.setTag("count", count);
+    return tracingHelper.iterate(span,
+        pages -> PagedIterators.scoredSortedSet(set, null, count, pages),
+        () -> set.iterator(count));
   }
 
   @Override
   public Iterator<V> iterator(String pattern, int count) {
-    return set.iterator(pattern, count);
+    Span span = tracingHelper.buildIterationSpan("iterator", set);
+    span.setTag("pattern", pattern);
+    span.setTag("count", count);
+    return tracingHelper.iterate(span,
+        pages -> PagedIterators.scoredSortedSet(set, pattern, count, pages),
+        () -> set.iterator(pattern, count));
   }
 
   @Override
@@ -316,7 +330,9 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     Span span = tracingHelper.buildSpan("valueRange", set);
     span.setTag("startIndex", startIndex);
     span.setTag("endIndex", endIndex);
-    return tracingHelper.decorate(span, () -> set.valueRange(startIndex, endIndex));
+    return tracingHelper.decorateResult(span, set,
+        () -> set.valueRange(startIndex, endIndex),
+        () -> set.valueRangeAsync(startIndex, endIndex));
   }
 
   @Override
@@ -324,7 +340,9 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     Span span = tracingHelper.buildSpan("valueRangeReversed", set);
     span.setTag("startIndex", startIndex);
     span.setTag("endIndex", endIndex);
-    return tracingHelper.decorate(span, () -> set.valueRangeReversed(startIndex, endIndex));
+    return tracingHelper.decorateResult(span, set,
+        () -> set.valueRangeReversed(startIndex, endIndex),
+        () -> set.valueRangeReversedAsync(startIndex, endIndex));
   }
 
   @Override
@@ -332,7 +350,9 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     Span span = tracingHelper.buildSpan("entryRange", set);
     span.setTag("startIndex", startIndex);
     span.setTag("endIndex", endIndex);
-    return tracingHelper.decorate(span, () -> set.entryRange(startIndex, endIndex));
+    return tracingHelper.decorateResult(span, set,
+        () -> set.entryRange(startIndex, endIndex),
+        () -> set.entryRangeAsync(startIndex, endIndex));
   }
 
   @Override
@@ -340,7 +360,9 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     Span span = tracingHelper.buildSpan("entryRangeReversed", set);
     span.setTag("startIndex", startIndex);
     span.setTag("endIndex", endIndex);
-    return tracingHelper.decorate(span, () -> set.entryRangeReversed(startIndex, endIndex));
+    return tracingHelper.decorateResult(span, set,
+        () -> set.entryRangeReversed(startIndex, endIndex),
+        () -> set.entryRangeReversedAsync(startIndex, endIndex));
   }
 
   @Override
@@ -351,8 +373,9 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     span.setTag("startScoreInclusive", startScoreInclusive);
     span.setTag("endScore", endScore);
     span.setTag("endScoreInclusive", endScoreInclusive);
-    return tracingHelper.decorate(span,
-        () -> set.valueRange(startScore, startScoreInclusive, endScore, endScoreInclusive));
+    return tracingHelper.decorateResult(span, set,
+        () -> set.valueRange(startScore, startScoreInclusive, endScore, endScoreInclusive),
+        () -> set.valueRangeAsync(startScore, startScoreInclusive, endScore, endScoreInclusive));
   }
 
   @Override
@@ -363,8 +386,10 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     span.setTag("startScoreInclusive", startScoreInclusive);
     span.setTag("endScore", endScore);
     span.setTag("endScoreInclusive", endScoreInclusive);
-    return tracingHelper.decorate(span,
-        () -> set.valueRangeReversed(startScore, startScoreInclusive, endScore, endScoreInclusive));
+    return tracingHelper.decorateResult(span, set,
+        () -> set.valueRangeReversed(startScore, startScoreInclusive, endScore, endScoreInclusive),
+        () -> set.valueRangeReversedAsync(startScore, startScoreInclusive, endScore,
+            endScoreInclusive));
   }
 
   @Override
@@ -375,8 +400,9 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     span.setTag("startScoreInclusive", startScoreInclusive);
     span.setTag("endScore", endScore);
     span.setTag("endScoreInclusive", endScoreInclusive);
-    return tracingHelper.decorate(span,
-        () -> set.entryRange(startScore, startScoreInclusive, endScore, endScoreInclusive));
+    return tracingHelper.decorateResult(span, set,
+        () -> set.entryRange(startScore, startScoreInclusive, endScore, endScoreInclusive),
+        () -> set.entryRangeAsync(startScore, startScoreInclusive, endScore, endScoreInclusive));
   }
 
   @Override
@@ -389,9 +415,11 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     span.setTag("endScoreInclusive", endScoreInclusive);
     span.setTag("offset", offset);
     span.setTag("count", count);
-    return tracingHelper.decorate(span,
+    return tracingHelper.decorateResult(span, set,
         () -> set.valueRange(startScore, startScoreInclusive, endScore, endScoreInclusive, offset,
-            count));
+            count),
+        () -> set.valueRangeAsync(startScore, startScoreInclusive, endScore, endScoreInclusive,
+            offset, count));
   }
 
   @Override
@@ -404,9 +432,11 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     span.setTag("endScoreInclusive", endScoreInclusive);
     span.setTag("offset", offset);
     span.setTag("count", count);
-    return tracingHelper.decorate(span,
+    return tracingHelper.decorateResult(span, set,
         () -> set.valueRangeReversed(startScore, startScoreInclusive, endScore, endScoreInclusive,
-            offset, count));
+            offset, count),
+        () -> set.valueRangeReversedAsync(startScore, startScoreInclusive, endScore,
+            endScoreInclusive, offset, count));
   }
 
   @Override
@@ -420,9 +450,11 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     span.setTag("endScoreInclusive", endScoreInclusive);
     span.setTag("offset", offset);
     span.setTag("count", count);
-    return tracingHelper.decorate(span,
+    return tracingHelper.decorateResult(span, set,
         () -> set.entryRange(startScore, startScoreInclusive, endScore, endScoreInclusive, offset,
-            count));
+            count),
+        () -> set.entryRangeAsync(startScore, startScoreInclusive, endScore, endScoreInclusive,
+            offset, count));
   }
 
   @Override
@@ -433,8 +465,10 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     span.setTag("startScoreInclusive", startScoreInclusive);
     span.setTag("endScore", endScore);
     span.setTag("endScoreInclusive", endScoreInclusive);
-    return tracingHelper.decorate(span,
-        () -> set.entryRangeReversed(startScore, startScoreInclusive, endScore, endScoreInclusive));
+    return tracingHelper.decorateResult(span, set,
+        () -> set.entryRangeReversed(startScore, startScoreInclusive, endScore, endScoreInclusive),
+        () -> set.entryRangeReversedAsync(startScore, startScoreInclusive, endScore,
+            endScoreInclusive));
   }
 
   @Override
@@ -448,9 +482,11 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     span.setTag("endScoreInclusive", endScoreInclusive);
     span.setTag("offset", offset);
     span.setTag("count", count);
-    return tracingHelper.decorate(span,
+    return tracingHelper.decorateResult(span, set,
         () -> set.entryRangeReversed(startScore, startScoreInclusive, endScore, endScoreInclusive,
-            offset, count));
+            offset, count),
+        () -> set.entryRangeReversedAsync(startScore, startScoreInclusive, endScore,
+            endScoreInclusive, offset, count));
   }
 
   @Override
@@ -468,7 +504,7 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
   @Override
   public Collection<V> readAll() {
     Span span = tracingHelper.buildSpan("readAll", set);
-    return tracingHelper.decorate(span, set::readAll);
+    return tracingHelper.decorateResult(span, set, set::readAll, set::readAllAsync);
   }
 
   @Override
@@ -762,7 +798,7 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     Span span = tracingHelper.buildSpan("valueRangeAsync", set);
     span.setTag("startIndex", startIndex);
     span.setTag("endIndex", endIndex);
-    return tracingHelper.prepareRFuture(span, () -> set.valueRangeAsync(startIndex, endIndex));
+    return tracingHelper.prepareResult(span, set, () -> set.valueRangeAsync(startIndex, endIndex));
   }
 
   @Override
@@ -770,8 +806,8 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     Span span = tracingHelper.buildSpan("valueRangeReversedAsync", set);
     span.setTag("startIndex", startIndex);
     span.setTag("endIndex", endIndex);
-    return tracingHelper
-        .prepareRFuture(span, () -> set.valueRangeReversedAsync(startIndex, endIndex));
+    return tracingHelper.prepareResult(span, set,
+        () -> set.valueRangeReversedAsync(startIndex, endIndex));
   }
 
   @Override
@@ -779,7 +815,7 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     Span span = tracingHelper.buildSpan("entryRangeAsync", set);
     span.setTag("startIndex", startIndex);
     span.setTag("endIndex", endIndex);
-    return tracingHelper.prepareRFuture(span, () -> set.entryRangeAsync(startIndex, endIndex));
+    return tracingHelper.prepareResult(span, set, () -> set.entryRangeAsync(startIndex, endIndex));
   }
 
   @Override
@@ -787,8 +823,8 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     Span span = tracingHelper.buildSpan("entryRangeReversedAsync", set);
     span.setTag("startIndex", startIndex);
     span.setTag("endIndex", endIndex);
-    return tracingHelper
-        .prepareRFuture(span, () -> set.entryRangeReversedAsync(startIndex, endIndex));
+    return tracingHelper.prepareResult(span, set,
+        () -> set.entryRangeReversedAsync(startIndex, endIndex));
   }
 
   @Override
@@ -799,7 +835,7 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     span.setTag("startScoreInclusive", startScoreInclusive);
     span.setTag("endScore", endScore);
     span.setTag("endScoreInclusive", endScoreInclusive);
-    return tracingHelper.prepareRFuture(span,
+    return tracingHelper.prepareResult(span, set,
         () -> set.valueRangeAsync(startScore, startScoreInclusive, endScore, endScoreInclusive));
   }
 
@@ -811,9 +847,9 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     span.setTag("startScoreInclusive", startScoreInclusive);
     span.setTag("endScore", endScore);
     span.setTag("endScoreInclusive", endScoreInclusive);
-    return tracingHelper.prepareRFuture(span,
-        () -> set
-            .valueRangeReversedAsync(startScore, startScoreInclusive, endScore, endScoreInclusive));
+    return tracingHelper.prepareResult(span, set,
+        () -> set.valueRangeReversedAsync(startScore, startScoreInclusive, endScore,
+            endScoreInclusive));
   }
 
   @Override
@@ -824,7 +860,7 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     span.setTag("startScoreInclusive", startScoreInclusive);
     span.setTag("endScore", endScore);
     span.setTag("endScoreInclusive", endScoreInclusive);
-    return tracingHelper.prepareRFuture(span,
+    return tracingHelper.prepareResult(span, set,
         () -> set.entryRangeAsync(startScore, startScoreInclusive, endScore, endScoreInclusive));
   }
 
@@ -839,10 +875,9 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     span.setTag("endScoreInclusive", endScoreInclusive);
     span.setTag("offset", offset);
     span.setTag("count", count);
-    return tracingHelper.prepareRFuture(span,
-        () -> set
-            .valueRangeAsync(startScore, startScoreInclusive, endScore, endScoreInclusive, offset,
-                count));
+    return tracingHelper.prepareResult(span, set,
+        () -> set.valueRangeAsync(startScore, startScoreInclusive, endScore, endScoreInclusive,
+            offset, count));
   }
 
   @Override
@@ -856,11 +891,9 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     span.setTag("endScoreInclusive", endScoreInclusive);
     span.setTag("offset", offset);
     span.setTag("count", count);
-    return tracingHelper.prepareRFuture(span,
-        () -> set
-            .valueRangeReversedAsync(startScore, startScoreInclusive, endScore, endScoreInclusive,
-                offset,
-                count));
+    return tracingHelper.prepareResult(span, set,
+        () -> set.valueRangeReversedAsync(startScore, startScoreInclusive, endScore,
+            endScoreInclusive, offset, count));
   }
 
   @Override
@@ -874,10 +907,9 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     span.setTag("endScoreInclusive", endScoreInclusive);
     span.setTag("offset", offset);
     span.setTag("count", count);
-    return tracingHelper.prepareRFuture(span,
-        () -> set
-            .entryRangeAsync(startScore, startScoreInclusive, endScore, endScoreInclusive, offset,
-                count));
+    return tracingHelper.prepareResult(span, set,
+        () -> set.entryRangeAsync(startScore, startScoreInclusive, endScore, endScoreInclusive,
+            offset, count));
   }
 
   @Override
@@ -888,9 +920,9 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     span.setTag("startScoreInclusive", startScoreInclusive);
     span.setTag("endScore", endScore);
     span.setTag("endScoreInclusive", endScoreInclusive);
-    return tracingHelper.prepareRFuture(span,
-        () -> set
-            .entryRangeReversedAsync(startScore, startScoreInclusive, endScore, endScoreInclusive));
+    return tracingHelper.prepareResult(span, set,
+        () -> set.entryRangeReversedAsync(startScore, startScoreInclusive, endScore,
+            endScoreInclusive));
   }
 
   @Override
@@ -904,11 +936,9 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
     span.setTag("endScoreInclusive", endScoreInclusive);
     span.setTag("offset", offset);
     span.setTag("count", count);
-    return tracingHelper.prepareRFuture(span,
-        () -> set
-            .entryRangeReversedAsync(startScore, startScoreInclusive, endScore, endScoreInclusive,
-                offset,
-                count));
+    return tracingHelper.prepareResult(span, set,
+        () -> set.entryRangeReversedAsync(startScore, startScoreInclusive, endScore,
+            endScoreInclusive, offset, count));
   }
 
   @Override
@@ -926,7 +956,7 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
   @Override
   public RFuture<Collection<V>> readAllAsync() {
     Span span = tracingHelper.buildSpan("readAllAsync", set);
-    return tracingHelper.prepareRFuture(span, set::readAllAsync);
+    return tracingHelper.prepareResult(span, set, set::readAllAsync);
   }
 
   @Override
@@ -1185,7 +1215,10 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
 
   @Override
   public Iterator<V> iterator() {
-    return set.iterator();
+    Span span = tracingHelper.buildIterationSpan("iterator", set);
+    return tracingHelper.iterate(span,
+        pages -> PagedIterators.scoredSortedSet(set, null, PagedIterators.SCAN_COUNT, pages),
+        set::iterator);
   }
 
   @Override
@@ -1197,7 +1230,7 @@ public class TracingRScoredSortedSet<V> extends TracingRExpirable implements RSc
 
   @Override
   public Spliterator<V> spliterator() {
-    return set.spliterator();
+    return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.DISTINCT);
   }
 
   @Override
@@ -17,43 +17,64 @@ import static io.opentracing.contrib.redisson.TracingHelper.nullable;
 
 import io.opentracing.Span;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import org.redisson.api.RFuture;
 import org.redisson.api.RSemaphore;
 
 public class TracingRSemaphore extends TracingRExpirable implements RSemaphore {
   private final RSemaphore semaphore;
   private final TracingHelper tracingHelper;
+  private final SemaphorePermitTracker permitTracker;
 
   public TracingRSemaphore(RSemaphore semaphore, TracingHelper tracingHelper) {
     super(semaphore, tracingHelper);
     this.semaphore = semaphore;
     this.tracingHelper = tracingHelper;
+    this.permitTracker = tracingHelper.getSemaphorePermitTracker();
   }
 
   @Override
   public void acquire() throws InterruptedException {
     Span span = tracingHelper.buildSpan("acquire", semaphore);
-    tracingHelper.decorateThrowing(span, () -> semaphore.acquire());
+    long startNanos = System.nanoTime();
+    tracingHelper.decorateThrowing(span, () -> {
+      semaphore.acquire();
+      onAcquired(span, 1, startNanos);
+    });
+    sampleAvailablePermits();
   }
 
   @Override
   public void acquire(int permits) throws InterruptedException {
     Span span = tracingHelper.buildSpan("acquire", semaphore);
     span.setTag("permits", permits);
-    tracingHelper.decorateThrowing(span, () -> semaphore.acquire(permits));
+    long startNanos = System.nanoTime();
+    tracingHelper.decorateThrowing(span, () -> {
+      semaphore.acquire(permits);
+      onAcquired(span, permits, startNanos);
+    });
+    sampleAvailablePermits();
   }
 
   @Override
   public boolean tryAcquire() {
     Span span = tracingHelper.buildSpan("tryAcquire", semaphore);
-    return tracingHelper.decorate(span, () -> semaphore.tryAcquire());
+    long startNanos = System.nanoTime();
+    boolean acquired = tracingHelper
+        .decorate(span, () -> onAcquired(span, semaphore.tryAcquire(), 1, startNanos));
+    sampleAvailablePermits();
+    return acquired;
   }
 
   @Override
   public boolean tryAcquire(int permits) {
     Span span = tracingHelper.buildSpan("tryAcquire", semaphore);
     span.setTag("permits", permits);
-    return tracingHelper.decorate(span, () -> semaphore.tryAcquire(permits));
+    long startNanos = System.nanoTime();
+    boolean acquired = tracingHelper.decorate(span,
+        () -> onAcquired(span, semaphore.tryAcquire(permits), permits, startNanos));
+    sampleAvailablePermits();
+    return acquired;
   }
 
   @Override
@@ -61,7 +82,11 @@ public class TracingRSemaphore extends TracingRExpirable implements RSemaphore {
     Span span = tracingHelper.buildSpan("tryAcquire", semaphore);
     span.setTag("waitTime", waitTime);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.decorateThrowing(span, () -> semaphore.tryAcquire(waitTime, unit));
+    long startNanos = System.nanoTime();
+    boolean acquired = tracingHelper.decorateThrowing(span,
+        () -> onAcquired(span, semaphore.tryAcquire(waitTime, unit), 1, startNanos));
+    sampleAvailablePermits();
+    return acquired;
   }
 
   @Override
@@ -70,33 +95,47 @@ public class TracingRSemaphore extends TracingRExpirable implements RSemaphore {
     span.setTag("permits", permits);
     span.setTag("waitTime", waitTime);
     span.setTag("unit", nullable(unit));
-    return tracingHelper
-        .decorateThrowing(span, () -> semaphore.tryAcquire(permits, waitTime, unit));
+    long startNanos = System.nanoTime();
+    boolean acquired = tracingHelper.decorateThrowing(span,
+        () -> onAcquired(span, semaphore.tryAcquire(permits, waitTime, unit), permits,
+            startNanos));
+    sampleAvailablePermits();
+    return acquired;
   }
 
   @Override
   public void release() {
     Span span = tracingHelper.buildSpan("release", semaphore);
-    tracingHelper.decorate(span, () -> semaphore.release());
+    tracingHelper.decorate(span, () -> {
+      semaphore.release();
+      permitTracker.onReleased(span, semaphore.getName(), 1);
+    });
   }
 
   @Override
   public void release(int permits) {
     Span span = tracingHelper.buildSpan("release", semaphore);
     span.setTag("permits", permits);
-    tracingHelper.decorate(span, () -> semaphore.release(permits));
+    tracingHelper.decorate(span, () -> {
+      semaphore.release(permits);
+      permitTracker.onReleased(span, semaphore.getName(), permits);
+    });
   }
 
   @Override
   public int availablePermits() {
     Span span = tracingHelper.buildSpan("availablePermits", semaphore);
-    return tracingHelper.decorate(span, semaphore::availablePermits);
+    int availablePermits = tracingHelper.decorate(span, semaphore::availablePermits);
+    permitTracker.onSampled(semaphore.getName(), availablePermits);
+    return availablePermits;
   }
 
   @Override
   public int drainPermits() {
     Span span = tracingHelper.buildSpan("drainPermits", semaphore);
-    return tracingHelper.decorate(span, semaphore::drainPermits);
+    int drained = tracingHelper.decorate(span, semaphore::drainPermits);
+    permitTracker.onSampled(semaphore.getName(), 0);
+    return drained;
   }
 
   @Override
@@ -116,40 +155,49 @@ public class TracingRSemaphore extends TracingRExpirable implements RSemaphore {
   @Override
   public RFuture<Boolean> tryAcquireAsync() {
     Span span = tracingHelper.buildSpan("tryAcquireAsync", semaphore);
-    return tracingHelper.prepareRFuture(span, semaphore::tryAcquireAsync);
+    long startNanos = System.nanoTime();
+    return tracingHelper
+        .prepareRFuture(span, semaphore::tryAcquireAsync, whenAcquired(span, 1, startNanos));
   }
 
   @Override
   public RFuture<Boolean> tryAcquireAsync(int permits) {
     Span span = tracingHelper.buildSpan("tryAcquireAsync", semaphore);
     span.setTag("permits", permits);
-    return tracingHelper.prepareRFuture(span, () -> semaphore.tryAcquireAsync(permits));
+    long startNanos = System.nanoTime();
+    return tracingHelper.prepareRFuture(span, () -> semaphore.tryAcquireAsync(permits),
+        whenAcquired(span, permits, startNanos));
   }
 
   @Override
   public RFuture<Void> acquireAsync() {
     Span span = tracingHelper.buildSpan("acquireAsync", semaphore);
-    return tracingHelper.prepareRFuture(span, semaphore::acquireAsync);
+    long startNanos = System.nanoTime();
+    return tracingHelper
+        .prepareRFuture(span, semaphore::acquireAsync, whenAcquired(span, 1, startNanos));
   }
 
   @Override
   public RFuture<Void> acquireAsync(int permits) {
     Span span = tracingHelper.buildSpan("acquireAsync", semaphore);
     span.setTag("permits", permits);
-    return tracingHelper.prepareRFuture(span, () -> semaphore.acquireAsync(permits));
+    long startNanos = System.nanoTime();
+    return tracingHelper.prepareRFuture(span, () -> semaphore.acquireAsync(permits),
+        whenAcquired(span, permits, startNanos));
   }
 
   @Override
   public RFuture<Void> releaseAsync() {
     Span span = tracingHelper.buildSpan("releaseAsync", semaphore);
-    return tracingHelper.prepareRFuture(span, semaphore::releaseAsync);
+    return tracingHelper.prepareRFuture(span, semaphore::releaseAsync, whenReleased(span, 1));
   }
 
   @Override
   public RFuture<Void> releaseAsync(int permits) {
     Span span = tracingHelper.buildSpan("releaseAsync", semaphore);
     span.setTag("permits", permits);
-    return tracingHelper.prepareRFuture(span, () -> semaphore.releaseAsync(permits));
+    return tracingHelper
+        .prepareRFuture(span, () -> semaphore.releaseAsync(permits), whenReleased(span, permits));
   }
 
   @Override
@@ -164,7 +212,9 @@ public class TracingRSemaphore extends TracingRExpirable implements RSemaphore {
     Span span = tracingHelper.buildSpan("tryAcquireAsync", semaphore);
     span.setTag("waitTime", waitTime);
     span.setTag("unit", nullable(unit));
-    return tracingHelper.prepareRFuture(span, () -> semaphore.tryAcquireAsync(waitTime, unit));
+    long startNanos = System.nanoTime();
+    return tracingHelper.prepareRFuture(span, () -> semaphore.tryAcquireAsync(waitTime, unit),
+        whenAcquired(span, 1, startNanos));
   }
 
   @Override
@@ -173,8 +223,10 @@ public class TracingRSemaphore extends TracingRExpirable implements RSemaphore {
     span.setTag("permits", permits);
     span.setTag("waitTime", waitTime);
     span.setTag("unit", nullable(unit));
-    return tracingHelper
-        .prepareRFuture(span, () -> semaphore.tryAcquireAsync(permits, waitTime, unit));
+    long startNanos = System.nanoTime();
+    return tracingHelper.prepareRFuture(span,
+        () -> semaphore.tryAcquireAsync(permits, waitTime, unit),
+        whenAcquired(span, permits, startNanos));
   }
 
   @Override
@@ -184,4 +236,36 @@ public class TracingRSemaphore extends TracingRExpirable implements RSemaphore {
     return tracingHelper.prepareRFuture(span, () -> semaphore.reducePermitsAsync(permits));
   }
 
+  private void onAcquired(Span span, int permits, long startNanos) {
+    permitTracker.onAcquired(span, semaphore.getName(), permits, startNanos);
+  }
+
+  private boolean onAcquired(Span span, boolean acquired, int permits, long startNanos) {
+    if (acquired) {
+      onAcquired(span, permits, startNanos);
+    } else {
+      permitTracker.onRejected(span, semaphore.getName());
+    }
+    return acquired;
+  }
+
+  private BiConsumer<Object, Throwable> whenAcquired(Span span, int permits, long startNanos) {
+    return (acquired, throwable) -> {
+      if (throwable == null) {
+        onAcquired(span, !Boolean.FALSE.equals(acquired), permits, startNanos);
+      }
+    };
+  }
+
+  private BiConsumer<Object, Throwable> whenReleased(Span span, int permits) {
+    return (ignore, throwable) -> {
+      if (throwable == null) {
+        permitTracker.onReleased(span, semaphore.getName(), permits);
+      }
+    };
+  }
+
+  private void sampleAvailablePermits() {
+    permitTracker.sampleAsync(semaphore.getName());
+  }
 }
@@ -23,9 +23,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.redisson.api.RFuture;
 import org.redisson.api.RLock;
 import org.redisson.api.RSet;
@@ -49,17 +51,28 @@ public class TracingRSet<V> extends TracingRExpirable implements RSet<V> {
 
   @Override
   public Iterator<V> iterator(int count) {
-    return set.iterator(count);
+    Span span = tracingHelper.buildIterationSpan("iterator", set);
+    span.setTag("count", count);
+    return tracingHelper.iterate(span, pages -> PagedIterators.set(set, null, count, pages),
+        () -> set.iterator(count));
   }
 
   @Override
   public Iterator<V> iterator(String pattern, int count) {
-    return set.iterator(pattern, count);
+    Span span = tracingHelper.buildIterationSpan("iterator", set);
+    span.setTag("pattern", pattern);
+    span.setTag("count", count);
+    return tracingHelper.iterate(span, pages -> PagedIterators.set(set, pattern, count, pages),
+        () -> set.iterator(pattern, count));
   }
 
   @Override
   public Iterator<V> iterator(String pattern) {
-    return set.iterator(pattern);
+    Span span = tracingHelper.buildIterationSpan("iterator", set);
+    span.setTag("pattern", pattern);
+    return tracingHelper.iterate(span,
+        pages -> PagedIterators.set(set, pattern, PagedIterators.SCAN_COUNT, pages),
+        () -> set.iterator(pattern));
   }
 
   @Override
@@ -104,7 +117,7 @@ public class TracingRSet<V> extends TracingRExpirable implements RSet<V> {
   @Override
   public Set<V> readAll() {
     Span span = tracingHelper.buildSpan("readAll", set);
-    return tracingHelper.decorate(span, set::readAll);
+    return tracingHelper.decorateResult(span, set, set::readAll, set::readAllAsync);
   }
 
   @Override
@@ -170,7 +183,10 @@ public class TracingRSet<V> extends TracingRExpirable implements RSet<V> {
 
   @Override
   public Iterator<V> iterator() {
-    return set.iterator();
+    Span span = tracingHelper.buildIterationSpan("iterator", set);
+    return tracingHelper.iterate(span,
+        pages -> PagedIterators.set(set, null, PagedIterators.SCAN_COUNT, pages),
+        set::iterator);
   }
 
   @Override
@@ -231,7 +247,7 @@ public class TracingRSet<V> extends TracingRExpirable implements RSet<V> {
 
   @Override
   public Spliterator<V> spliterator() {
-    return set.spliterator();
+    return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.DISTINCT);
   }
 
   @Override
@@ -243,12 +259,12 @@ public class TracingRSet<V> extends TracingRExpirable implements RSet<V> {
 
   @Override
   public Stream<V> stream() {
-    return set.stream();
+    return StreamSupport.stream(spliterator(), false);
   }
 
   @Override
   public Stream<V> parallelStream() {
-    return set.parallelStream();
+    return StreamSupport.stream(spliterator(), true);
   }
 
   @Override
@@ -295,7 +311,7 @@ public class TracingRSet<V> extends TracingRExpirable implements RSet<V> {
   @Override
   public RFuture<Set<V>> readAllAsync() {
     Span span = tracingHelper.buildSpan("readAllAsync", set);
-    return tracingHelper.prepareRFuture(span, set::readAllAsync);
+    return tracingHelper.prepareResult(span, set, set::readAllAsync);
   }
 
   @Override
@@ -13,7 +13,10 @@
  */
 package io.opentracing.contrib.redisson;
 
+import io.opentracing.Span;
 import io.opentracing.Tracer;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.redisson.api.BatchOptions;
 import org.redisson.api.ClusterNodesGroup;
@@ -76,6 +79,7 @@ import org.redisson.api.RedissonClient;
 import org.redisson.api.TransactionOptions;
 import org.redisson.client.codec.Codec;
 import org.redisson.config.Config;
+import org.redisson.connection.ConnectionListener;
 
 public class TracingRedissonClient implements RedissonClient {
   private final RedissonClient redissonClient;
@@ -83,8 +87,49 @@ public class TracingRedissonClient implements RedissonClient {
 
   public TracingRedissonClient(RedissonClient redissonClient, Tracer tracer,
       boolean traceWithActiveSpanOnly) {
+    this(redissonClient, new TracingConfiguration.Builder(tracer)
+        .traceWithActiveSpanOnly(traceWithActiveSpanOnly).build());
+  }
+
+  public TracingRedissonClient(RedissonClient redissonClient,
+      TracingConfiguration tracingConfiguration) {
     this.redissonClient = redissonClient;
-    this.tracingHelper = new TracingHelper(tracer, traceWithActiveSpanOnly);
+    this.tracingHelper = new TracingHelper(tracingConfiguration, redissonClient);
+    ConnectionListener connectionListener = tracingHelper.connectionListener();
+    if (connectionListener != null) {
+      redissonClient.getNodesGroup().addConnectionListener(connectionListener);
+    }
+  }
+
+  public TracingMetrics getMetrics() {
+    return tracingHelper.getMetrics();
+  }
+
+  public List<HotKey> getHotKeys() {
+    HotKeyDetector hotKeyDetector = tracingHelper.getHotKeyDetector();
+    return hotKeyDetector == null ? Collections.emptyList() : hotKeyDetector.getHotKeys();
+  }
+
+  /**
+   * Wraps a parent span so that the Redisson operations finished while it is active are tagged on
+   * it as totals when it finishes, if the Redis time rollup is enabled. The returned span is the
+   * one to activate and finish.
+   *
+   * @param parent span of the application
+   * @return span rolling up the operations, or the parent itself if the rollup is disabled
+   */
+  public Span rollup(Span parent) {
+    RedisTimeRollup redisTimeRollup = tracingHelper.getRedisTimeRollup();
+    return redisTimeRollup == null ? parent : redisTimeRollup.parent(parent);
+  }
+
+  /**
+   * @param limit maximum number of operations returned
+   * @return operations in flight, oldest first, if in-flight tracking is enabled
+   */
+  public List<InFlightOperation> getInFlightOperations(int limit) {
+    InFlightRegistry inFlightRegistry = tracingHelper.getInFlightRegistry();
+    return inFlightRegistry == null ? Collections.emptyList() : inFlightRegistry.getOldest(limit);
   }
 
   @Override
@@ -125,17 +170,20 @@ public class TracingRedissonClient implements RedissonClient {
 
   @Override
   public <V> RSetCache<V> getSetCache(String name, Codec codec) {
-    return new TracingRSetCache<>(redissonClient.getSetCache(name, codec), tracingHelper);
+    return new TracingRSetCache<>(redissonClient.getSetCache(name, codec(codec, name)),
+        tracingHelper);
   }
 
   @Override
   public <K, V> RMapCache<K, V> getMapCache(String name, Codec codec) {
-    return new TracingRMapCache<>(redissonClient.getMapCache(name, codec), tracingHelper);
+    return new TracingRMapCache<>(redissonClient.getMapCache(name, codec(codec, name)),
+        tracingHelper);
   }
 
   @Override
   public <K, V> RMapCache<K, V> getMapCache(String name, Codec codec, MapOptions<K, V> options) {
-    return new TracingRMapCache<>(redissonClient.getMapCache(name, codec, options), tracingHelper);
+    return new TracingRMapCache<>(redissonClient.getMapCache(name, codec(codec, name), options),
+        tracingHelper);
   }
 
   @Override
@@ -155,7 +203,7 @@ public class TracingRedissonClient implements RedissonClient {
 
   @Override
   public <V> RBucket<V> getBucket(String name, Codec codec) {
-    return new TracingRBucket<>(redissonClient.getBucket(name, codec), tracingHelper);
+    return new TracingRBucket<>(redissonClient.getBucket(name, codec(codec, name)), tracingHelper);
   }
 
   @Override
@@ -165,7 +213,7 @@ public class TracingRedissonClient implements RedissonClient {
 
   @Override
   public RBuckets getBuckets(Codec codec) {
-    return new TracingRBuckets(redissonClient.getBuckets(codec), tracingHelper);
+    return new TracingRBuckets(redissonClient.getBuckets(codec(codec, "buckets")), tracingHelper);
   }
 
   @Override
@@ -186,7 +234,7 @@ public class TracingRedissonClient implements RedissonClient {
 
   @Override
   public <V> RList<V> getList(String name, Codec codec) {
-    return new TracingRList<>(redissonClient.getList(name, codec), tracingHelper);
+    return new TracingRList<>(redissonClient.getList(name, codec(codec, name)), tracingHelper);
   }
 
   @Override
@@ -197,7 +245,8 @@ public class TracingRedissonClient implements RedissonClient {
   @Override
   public <K, V> RListMultimap<K, V> getListMultimap(String name,
       Codec codec) {
-    return new TracingRListMultimap<>(redissonClient.getListMultimap(name, codec), tracingHelper);
+    return new TracingRListMultimap<>(redissonClient.getListMultimap(name, codec(codec, name)),
+        tracingHelper);
   }
 
   @Override
@@ -238,13 +287,14 @@ public class TracingRedissonClient implements RedissonClient {
 
   @Override
   public <K, V> RMap<K, V> getMap(String name, Codec codec) {
-    return new TracingRMap<>(redissonClient.getMap(name, codec), tracingHelper);
+    return new TracingRMap<>(redissonClient.getMap(name, codec(codec, name)), tracingHelper);
   }
 
   @Override
   public <K, V> RMap<K, V> getMap(String name, Codec codec,
       MapOptions<K, V> options) {
-    return new TracingRMap<>(redissonClient.getMap(name, codec, options), tracingHelper);
+    return new TracingRMap<>(redissonClient.getMap(name, codec(codec, name), options),
+        tracingHelper);
   }
 
   @Override
@@ -255,7 +305,8 @@ public class TracingRedissonClient implements RedissonClient {
   @Override
   public <K, V> RSetMultimap<K, V> getSetMultimap(String name,
       Codec codec) {
-    return new TracingRSetMultimap<>(redissonClient.getSetMultimap(name, codec), tracingHelper);
+    return new TracingRSetMultimap<>(redissonClient.getSetMultimap(name, codec(codec, name)),
+        tracingHelper);
   }
 
   @Override
@@ -266,7 +317,8 @@ public class TracingRedissonClient implements RedissonClient {
   @Override
   public <K, V> RSetMultimapCache<K, V> getSetMultimapCache(String name,
       Codec codec) {
-    return new TracingRSetMultimapCache<>(redissonClient.getSetMultimapCache(name, codec),
+    return new TracingRSetMultimapCache<>(
+        redissonClient.getSetMultimapCache(name, codec(codec, name)),
         tracingHelper);
   }
 
@@ -303,7 +355,7 @@ public class TracingRedissonClient implements RedissonClient {
 
   @Override
   public <V> RSet<V> getSet(String name, Codec codec) {
-    return new TracingRSet<>(redissonClient.getSet(name, codec), tracingHelper);
+    return new TracingRSet<>(redissonClient.getSet(name, codec(codec, name)), tracingHelper);
   }
 
   @Override
@@ -314,7 +366,8 @@ public class TracingRedissonClient implements RedissonClient {
   @Override
   public <V> RSortedSet<V> getSortedSet(String name,
       Codec codec) {
-    return new TracingRSortedSet<>(redissonClient.getSortedSet(name, codec), tracingHelper);
+    return new TracingRSortedSet<>(redissonClient.getSortedSet(name, codec(codec, name)),
+        tracingHelper);
   }
 
   @Override
@@ -324,7 +377,8 @@ public class TracingRedissonClient implements RedissonClient {
 
   @Override
   public <V> RScoredSortedSet<V> getScoredSortedSet(String name, Codec codec) {
-    return new TracingRScoredSortedSet<>(redissonClient.getScoredSortedSet(name, codec),
+    return new TracingRScoredSortedSet<>(
+        redissonClient.getScoredSortedSet(name, codec(codec, name)),
         tracingHelper);
   }
 
@@ -367,7 +421,7 @@ public class TracingRedissonClient implements RedissonClient {
 
   @Override
   public <V> RQueue<V> getQueue(String name, Codec codec) {
-    return new TracingRQueue<>(redissonClient.getQueue(name, codec), tracingHelper);
+    return new TracingRQueue<>(redissonClient.getQueue(name, codec(codec, name)), tracingHelper);
   }
 
   @Override
@@ -378,7 +432,8 @@ public class TracingRedissonClient implements RedissonClient {
   @Override
   public <V> RPriorityQueue<V> getPriorityQueue(String name,
       Codec codec) {
-    return new TracingRPriorityQueue<>(redissonClient.getPriorityQueue(name, codec), tracingHelper);
+    return new TracingRPriorityQueue<>(redissonClient.getPriorityQueue(name, codec(codec, name)),
+        tracingHelper);
   }
 
   @Override
@@ -390,7 +445,8 @@ public class TracingRedissonClient implements RedissonClient {
   @Override
   public <V> RPriorityBlockingQueue<V> getPriorityBlockingQueue(String name,
       Codec codec) {
-    return new TracingRPriorityBlockingQueue<>(redissonClient.getPriorityBlockingQueue(name, codec),
+    return new TracingRPriorityBlockingQueue<>(
+        redissonClient.getPriorityBlockingQueue(name, codec(codec, name)),
         tracingHelper);
   }
 
@@ -402,7 +458,8 @@ public class TracingRedissonClient implements RedissonClient {
 
   @Override
   public <V> RPriorityBlockingDeque<V> getPriorityBlockingDeque(String name, Codec codec) {
-    return new TracingRPriorityBlockingDeque<>(redissonClient.getPriorityBlockingDeque(name, codec),
+    return new TracingRPriorityBlockingDeque<>(
+        redissonClient.getPriorityBlockingDeque(name, codec(codec, name)),
         tracingHelper);
   }
 
@@ -413,7 +470,8 @@ public class TracingRedissonClient implements RedissonClient {
 
   @Override
   public <V> RPriorityDeque<V> getPriorityDeque(String name, Codec codec) {
-    return new TracingRPriorityDeque<>(redissonClient.getPriorityDeque(name, codec), tracingHelper);
+    return new TracingRPriorityDeque<>(redissonClient.getPriorityDeque(name, codec(codec, name)),
+        tracingHelper);
   }
 
   @Override
@@ -424,7 +482,8 @@ public class TracingRedissonClient implements RedissonClient {
   @Override
   public <V> RBlockingQueue<V> getBlockingQueue(String name,
       Codec codec) {
-    return new TracingRBlockingQueue<>(redissonClient.getBlockingQueue(name, codec), tracingHelper);
+    return new TracingRBlockingQueue<>(redissonClient.getBlockingQueue(name, codec(codec, name)),
+        tracingHelper);
   }
 
   @Override
@@ -435,7 +494,8 @@ public class TracingRedissonClient implements RedissonClient {
 
   @Override
   public <V> RBoundedBlockingQueue<V> getBoundedBlockingQueue(String name, Codec codec) {
-    return new TracingRBoundedBlockingQueue<>(redissonClient.getBoundedBlockingQueue(name, codec),
+    return new TracingRBoundedBlockingQueue<>(
+        redissonClient.getBoundedBlockingQueue(name, codec(codec, name)),
         tracingHelper);
   }
 
@@ -446,7 +506,7 @@ public class TracingRedissonClient implements RedissonClient {
 
   @Override
   public <V> RDeque<V> getDeque(String name, Codec codec) {
-    return new TracingRDeque<>(redissonClient.getDeque(name, codec), tracingHelper);
+    return new TracingRDeque<>(redissonClient.getDeque(name, codec(codec, name)), tracingHelper);
   }
 
   @Override
@@ -456,7 +516,8 @@ public class TracingRedissonClient implements RedissonClient {
 
   @Override
   public <V> RBlockingDeque<V> getBlockingDeque(String name, Codec codec) {
-    return new TracingRBlockingDeque<>(redissonClient.getBlockingDeque(name, codec), tracingHelper);
+    return new TracingRBlockingDeque<>(redissonClient.getBlockingDeque(name, codec(codec, name)),
+        tracingHelper);
   }
 
   @Override
@@ -481,7 +542,12 @@ public class TracingRedissonClient implements RedissonClient {
 
   @Override
   public RCountDownLatch getCountDownLatch(String name) {
-    return new TracingRCountDownLatch(redissonClient.getCountDownLatch(name), tracingHelper);
+    RCountDownLatch latch = redissonClient.getCountDownLatch(name);
+    if (tracingHelper.getConfiguration().getLatchReleaserLinks() > 0) {
+      return new TracingRCountDownLatch(latch,
+          redissonClient.getList(TracingRCountDownLatch.releasersName(name)), tracingHelper);
+    }
+    return new TracingRCountDownLatch(latch, tracingHelper);
   }
 
   @Override
@@ -589,12 +655,16 @@ public class TracingRedissonClient implements RedissonClient {
 
   @Override
   public void shutdown() {
+    tracingHelper.beforeShutdown();
     redissonClient.shutdown();
+    tracingHelper.shutdown();
   }
 
   @Override
   public void shutdown(long quietPeriod, long timeout, TimeUnit unit) {
+    tracingHelper.beforeShutdown();
     redissonClient.shutdown(quietPeriod, timeout, unit);
+    tracingHelper.shutdown();
   }
 
   @Override
@@ -621,4 +691,8 @@ public class TracingRedissonClient implements RedissonClient {
   public boolean isShuttingDown() {
     return redissonClient.isShuttingDown();
   }
+
+  private Codec codec(Codec codec, String name) {
+    return tracingHelper.codec(codec, name);
+  }
 }
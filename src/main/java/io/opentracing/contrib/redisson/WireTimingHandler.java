@@ -0,0 +1,220 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.Future;
+import io.opentracing.Span;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.redisson.client.RedisConnection;
+import org.redisson.client.handler.CommandsQueue;
+import org.redisson.client.protocol.QueueCommand;
+import org.redisson.connection.ClientConnectionsEntry;
+import org.redisson.connection.ConnectionManager;
+import org.redisson.connection.MasterSlaveEntry;
+
+/**
+ * Pipeline handler timestamping the write of each command and the first read of its reply.
+ * It sits between Redisson's command queue and the codecs, so the write is the moment the command
+ * leaves the client queue. Redisson sends one command at a time per connection and completes its
+ * future on the Netty thread reading the reply, so timings are attributed to operations whose
+ * future completes while the reply is read. Synchronous operations complete on the caller's
+ * thread and are not timed.
+ */
+class WireTimingHandler extends ChannelDuplexHandler {
+  static final String NET_WRITE_TO_READ_US = "net.write_to_read.us";
+  static final String CLIENT_QUEUE_DELAY_US = "client.queue_delay.us";
+  static final String WIRE_TIMED = "wire_timing.timed";
+  static final String WIRE_UNTIMED = "wire_timing.untimed";
+  static final String UNKNOWN_NODE = "unknown";
+  private static final String NAME = "tracingWireTiming";
+  private static final long INSTALL_TIMEOUT_MILLIS = 1000;
+  private static final long REINSTALL_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final ThreadLocal<Reply> REPLY = ThreadLocal.withInitial(Reply::new);
+  private static final Field MASTER_ENTRY = masterEntryField();
+
+  private final Node node;
+  private long writeNanos;
+  private long readNanos;
+
+  private WireTimingHandler(Node node) {
+    this.node = node;
+  }
+
+  /**
+   * Installs the handler on the connections of a connection manager. Redisson 3.9 has no hook into
+   * its channel initializer, so this is repeated whenever a node connects and, at most once a
+   * second, when an operation completes without a timed reply, e.g. on a connection the pool
+   * opened since. Replies are counted per node in {@link #WIRE_TIMED} and in {@link #WIRE_UNTIMED}
+   * under {@link #UNKNOWN_NODE}.
+   */
+  static class Installer {
+    private final ConnectionManager connectionManager;
+    private final TracingMetrics metrics;
+    private final LongAdder untimed;
+    private final AtomicLong lastInstallNanos = new AtomicLong(System.nanoTime());
+
+    Installer(ConnectionManager connectionManager, TracingMetrics metrics) {
+      this.connectionManager = connectionManager;
+      this.metrics = metrics;
+      this.untimed = metrics.counter(WIRE_UNTIMED, UNKNOWN_NODE);
+      // Operations started right after creating the client are timed
+      for (Future<?> future : install()) {
+        future.awaitUninterruptibly(INSTALL_TIMEOUT_MILLIS);
+      }
+    }
+
+    List<Future<?>> install() {
+      List<Future<?>> futures = new ArrayList<>();
+      for (MasterSlaveEntry entry : connectionManager.getEntrySet()) {
+        Set<ClientConnectionsEntry> clientEntries = new HashSet<>(entry.getAllEntries());
+        ClientConnectionsEntry master = master(entry);
+        if (master != null) {
+          clientEntries.add(master);
+        }
+        for (ClientConnectionsEntry clientEntry : clientEntries) {
+          // Entries of nodes still resolving or shutting down have no address yet
+          String name = ClusterTopology.address(clientEntry.getClient());
+          if (name == null) {
+            continue;
+          }
+          Node node = new Node(metrics.histogram(CLIENT_QUEUE_DELAY_US, name),
+              metrics.counter(WIRE_TIMED, name));
+          for (RedisConnection connection : clientEntry.getAllConnections()) {
+            futures.add(WireTimingHandler.install(connection.getChannel(), node));
+          }
+        }
+      }
+      return futures;
+    }
+
+    /**
+     * Tags the client queueing delay and the time from write to reply for the command whose reply
+     * is completing an operation started at <code>startNanos</code> on this thread. The queueing
+     * delay, from the API call to the write, is also recorded per node.
+     */
+    void onReply(Span span, long startNanos) {
+      Reply reply = REPLY.get();
+      if (reply.readNanos != 0 && reply.writeNanos - startNanos >= 0) {
+        long queueDelay = TimeUnit.NANOSECONDS.toMicros(reply.writeNanos - startNanos);
+        span.setTag(CLIENT_QUEUE_DELAY_US, queueDelay);
+        reply.node.queueDelay.record(queueDelay);
+        reply.node.timed.increment();
+        span.setTag(NET_WRITE_TO_READ_US,
+            TimeUnit.NANOSECONDS.toMicros(reply.readNanos - reply.writeNanos));
+        return;
+      }
+      untimed.increment();
+      long last = lastInstallNanos.get();
+      long now = System.nanoTime();
+      if (now - last >= REINSTALL_INTERVAL_NANOS && lastInstallNanos.compareAndSet(last, now)) {
+        install();
+      }
+    }
+  }
+
+  private static ClientConnectionsEntry master(MasterSlaveEntry entry) {
+    if (MASTER_ENTRY == null) {
+      return null;
+    }
+    try {
+      return (ClientConnectionsEntry) MASTER_ENTRY.get(entry);
+    } catch (IllegalAccessException e) {
+      return null;
+    }
+  }
+
+  private static Field masterEntryField() {
+    try {
+      // Redisson 3.9 keeps the pool of write connections out of getAllEntries()
+      Field field = MasterSlaveEntry.class.getDeclaredField("masterEntry");
+      field.setAccessible(true);
+      return field;
+    } catch (NoSuchFieldException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  private static Future<?> install(Channel channel, Node node) {
+    // Running on the channel's event loop serializes installs on the same channel
+    Runnable install = () -> {
+      ChannelPipeline pipeline = channel.pipeline();
+      ChannelHandlerContext queue = pipeline.context(CommandsQueue.class);
+      if (queue != null && pipeline.get(NAME) == null) {
+        pipeline.addBefore(queue.name(), NAME, new WireTimingHandler(node));
+      }
+    };
+    EventLoop eventLoop = channel.eventLoop();
+    if (eventLoop.inEventLoop()) {
+      install.run();
+      return eventLoop.newSucceededFuture(null);
+    }
+    return eventLoop.submit(install);
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
+      throws Exception {
+    if (msg instanceof QueueCommand) {
+      writeNanos = System.nanoTime();
+      readNanos = 0;
+    }
+    super.write(ctx, msg, promise);
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+    if (readNanos == 0) {
+      // Replies may span several reads, the first one is when the server answered
+      readNanos = System.nanoTime();
+    }
+    Reply reply = REPLY.get();
+    reply.node = node;
+    reply.writeNanos = writeNanos;
+    reply.readNanos = readNanos;
+    try {
+      super.channelRead(ctx, msg);
+    } finally {
+      reply.readNanos = 0;
+    }
+  }
+
+  private static class Node {
+    private final Histogram queueDelay;
+    private final LongAdder timed;
+
+    private Node(Histogram queueDelay, LongAdder timed) {
+      this.queueDelay = queueDelay;
+      this.timed = timed;
+    }
+  }
+
+  private static class Reply {
+    private Node node;
+    private long writeNanos;
+    private long readNanos;
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import io.opentracing.Span;
+import io.opentracing.tag.Tags;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of one Redisson operation. Compiled for Java 11 only and loaded through
+ * {@link EventRecorder#flightRecorder()}.
+ */
+@Name(RedissonEvent.NAME)
+@Label("Redisson Operation")
+@Description("Operation issued through a traced Redisson client")
+@Category({"Redisson"})
+@StackTrace(false)
+class RedissonEvent extends Event {
+  static final String NAME = "io.opentracing.contrib.redisson.Operation";
+
+  @Label("Operation")
+  String operation;
+
+  @Label("Object Name")
+  String name;
+
+  @Label("Error")
+  boolean error;
+
+  /**
+   * Starts an event timing the operation until the span finishes, unless no recording is
+   * interested in it.
+   */
+  static Span wrap(Span span, String operation, String name) {
+    RedissonEvent event = new RedissonEvent();
+    if (!event.isEnabled()) {
+      return span;
+    }
+    event.operation = operation;
+    event.name = name;
+    event.begin();
+    return new EventSpan(span, event);
+  }
+
+  static class Recorder implements EventRecorder {
+    @Override
+    public Span wrap(Span span, String operation, String name) {
+      return RedissonEvent.wrap(span, operation, name);
+    }
+  }
+
+  private static class EventSpan extends ForwardingSpan {
+    private final RedissonEvent event;
+
+    private EventSpan(Span span, RedissonEvent event) {
+      super(span);
+      this.event = event;
+    }
+
+    @Override
+    public Span setTag(String key, boolean value) {
+      if (Tags.ERROR.getKey().equals(key)) {
+        event.error = value;
+      }
+      return super.setTag(key, value);
+    }
+
+    @Override
+    void onFinish(long finishNanos) {
+      event.commit();
+    }
+  }
+}
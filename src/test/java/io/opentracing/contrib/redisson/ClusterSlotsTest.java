@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ClusterSlotsTest {
+
+  @Test
+  public void crc16_of_reference_input() {
+    // Check value of CRC-16/XMODEM used by the Redis Cluster specification
+    assertEquals(0x31C3, ClusterSlots.crc16("123456789".getBytes(), 0, 9));
+  }
+
+  @Test
+  public void slot_of_key() {
+    assertEquals(12739, ClusterSlots.slot("123456789"));
+    assertEquals(12182, ClusterSlots.slot("foo"));
+  }
+
+  @Test
+  public void slot_of_hash_tag() {
+    assertEquals(ClusterSlots.slot("user1000"), ClusterSlots.slot("{user1000}.following"));
+    assertEquals(ClusterSlots.slot("user1000"), ClusterSlots.slot("{user1000}.followers"));
+    assertEquals(ClusterSlots.slot("bar"), ClusterSlots.slot("foo{bar}{zap}"));
+  }
+
+  @Test
+  public void slot_of_empty_or_unclosed_hash_tag() {
+    // Empty and unclosed tags hash the whole key
+    assertEquals(ClusterSlots.crc16("{}foo".getBytes(), 0, 5) % ClusterSlots.SLOTS,
+        ClusterSlots.slot("{}foo"));
+    assertEquals(ClusterSlots.crc16("{foo".getBytes(), 0, 4) % ClusterSlots.SLOTS,
+        ClusterSlots.slot("{foo"));
+  }
+}
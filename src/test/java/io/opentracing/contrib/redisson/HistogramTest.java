@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+  @Test
+  public void empty() {
+    Histogram histogram = new Histogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getMean(), 0);
+    assertEquals(0, histogram.getValueAtPercentile(99));
+  }
+
+  @Test
+  public void bucket_of() {
+    assertEquals(0, Histogram.bucketOf(0));
+    assertEquals(1, Histogram.bucketOf(1));
+    assertEquals(2, Histogram.bucketOf(2));
+    assertEquals(2, Histogram.bucketOf(3));
+    assertEquals(3, Histogram.bucketOf(4));
+    assertEquals(63, Histogram.bucketOf(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void record() {
+    Histogram histogram = new Histogram();
+    histogram.record(10);
+    histogram.record(20);
+    histogram.record(-5);
+    assertEquals(3, histogram.getCount());
+    assertEquals(30, histogram.getSum());
+    assertEquals(20, histogram.getMax());
+    assertEquals(10, histogram.getMean(), 0);
+  }
+
+  @Test
+  public void percentile_reports_bucket_upper_bound() {
+    Histogram histogram = new Histogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i);
+    }
+    // 50 falls into [32, 63]
+    assertEquals(63, histogram.getValueAtPercentile(50));
+    // 99 falls into [64, 127], capped by the maximum
+    assertEquals(100, histogram.getValueAtPercentile(99));
+    assertEquals(1, histogram.getValueAtPercentile(0));
+  }
+
+  @Test
+  public void percentile_of_large_values() {
+    Histogram histogram = new Histogram();
+    histogram.record(Long.MAX_VALUE);
+    assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.client.protocol.ScoredEntry;
+
+public class TracingHelperTest {
+
+  @Test
+  public void estimated_size_of_small_result_is_exact() {
+    assertEquals(6, TracingHelper.estimatedSize(StringCodec.INSTANCE,
+        Arrays.asList("a", "bb", "ccc"), 3));
+    assertEquals(0, TracingHelper.estimatedSize(StringCodec.INSTANCE,
+        Collections.emptyList(), 0));
+    assertEquals(0, TracingHelper.estimatedSize(null, Arrays.asList("a"), 1));
+  }
+
+  @Test
+  public void estimated_size_extrapolates_from_sample() {
+    // Only the first 16 elements are encoded, the 17th must not skew the estimate
+    List<String> result = new ArrayList<>();
+    Map<String, String> map = new LinkedHashMap<>();
+    for (int i = 0; i < 32; i++) {
+      String value = i == 16 ? "0123456789" : "a";
+      result.add(value);
+      map.put(String.format("%02d", i), value);
+    }
+    assertEquals(32, TracingHelper.estimatedSize(StringCodec.INSTANCE, result, 32));
+    assertEquals(96, TracingHelper.estimatedSize(StringCodec.INSTANCE, map, 32));
+  }
+
+  @Test
+  public void estimated_size_of_entries() {
+    assertEquals(4, TracingHelper.estimatedSize(StringCodec.INSTANCE,
+        Arrays.asList(new SimpleEntry<>("k", "v"), new SimpleEntry<>("k", "v")), 2));
+    assertEquals(5, TracingHelper.estimatedSize(StringCodec.INSTANCE,
+        Arrays.asList(new ScoredEntry<>(1.0, "a"), new ScoredEntry<>(2.0, "bcde")), 2));
+  }
+}
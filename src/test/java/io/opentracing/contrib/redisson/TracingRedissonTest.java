@@ -13,31 +13,59 @@
  */
 package io.opentracing.contrib.redisson;
 
+import static org.awaitility.Awaitility.await;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import io.opentracing.References;
 import io.opentracing.Scope;
 import io.opentracing.Span;
 import io.opentracing.mock.MockSpan;
 import io.opentracing.mock.MockTracer;
+import io.opentracing.noop.NoopSpan;
 import io.opentracing.tag.Tags;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.redisson.Redisson;
+import org.redisson.RedissonObject;
+import org.redisson.api.LocalCachedMapOptions;
 import org.redisson.api.RAtomicLong;
+import org.redisson.api.RBlockingQueue;
+import org.redisson.api.RBucket;
+import org.redisson.api.RCountDownLatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RKeys;
 import org.redisson.api.RList;
 import org.redisson.api.RListMultimap;
+import org.redisson.api.RLocalCachedMap;
 import org.redisson.api.RLock;
 import org.redisson.api.RMap;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RScript;
+import org.redisson.api.RSemaphore;
 import org.redisson.api.RSet;
 import org.redisson.api.RSetMultimap;
+import org.redisson.api.RTopic;
 import org.redisson.api.RedissonClient;
+import org.redisson.cache.LocalCachedMapInvalidate;
+import org.redisson.cache.LocalCachedMessageCodec;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
 import org.redisson.config.Config;
 import redis.embedded.RedisServer;
 
@@ -45,6 +73,7 @@ public class TracingRedissonTest {
   private MockTracer tracer = new MockTracer();
   private RedisServer redisServer;
   private RedissonClient client;
+  private final List<RedissonClient> clients = new ArrayList<>();
 
   @Before
   public void before() {
@@ -53,10 +82,7 @@ public class TracingRedissonTest {
     redisServer = RedisServer.builder().setting("bind 127.0.0.1").build();
     redisServer.start();
 
-    Config config = new Config();
-    config.useSingleServer().setAddress("redis://127.0.0.1:6379");
-
-    client = new TracingRedissonClient(Redisson.create(config), tracer, false);
+    client = new TracingRedissonClient(Redisson.create(config()), tracer, false);
   }
 
   @After
@@ -64,6 +90,9 @@ public class TracingRedissonTest {
     if (client != null) {
       client.shutdown();
     }
+    for (RedissonClient configuredClient : clients) {
+      configuredClient.shutdown();
+    }
     if (redisServer != null) {
       redisServer.stop();
     }
@@ -182,6 +211,788 @@ public class TracingRedissonTest {
     assertNull(tracer.activeSpan());
   }
 
+  @Test
+  public void test_lock_lease_expired() throws Exception {
+    RLock lock = client.getLock("lock");
+
+    lock.lock(200, TimeUnit.MILLISECONDS);
+    TimeUnit.MILLISECONDS.sleep(400);
+    try {
+      lock.unlock();
+    } catch (IllegalMonitorStateException ignore) {
+    }
+
+    List<MockSpan> spans = tracer.finishedSpans();
+    assertEquals(2, spans.size());
+    MockSpan unlockSpan = spans.get(1);
+    assertEquals(Boolean.TRUE, unlockSpan.tags().get(Tags.ERROR.getKey()));
+    assertEquals(Boolean.TRUE, unlockSpan.tags().get(LockLeaseTracker.LOCK_LEASE_EXPIRED));
+    assertEquals(1, ((TracingRedissonClient) client).getMetrics()
+        .getCount(LockLeaseTracker.LOCK_LEASE_EXPIRED, "lock"));
+  }
+
+  @Test
+  public void test_semaphore_permits() throws Exception {
+    RSemaphore semaphore = client.getSemaphore("semaphore");
+    TracingMetrics metrics = ((TracingRedissonClient) client).getMetrics();
+
+    assertTrue(semaphore.trySetPermits(2));
+    semaphore.acquire(2);
+    assertEquals(2,
+        metrics.getGauge(SemaphorePermitTracker.SEMAPHORE_PERMITS_OUTSTANDING, "semaphore"));
+    await().atMost(15, TimeUnit.SECONDS).until(() ->
+        metrics.getGauge(SemaphorePermitTracker.SEMAPHORE_PERMITS_AVAILABLE, "semaphore") == 0);
+    assertFalse(semaphore.tryAcquire());
+    semaphore.release(2);
+
+    assertEquals(0,
+        metrics.getGauge(SemaphorePermitTracker.SEMAPHORE_PERMITS_OUTSTANDING, "semaphore"));
+    assertEquals(1,
+        metrics.getCount(SemaphorePermitTracker.SEMAPHORE_ACQUIRE_REJECTED, "semaphore"));
+    assertEquals(1, metrics.getHistogram(SemaphorePermitTracker.SEMAPHORE_HOLD_MS, "semaphore")
+        .getCount());
+    assertEquals(1,
+        metrics.getHistogram(SemaphorePermitTracker.SEMAPHORE_ACQUIRE_WAIT_MS, "semaphore")
+            .getCount());
+    checkSpans(tracer.finishedSpans());
+  }
+
+  @Test
+  public void test_count_down_latch_releaser_links() throws Exception {
+    TracingRedissonClient linkingClient =
+        newClient(new TracingConfiguration.Builder(tracer).latchReleaserLinks(3).build());
+    RCountDownLatch latch = linkingClient.getCountDownLatch("latch");
+    assertTrue(latch.trySetCount(1));
+    latch.countDown();
+    await().atMost(15, TimeUnit.SECONDS)
+        .until(() -> linkingClient.getKeys().countExists(
+            TracingRCountDownLatch.releasersName("latch")) == 1);
+    latch.await();
+
+    MockSpan countDownSpan = finishedSpan("countDown");
+    MockSpan awaitSpan = finishedSpan("await");
+    MockSpan releasedSpan = finishedSpan("released");
+    assertEquals(2, releasedSpan.references().size());
+    assertEquals(References.CHILD_OF, releasedSpan.references().get(0).getReferenceType());
+    assertEquals(awaitSpan.context().spanId(),
+        releasedSpan.references().get(0).getContext().spanId());
+    assertEquals(References.FOLLOWS_FROM, releasedSpan.references().get(1).getReferenceType());
+    assertEquals(countDownSpan.context().spanId(),
+        releasedSpan.references().get(1).getContext().spanId());
+    assertNotNull(releasedSpan.tags().get(TracingRCountDownLatch.LATCH_WAKEUP_DELAY_MS));
+    assertTrue(releasedSpan.finishMicros() <= awaitSpan.finishMicros());
+  }
+
+  @Test
+  public void test_blocking_queue_wait() throws Exception {
+    RBlockingQueue<String> queue = client.getBlockingQueue("queue");
+
+    queue.offer("element");
+    assertEquals("element", queue.take());
+    assertNull(queue.poll(100, TimeUnit.MILLISECONDS));
+
+    List<MockSpan> spans = tracer.finishedSpans();
+    assertEquals(3, spans.size());
+    checkSpans(spans);
+    MockSpan take = spans.get(1);
+    assertEquals("take", take.operationName());
+    assertNotNull(take.tags().get(TracingHelper.QUEUE_WAIT_MS));
+    assertEquals("queue", take.tags().get("queue.yielded"));
+
+    MockSpan poll = spans.get(2);
+    assertEquals("poll", poll.operationName());
+    assertTrue(((Number) poll.tags().get(TracingHelper.QUEUE_WAIT_MS)).longValue() >= 50);
+    assertNull(poll.tags().get("queue.yielded"));
+
+    TracingMetrics metrics = ((TracingRedissonClient) client).getMetrics();
+    assertEquals(2, metrics.getHistogram(TracingHelper.QUEUE_WAIT_MS, "queue").getCount());
+    // Waiting is not node latency, only the offer is a sample
+    assertEquals(1,
+        metrics.getHistogram(ClusterTopology.NODE_LATENCY_US, "127.0.0.1:6379").getCount());
+  }
+
+  @Test
+  public void test_blocking_queue_drain() throws Exception {
+    RBlockingQueue<String> queue = client.getBlockingQueue("drain");
+
+    queue.offer("first");
+    queue.offer("second");
+    queue.offer("third");
+    assertEquals("third", queue.pollLastAndOfferFirstTo("drain_target", 1, TimeUnit.SECONDS));
+    List<String> drained = new ArrayList<>();
+    assertEquals(2, queue.drainTo(drained, 10));
+    assertEquals(Arrays.asList("first", "second"), drained);
+
+    List<MockSpan> spans = tracer.finishedSpans();
+    checkSpans(spans);
+    MockSpan drainTo = spans.get(spans.size() - 1);
+    assertEquals("drainTo", drainTo.operationName());
+    assertEquals(2, drainTo.tags().get("queue.transferred"));
+
+    TracingMetrics metrics = ((TracingRedissonClient) client).getMetrics();
+    assertEquals(3, metrics.getCount(QueueThroughputTracker.QUEUE_OFFERED, "drain"));
+    assertEquals(3, metrics.getCount(QueueThroughputTracker.QUEUE_DRAINED, "drain"));
+    assertEquals(1, metrics.getCount(QueueThroughputTracker.QUEUE_OFFERED, "drain_target"));
+    assertEquals(1,
+        metrics.getHistogram(QueueThroughputTracker.QUEUE_DRAIN_BATCH, "drain").getCount());
+  }
+
+  @Test
+  public void test_queue_drain_bytes_and_rates() throws Exception {
+    TracingRedissonClient sizingClient =
+        newClient(new TracingConfiguration.Builder(tracer).resultBytes(true).build());
+    RBlockingQueue<String> queue = sizingClient.getBlockingQueue("drain");
+    queue.offer("first");
+    queue.offer("second");
+    List<String> drained = new ArrayList<>();
+    assertEquals(2, queue.drainTo(drained));
+    assertTrue((Long) finishedSpan("drainTo").tags().get(TracingHelper.DB_RESULT_BYTES_ESTIMATE)
+        > 0);
+
+    TracingMetrics metrics = sizingClient.getMetrics();
+    TimeUnit.MILLISECONDS.sleep(1100);
+    assertTrue(metrics.getGauge(QueueThroughputTracker.QUEUE_DRAINED_RATE, "drain") > 0);
+    // Rates fall to 0 without any further operation on the queue
+    TimeUnit.MILLISECONDS.sleep(1100);
+    assertEquals(0, metrics.getGauge(QueueThroughputTracker.QUEUE_DRAINED_RATE, "drain"));
+    assertEquals(0, (long) metrics.getGauges(QueueThroughputTracker.QUEUE_OFFERED_RATE)
+        .get("drain"));
+  }
+
+  @Test
+  public void test_local_cached_map() {
+    RLocalCachedMap<String, String> map =
+        client.getLocalCachedMap("local", LocalCachedMapOptions.defaults());
+
+    map.put("key", "value");
+    assertEquals("value", map.get("key"));
+    assertNull(map.get("missing"));
+
+    List<MockSpan> spans = tracer.finishedSpans();
+    assertEquals(2, spans.size());
+    checkSpans(spans);
+    assertEquals("put", spans.get(0).operationName());
+    assertEquals("get", spans.get(1).operationName());
+    assertEquals("missing", spans.get(1).tags().get("key"));
+
+    TracingMetrics metrics = ((TracingRedissonClient) client).getMetrics();
+    assertEquals(1, metrics.getCount(TracingRLocalCachedMap.LOCAL_CACHE_HITS, "local"));
+    assertEquals(1, metrics.getCount(TracingRLocalCachedMap.LOCAL_CACHE_MISSES, "local"));
+    assertEquals(0.5, metrics.getLocalCacheHitRatio("local"), 0.001);
+  }
+
+  @Test
+  public void test_local_cached_map_staleness() {
+    TracingConfiguration tracingConfiguration = new TracingConfiguration.Builder(tracer)
+        .localCacheInvalidationTracking(true).build();
+    RedissonClient writer = newClient(tracingConfiguration);
+    TracingRedissonClient reader = newClient(tracingConfiguration);
+    RLocalCachedMap<String, String> writerMap =
+        writer.getLocalCachedMap("local", LocalCachedMapOptions.defaults());
+    RLocalCachedMap<String, String> readerMap =
+        reader.getLocalCachedMap("local", LocalCachedMapOptions.defaults());
+    writerMap.put("key", "first");
+    assertEquals("first", readerMap.get("key"));
+
+    writerMap.put("key", "second");
+    await().atMost(15, TimeUnit.SECONDS).until(() -> reader.getMetrics()
+        .getHistogram(LocalCacheInvalidationTracker.LOCAL_CACHE_STALENESS_MS, "local") != null);
+    assertEquals("second", readerMap.get("key"));
+  }
+
+  @Test
+  public void test_local_cached_map_invalidation_before_stamp() throws Exception {
+    TracingRedissonClient reader = newClient(new TracingConfiguration.Builder(tracer)
+        .localCacheInvalidationTracking(true).build());
+    reader.getLocalCachedMap("local", LocalCachedMapOptions.defaults());
+    // Redisson's key hashes are 16 bytes long
+    byte[] keyHash = new byte[16];
+    keyHash[0] = 1;
+    RedissonClient other = newClient(new TracingConfiguration.Builder(tracer).build());
+
+    other.getTopic(RedissonObject.suffixName("local", "topic"), LocalCachedMessageCodec.INSTANCE)
+        .publish(new LocalCachedMapInvalidate(new byte[16], keyHash));
+    RTopic stamps = other.getTopic("redisson_local_cache_stamps:local", StringCodec.INSTANCE);
+    stamps.publish("other|not a timestamp|" + Base64.getEncoder().encodeToString(keyHash));
+    stamps.publish("other|" + (System.currentTimeMillis() - 100) + '|'
+        + Base64.getEncoder().encodeToString(keyHash));
+
+    TracingMetrics metrics = reader.getMetrics();
+    await().atMost(15, TimeUnit.SECONDS).until(() -> metrics
+        .getHistogram(LocalCacheInvalidationTracker.LOCAL_CACHE_STALENESS_MS, "local") != null);
+    assertEquals(1, metrics
+        .getHistogram(LocalCacheInvalidationTracker.LOCAL_CACHE_STALENESS_MS, "local").getCount());
+  }
+
+  @Test
+  public void test_hot_keys() {
+    TracingRedissonClient hotKeysClient =
+        newClient(new TracingConfiguration.Builder(tracer).hotKeys(2).build());
+    RBucket<String> bucket = hotKeysClient.getBucket("hot");
+    RMap<String, String> map = hotKeysClient.getMap("map");
+    for (int i = 0; i < 20; i++) {
+      bucket.get();
+    }
+    for (int i = 0; i < 5; i++) {
+      map.get("warm");
+    }
+    map.get("cold");
+
+    List<HotKey> hotKeys = hotKeysClient.getHotKeys();
+    assertEquals(2, hotKeys.size());
+    assertEquals("hot", hotKeys.get(0).getName());
+    assertNull(hotKeys.get(0).getField());
+    assertEquals(20, hotKeys.get(0).getCount());
+    assertEquals("map", hotKeys.get(1).getName());
+    assertEquals("warm", hotKeys.get(1).getField());
+  }
+
+  @Test
+  public void test_payload_sizes() throws Exception {
+    TracingRedissonClient payloadClient =
+        newClient(new TracingConfiguration.Builder(tracer).payloadSizes(true).build());
+    RMap<String, String> map = payloadClient.getMap("map", StringCodec.INSTANCE);
+    map.put("key", "value");
+    assertEquals("value", map.get("key"));
+
+    // The reply arrives after the completion listener is registered
+    RBlockingQueue<String> queue = payloadClient.getBlockingQueue("queue", StringCodec.INSTANCE);
+    RFuture<String> take = queue.takeAsync();
+    queue.offer("value");
+    assertEquals("value", take.toCompletableFuture().get(15, TimeUnit.SECONDS));
+
+    assertEquals(8L, finishedSpan("put").tags().get(TracingCodec.DB_REQUEST_BYTES));
+    assertEquals(3L, finishedSpan("get").tags().get(TracingCodec.DB_REQUEST_BYTES));
+    assertEquals(5L, finishedSpan("takeAsync").tags().get(TracingCodec.DB_RESPONSE_BYTES));
+
+    TracingMetrics metrics = payloadClient.getMetrics();
+    assertEquals(11, metrics.getHistogram(TracingCodec.DB_REQUEST_BYTES, "map").getSum());
+    assertEquals(5, metrics.getHistogram(TracingCodec.DB_RESPONSE_BYTES, "map").getMax());
+    assertSame(StringCodec.INSTANCE, map.getCodec());
+  }
+
+  @Test
+  public void test_codec_timing() throws Exception {
+    TracingRedissonClient timingClient =
+        newClient(new TracingConfiguration.Builder(tracer).codecTiming(true).build());
+    RMap<String, String> map = timingClient.getMap("map", StringCodec.INSTANCE);
+    map.put("key", "value");
+    assertEquals("value", map.readAllMap().get("key"));
+
+    RBlockingQueue<String> queue = timingClient.getBlockingQueue("queue", StringCodec.INSTANCE);
+    RFuture<String> take = queue.takeAsync();
+    queue.offer("value");
+    assertEquals("value", take.toCompletableFuture().get(15, TimeUnit.SECONDS));
+
+    assertNotNull(finishedSpan("put").tags().get(TracingCodec.CODEC_ENCODE_NS));
+    assertNull(finishedSpan("put").tags().get(TracingCodec.DB_REQUEST_BYTES));
+    assertNotNull(finishedSpan("takeAsync").tags().get(TracingCodec.CODEC_DECODE_NS));
+
+    TracingMetrics metrics = timingClient.getMetrics();
+    assertEquals(3, metrics.getHistogram(TracingCodec.CODEC_ENCODE_NS, "StringCodec").getCount());
+    assertEquals(3, metrics.getHistogram(TracingCodec.CODEC_DECODE_NS, "StringCodec").getCount());
+    assertNull(metrics.getHistogram(TracingCodec.DB_REQUEST_BYTES, "map"));
+    assertNull(tracer.activeSpan());
+  }
+
+  @Test
+  public void test_codec_timing_of_sync_bulk_read() {
+    TracingRedissonClient timingClient =
+        newClient(new TracingConfiguration.Builder(tracer).codecTiming(true).build());
+    RMap<String, String> map = timingClient.getMap("map", StringCodec.INSTANCE);
+    map.put("key", "value");
+    // A reply completing before the callback is attached cannot be attributed, so retry
+    await().atMost(15, TimeUnit.SECONDS).until(() -> {
+      tracer.reset();
+      assertEquals("value", map.readAllMap().get("key"));
+      return finishedSpan("readAllMap").tags().get(TracingCodec.CODEC_DECODE_NS) != null;
+    });
+    assertNull(tracer.activeSpan());
+  }
+
+  @Test
+  public void test_cluster_slots() {
+    RMap<String, String> map = client.getMap("map");
+    map.put("key", "value");
+
+    List<MockSpan> spans = tracer.finishedSpans();
+    assertEquals(1, spans.size());
+    assertEquals("127.0.0.1:6379", spans.get(0).tags().get(ClusterTopology.PEER_ADDRESS));
+    // Single server mode has no slots
+    assertNull(spans.get(0).tags().get(ClusterTopology.REDIS_SLOT));
+    assertEquals(1, ((TracingRedissonClient) client).getMetrics()
+        .getHistogram(ClusterTopology.NODE_LATENCY_US, "127.0.0.1:6379").getCount());
+  }
+
+  @Test
+  public void test_buckets_fan_out() {
+    TracingRedissonClient fanOutClient =
+        newClient(new TracingConfiguration.Builder(tracer).fanOutSpans(true).build());
+    Map<String, String> values = new HashMap<>();
+    values.put("first", "1");
+    values.put("second", "2");
+    fanOutClient.getBuckets().set(values);
+    assertEquals(values, fanOutClient.getBuckets().get("first", "second"));
+
+    // Single server: nothing to fan out, so no grouping work and no child spans
+    MockSpan get = finishedSpan("get");
+    assertNull(get.tags().get(TracingHelper.FANOUT_NODES));
+    assertNull(get.tags().get(TracingHelper.FANOUT_KEYS_PER_NODE));
+    assertEquals(2, tracer.finishedSpans().size());
+  }
+
+  @Test
+  public void test_keys_broadcast() {
+    client.getBucket("bucket").set("value");
+    RKeys keys = client.getKeys();
+    assertEquals(1, keys.count());
+    assertEquals(Arrays.asList("bucket"), new ArrayList<>(keys.findKeysByPattern("buck*")));
+    try {
+      keys.flushdbParallel();
+      fail();
+    } catch (RedisException e) {
+      // embedded Redis predates FLUSHDB ASYNC
+    }
+
+    assertEquals(7, tracer.finishedSpans().size());
+    MockSpan count = finishedSpan("count");
+    assertEquals("127.0.0.1:6379", count.tags().get(NodeBroadcast.NODES_SLOWEST));
+    assertNotNull(count.tags().get(NodeBroadcast.NODES_US));
+
+    MockSpan flush = finishedSpan("flushdbParallel");
+    assertEquals(Boolean.TRUE, flush.tags().get(Tags.ERROR.getKey()));
+    for (MockSpan span : Arrays.asList(count, finishedSpan("findKeysByPattern"), flush)) {
+      List<MockSpan> nodes = new ArrayList<>();
+      for (MockSpan node : tracer.finishedSpans()) {
+        if (node.parentId() == span.context().spanId()) {
+          nodes.add(node);
+        }
+      }
+      assertEquals(1, nodes.size());
+      assertEquals("node", nodes.get(0).operationName());
+      assertEquals("127.0.0.1:6379", nodes.get(0).tags().get(ClusterTopology.PEER_ADDRESS));
+    }
+    assertNull(tracer.activeSpan());
+  }
+
+  @Test
+  public void test_keys_scan() {
+    for (int i = 0; i < 25; i++) {
+      client.getBucket("key" + i).set(i);
+    }
+    tracer.reset();
+    RKeys keys = client.getKeys();
+    Iterable<String> iterable = keys.getKeysByPattern("key*", 10);
+    assertTrue(tracer.finishedSpans().isEmpty());
+    List<String> found = new ArrayList<>();
+    iterable.forEach(found::add);
+    assertEquals(25, found.size());
+
+    MockSpan scan = finishedSpan("getKeysByPattern");
+    assertEquals(25L, scan.tags().get(TracingIterator.ITERATION_ELEMENTS));
+    assertTrue((Long) scan.tags().get(TracingIterator.ITERATION_PAGES) >= 1);
+    assertNotNull(scan.tags().get(TracingIterator.ITERATION_PAGES_US));
+    assertEquals(25L, scan.tags().get(TracingIterator.ITERATION_PAGE_ELEMENTS));
+    assertTrue((Long) scan.tags().get(TracingIterator.ITERATION_PAGE_MAX_ELEMENTS) > 0);
+    assertNull(scan.tags().get(TracingIterator.ITERATION_ABANDONED));
+    tracer.reset();
+
+    // Abandoned iterations are finished once the iterator is collected
+    Iterator<String> abandoned = keys.getKeys().iterator();
+    assertTrue(abandoned.hasNext());
+    abandoned = null;
+    await().atMost(15, TimeUnit.SECONDS).until(() -> {
+      System.gc();
+      return !tracer.finishedSpans().isEmpty();
+    });
+    assertEquals(true, finishedSpan("getKeys").tags().get(TracingIterator.ITERATION_ABANDONED));
+
+    assertEquals(25, keys.deleteByPattern("key*"));
+    MockSpan delete = finishedSpan("deleteByPattern");
+    assertTrue((Long) delete.tags().get(TracingIterator.ITERATION_PAGES) >= 1);
+    Map<String, ?> progress = delete.logEntries().get(delete.logEntries().size() - 1).fields();
+    assertEquals(25L, progress.get("scanned"));
+    assertEquals(25L, progress.get("deleted"));
+    assertFalse(keys.getKeys().iterator().hasNext());
+    assertNull(tracer.activeSpan());
+  }
+
+  @Test
+  public void test_iteration_spans() {
+    RList<Integer> list = client.getList("list");
+    RSet<Integer> set = client.getSet("set");
+    RMap<Integer, Integer> map = client.getMap("map");
+    for (int i = 0; i < 25; i++) {
+      list.add(i);
+      set.add(i);
+      map.put(i, i);
+    }
+    tracer.reset();
+
+    List<Integer> listed = new ArrayList<>();
+    list.iterator().forEachRemaining(listed::add);
+    assertEquals(25, listed.size());
+    assertEquals(Integer.valueOf(24), listed.get(24));
+    MockSpan listIteration = finishedSpan("iterator");
+    assertEquals(25L, listIteration.tags().get(TracingIterator.ITERATION_ELEMENTS));
+    assertNull(listIteration.tags().get(TracingIterator.ITERATION_PAGES));
+    tracer.reset();
+
+    RList<Integer> pagedList = newClient(new TracingConfiguration.Builder(tracer)
+        .pagedListIteration(true).build()).getList("list");
+    List<Integer> paged = new ArrayList<>();
+    pagedList.iterator().forEachRemaining(paged::add);
+    assertEquals(listed, paged);
+    MockSpan pagedIteration = finishedSpan("iterator");
+    assertEquals(25L, pagedIteration.tags().get(TracingIterator.ITERATION_ELEMENTS));
+    assertEquals(3L, pagedIteration.tags().get(TracingIterator.ITERATION_PAGES));
+    tracer.reset();
+
+    // Java 9 and later count sized streams without iterating them
+    assertEquals(25, set.stream().filter(value -> true).count());
+    MockSpan setIteration = finishedSpan("iterator");
+    assertEquals(25L, setIteration.tags().get(TracingIterator.ITERATION_ELEMENTS));
+    assertTrue((Long) setIteration.tags().get(TracingIterator.ITERATION_PAGES) >= 1);
+    assertEquals(25L, setIteration.tags().get(TracingIterator.ITERATION_PAGE_ELEMENTS));
+    tracer.reset();
+
+    assertEquals(25, map.keySet().stream().filter(key -> true).count());
+    MockSpan keySetIteration = finishedSpan("iterator");
+    assertEquals("keySet", keySetIteration.tags().get("view"));
+    assertEquals(25L, keySetIteration.tags().get(TracingIterator.ITERATION_ELEMENTS));
+    assertTrue((Long) keySetIteration.tags().get(TracingIterator.ITERATION_PAGES) >= 1);
+    assertEquals(25L, keySetIteration.tags().get(TracingIterator.ITERATION_PAGE_ELEMENTS));
+    assertNull(tracer.activeSpan());
+  }
+
+  @Test
+  public void test_result_sizes() throws Exception {
+    TracingRedissonClient resultClient =
+        newClient(new TracingConfiguration.Builder(tracer).resultBytes(true).build());
+    RScoredSortedSet<String> set =
+        resultClient.getScoredSortedSet("scores", StringCodec.INSTANCE);
+    set.add(1, "a");
+    set.add(2, "b");
+    set.add(3, "c");
+    assertEquals(3, set.valueRange(0, -1).size());
+    assertEquals(2, set.entryRangeAsync(0, 1).toCompletableFuture().get(15, TimeUnit.SECONDS)
+        .size());
+
+    RMap<String, String> map = resultClient.getMap("map", StringCodec.INSTANCE);
+    map.put("k1", "v1");
+    map.put("k2", "v2");
+    assertEquals(2, map.readAllMap().size());
+
+    MockSpan valueRange = finishedSpan("valueRange");
+    assertEquals(3, valueRange.tags().get(TracingHelper.DB_RESULT_SIZE));
+    assertEquals(3L, valueRange.tags().get(TracingHelper.DB_RESULT_BYTES_ESTIMATE));
+    assertEquals(2, finishedSpan("entryRangeAsync").tags().get(TracingHelper.DB_RESULT_SIZE));
+    MockSpan readAllMap = finishedSpan("readAllMap");
+    assertEquals(8L, readAllMap.tags().get(TracingHelper.DB_RESULT_BYTES_ESTIMATE));
+
+    TracingMetrics metrics = resultClient.getMetrics();
+    assertEquals(3, metrics.getHistogram(TracingHelper.DB_RESULT_SIZE, "scores").getMax());
+    assertEquals(2, metrics.getHistogram(TracingHelper.DB_RESULT_SIZE, "map").getMax());
+  }
+
+  @Test
+  public void test_repeated_access() {
+    TracingRedissonClient detectingClient =
+        newClient(new TracingConfiguration.Builder(tracer).repeatedAccessThreshold(10).build());
+    RMap<String, String> map = detectingClient.getMap("map");
+    try (Scope ignored = tracer.buildSpan("parent").startActive(true)) {
+      for (int i = 0; i < 50; i++) {
+        map.get("key" + i);
+      }
+      for (int i = 0; i < 5; i++) {
+        map.put("key" + i, "value");
+      }
+    }
+
+    MockSpan parentSpan = finishedSpan("parent");
+    assertEquals(1, parentSpan.logEntries().size());
+    Map<String, ?> fields = parentSpan.logEntries().get(0).fields();
+    assertEquals(RepeatedAccessDetector.REPEATED_ACCESS, fields.get("event"));
+    assertEquals("get", fields.get("operation"));
+    assertEquals("getAll or RBatch", fields.get("suggestion"));
+    assertEquals(1, detectingClient.getMetrics()
+        .getCount(RepeatedAccessDetector.REPEATED_ACCESS, "map"));
+  }
+
+  @Test
+  public void test_redis_time_rollup() throws Exception {
+    TracingRedissonClient rollupClient = newClient(new TracingConfiguration.Builder(tracer)
+        .redisTimeRollup(true).payloadSizes(true).build());
+    RMap<String, String> map = rollupClient.getMap("map", StringCodec.INSTANCE);
+    Span rollup = rollupClient.rollup(tracer.buildSpan("parent").start());
+    try (Scope ignored = tracer.scopeManager().activate(rollup, true)) {
+      map.put("key", "value");
+      assertEquals("value", map.get("key"));
+      map.fastRemove("key");
+      // Blocking is not Redis time
+      assertNull(rollupClient.getBlockingQueue("queue").poll(50, TimeUnit.MILLISECONDS));
+    }
+    // Parents not wrapped are left alone
+    try (Scope ignored = tracer.buildSpan("other").startActive(true)) {
+      map.get("key");
+    }
+    assertNull(finishedSpan("other").tags().get(RedisTimeRollup.REDIS_OPS));
+
+    MockSpan parent = finishedSpan("parent");
+    assertEquals(3L, parent.tags().get(RedisTimeRollup.REDIS_OPS));
+    assertTrue((Double) parent.tags().get(RedisTimeRollup.REDIS_TOTAL_MS) > 0);
+    assertTrue((Long) parent.tags().get(RedisTimeRollup.REDIS_BYTES) >= 11);
+    assertNull(parent.tags().get(RedisTimeRollup.REDIS_ERRORS));
+  }
+
+  @Test
+  public void test_jfr_events() {
+    // Events are recorded on Java 11 or later only, see RedissonEventTest, spans are the same
+    // either way
+    TracingRedissonClient jfrClient =
+        newClient(new TracingConfiguration.Builder(tracer).jfrEvents(true).build());
+    jfrClient.getMap("map").put("key", "value");
+    assertEquals(1, tracer.finishedSpans().size());
+    assertNull(tracer.activeSpan());
+    // Java 8 reports its version as 1.8
+    boolean java11 = !System.getProperty("java.specification.version").startsWith("1.");
+    assertEquals(java11, EventRecorder.flightRecorder() != null);
+  }
+
+  @Test
+  public void test_span_finisher() throws Exception {
+    TracingRedissonClient finisherClient =
+        newClient(new TracingConfiguration.Builder(tracer).spanFinisherCapacity(1024).build());
+    RBlockingQueue<String> queue = finisherClient.getBlockingQueue("queue");
+    RFuture<String> take = queue.takeAsync();
+    queue.offer("value");
+    assertEquals("value", take.toCompletableFuture().get(15, TimeUnit.SECONDS));
+
+    await().atMost(15, TimeUnit.SECONDS).until(() -> tracer.finishedSpans().size() == 2);
+    MockSpan takeSpan = finishedSpan("takeAsync");
+    MockSpan offerSpan = finishedSpan("offer");
+    assertTrue(takeSpan.finishMicros() >= offerSpan.startMicros());
+    assertTrue(offerSpan.finishMicros() >= offerSpan.startMicros());
+    tracer.reset();
+
+    // Start and finish come from one microsecond clock, whichever thread finishes the span
+    RBucket<String> bucket = finisherClient.getBucket("bucket");
+    for (int i = 0; i < 10; i++) {
+      bucket.getAsync().toCompletableFuture().get(15, TimeUnit.SECONDS);
+    }
+    await().atMost(15, TimeUnit.SECONDS).until(() -> tracer.finishedSpans().size() == 10);
+    assertTrue(tracer.finishedSpans().stream()
+        .allMatch(span -> span.finishMicros() >= span.startMicros()));
+    assertTrue(tracer.finishedSpans().stream()
+        .anyMatch(span -> (span.finishMicros() - span.startMicros()) % 1000 != 0));
+  }
+
+  @Test
+  public void test_span_watchdog() throws Exception {
+    TracingRedissonClient watchdogClient = newClient(new TracingConfiguration.Builder(tracer)
+        .spanDeadlineMillis(200).inFlightTracking(true).build());
+    RBlockingQueue<String> queue = watchdogClient.getBlockingQueue("queue");
+    RFuture<String> take = queue.takeAsync();
+
+    await().atMost(15, TimeUnit.SECONDS).until(() -> tracer.finishedSpans().size() == 1);
+    MockSpan takeSpan = finishedSpan("takeAsync");
+    assertEquals(true, takeSpan.tags().get(SpanWatchdog.TIMEOUT));
+    assertEquals(1, watchdogClient.getMetrics().getCount(SpanWatchdog.SPAN_TIMEOUTS, "queue"));
+    // The operation stays in flight until it completes
+    assertEquals(1, watchdogClient.getInFlightOperations(10).size());
+
+    // The late completion still reaches the caller
+    queue.offer("value");
+    assertEquals("value", take.toCompletableFuture().get(15, TimeUnit.SECONDS));
+    assertEquals(2, tracer.finishedSpans().size());
+    assertTrue(takeSpan.generatedErrors().isEmpty());
+    assertTrue(watchdogClient.getInFlightOperations(10).isEmpty());
+  }
+
+  @Test
+  public void test_in_flight_operations() throws Exception {
+    TracingRedissonClient inFlightClient =
+        newClient(new TracingConfiguration.Builder(tracer).inFlightTracking(true).build());
+    RBlockingQueue<String> queue = inFlightClient.getBlockingQueue("queue");
+    RFuture<String> take = queue.takeAsync();
+
+    List<InFlightOperation> inFlight = inFlightClient.getInFlightOperations(10);
+    assertEquals(1, inFlight.size());
+    assertEquals("takeAsync", inFlight.get(0).getOperation());
+    assertEquals("queue", inFlight.get(0).getName());
+    assertEquals(Thread.currentThread().getName(), inFlight.get(0).getThread());
+    TracingMetrics metrics = inFlightClient.getMetrics();
+    assertEquals(1, metrics.getGauge(InFlightRegistry.IN_FLIGHT, "RedissonBlockingQueue"));
+
+    queue.offer("value");
+    assertEquals("value", take.toCompletableFuture().get(15, TimeUnit.SECONDS));
+    await().atMost(15, TimeUnit.SECONDS)
+        .until(() -> inFlightClient.getInFlightOperations(10).isEmpty());
+    assertEquals(0, metrics.getGauge(InFlightRegistry.IN_FLIGHT, "RedissonBlockingQueue"));
+
+    // Keeps Redis busy so that the reply to the keys operation is held back
+    RFuture<Object> busy = client.getScript().evalAsync(RScript.Mode.READ_ONLY,
+        "local i = 0 while i < 30000000 do i = i + 1 end", RScript.ReturnType.VALUE);
+    Thread.sleep(50);
+    RFuture<Long> count = inFlightClient.getKeys().countExistsAsync("queue");
+    inFlight = inFlightClient.getInFlightOperations(10);
+    assertEquals(1, inFlight.size());
+    assertEquals("countExistsAsync", inFlight.get(0).getOperation());
+    assertNull(inFlight.get(0).getName());
+    assertEquals("RedissonKeys", inFlight.get(0).getType());
+    busy.toCompletableFuture().get(15, TimeUnit.SECONDS);
+    count.toCompletableFuture().get(15, TimeUnit.SECONDS);
+    await().atMost(15, TimeUnit.SECONDS)
+        .until(() -> inFlightClient.getInFlightOperations(10).isEmpty());
+  }
+
+  @Test
+  public void test_in_flight_overflow() {
+    TracingMetrics metrics = new TracingMetrics();
+    InFlightRegistry registry = new InFlightRegistry(metrics);
+    RBucket<String> bucket = client.getBucket("bucket");
+    List<Span> spans = new ArrayList<>();
+    for (int i = 0; i < 65; i++) {
+      spans.add(registry.track(NoopSpan.INSTANCE, "get", bucket));
+    }
+
+    assertEquals(64, registry.getOldest(100).size());
+    assertEquals(1, metrics.getCount(InFlightRegistry.IN_FLIGHT_OVERFLOW, "TracingRBucket"));
+    assertEquals(65, metrics.getGauge(InFlightRegistry.IN_FLIGHT, "TracingRBucket"));
+    spans.forEach(Span::finish);
+    assertTrue(registry.getOldest(100).isEmpty());
+    assertEquals(0, metrics.getGauge(InFlightRegistry.IN_FLIGHT, "TracingRBucket"));
+  }
+
+  @Test
+  public void test_wire_timing() throws Exception {
+    TracingRedissonClient wireClient =
+        newClient(new TracingConfiguration.Builder(tracer).wireTiming(true).build());
+    RBlockingQueue<String> queue = wireClient.getBlockingQueue("queue");
+    RFuture<String> take = queue.takeAsync();
+    TimeUnit.MILLISECONDS.sleep(200);
+    queue.offer("value");
+    assertEquals("value", take.toCompletableFuture().get(15, TimeUnit.SECONDS));
+
+    // The server answers only once the value is offered
+    MockSpan takeSpan = finishedSpan("takeAsync");
+    long writeToRead = (Long) takeSpan.tags().get(WireTimingHandler.NET_WRITE_TO_READ_US);
+    assertTrue(writeToRead >= TimeUnit.MILLISECONDS.toMicros(200));
+    long queueDelay = (Long) takeSpan.tags().get(WireTimingHandler.CLIENT_QUEUE_DELAY_US);
+    assertTrue(queueDelay < writeToRead);
+  }
+
+  @Test
+  public void test_client_queue_delay() throws Exception {
+    Config config = config();
+    config.useSingleServer().setConnectionPoolSize(1).setConnectionMinimumIdleSize(1);
+    TracingRedissonClient wireClient =
+        newClient(config, new TracingConfiguration.Builder(tracer).wireTiming(true).build());
+    RBucket<String> bucket = wireClient.getBucket("bucket");
+    List<RFuture<String>> futures = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      futures.add(bucket.getAsync());
+    }
+    for (RFuture<String> future : futures) {
+      future.toCompletableFuture().get(15, TimeUnit.SECONDS);
+    }
+
+    // Commands queue behind each other on the only connection
+    TracingMetrics metrics = wireClient.getMetrics();
+    Histogram queueDelay =
+        metrics.getHistogram(WireTimingHandler.CLIENT_QUEUE_DELAY_US, "127.0.0.1:6379");
+    long timed = metrics.getCount(WireTimingHandler.WIRE_TIMED, "127.0.0.1:6379");
+    assertEquals(100, timed
+        + metrics.getCount(WireTimingHandler.WIRE_UNTIMED, WireTimingHandler.UNKNOWN_NODE));
+    assertEquals(timed, queueDelay.getCount());
+    assertTrue(timed > 1);
+    long first = tracer.finishedSpans().stream()
+        .map(span -> (Long) span.tags().get(WireTimingHandler.CLIENT_QUEUE_DELAY_US))
+        .filter(delay -> delay != null)
+        .findFirst().get();
+    assertTrue(queueDelay.getMax() > first);
+  }
+
+  @Test
+  public void test_connection_events() throws Exception {
+    TracingRedissonClient eventsClient =
+        newClient(new TracingConfiguration.Builder(tracer).connectionEvents(true).build());
+    RBucket<String> bucket = eventsClient.getBucket("bucket");
+    bucket.set("value");
+
+    redisServer.stop();
+    TracingMetrics metrics = eventsClient.getMetrics();
+    await().atMost(15, TimeUnit.SECONDS).until(() -> metrics
+        .getCount(ConnectionEventTracker.CONNECTION_DISCONNECTS, "127.0.0.1:6379") == 1);
+    RFuture<String> get = bucket.getAsync();
+    redisServer.start();
+    await().atMost(30, TimeUnit.SECONDS).until(() -> metrics
+        .getCount(ConnectionEventTracker.CONNECTION_RECONNECTS, "127.0.0.1:6379") == 1);
+    try {
+      get.toCompletableFuture().get(30, TimeUnit.SECONDS);
+    } catch (ExecutionException e) {
+      // The operation may fail before the node is back
+    }
+
+    assertEquals(true,
+        finishedSpan("getAsync").tags().get(ConnectionEventTracker.DURING_RECONNECT));
+    assertNull(finishedSpan("set").tags().get(ConnectionEventTracker.DURING_RECONNECT));
+    assertEquals("127.0.0.1:6379",
+        finishedSpan("reconnect").tags().get(ClusterTopology.PEER_ADDRESS));
+  }
+
+  @Test
+  public void test_reconnect_by_address() {
+    ConnectionEventTracker tracker = new ConnectionEventTracker(null, new TracingMetrics(), null);
+    tracker.onDisconnect("127.0.0.2:6379");
+    tracker.wrap(tracer.buildSpan("other").start(), "127.0.0.1:6379").finish();
+    tracker.wrap(tracer.buildSpan("same").start(), "127.0.0.2:6379").finish();
+
+    assertNull(finishedSpan("other").tags().get(ConnectionEventTracker.DURING_RECONNECT));
+    assertEquals(true, finishedSpan("same").tags().get(ConnectionEventTracker.DURING_RECONNECT));
+    tracer.reset();
+
+    // Connecting during an operation only tags operations of the same or an unknown node
+    Span other = tracker.wrap(tracer.buildSpan("other").start(), "127.0.0.1:6379");
+    Span same = tracker.wrap(tracer.buildSpan("same").start(), "127.0.0.3:6379");
+    Span unknown = tracker.wrap(tracer.buildSpan("unknown").start(), null);
+    tracker.onConnect("127.0.0.3:6379");
+    other.finish();
+    same.finish();
+    unknown.finish();
+    assertNull(finishedSpan("other").tags().get(ConnectionEventTracker.DURING_RECONNECT));
+    assertEquals(true, finishedSpan("same").tags().get(ConnectionEventTracker.DURING_RECONNECT));
+    assertEquals(true,
+        finishedSpan("unknown").tags().get(ConnectionEventTracker.DURING_RECONNECT));
+  }
+
+  private static Config config() {
+    Config config = new Config();
+    config.useSingleServer().setAddress("redis://127.0.0.1:6379");
+    return config;
+  }
+
+  private TracingRedissonClient newClient(TracingConfiguration tracingConfiguration) {
+    return newClient(config(), tracingConfiguration);
+  }
+
+  private TracingRedissonClient newClient(Config config,
+      TracingConfiguration tracingConfiguration) {
+    TracingRedissonClient configuredClient =
+        new TracingRedissonClient(Redisson.create(config), tracingConfiguration);
+    clients.add(configuredClient);
+    return configuredClient;
+  }
+
+  private MockSpan finishedSpan(String operationName) {
+    for (MockSpan span : tracer.finishedSpans()) {
+      if (span.operationName().equals(operationName)) {
+        return span;
+      }
+    }
+    throw new AssertionError("No finished span " + operationName);
+  }
+
   private void checkSpans(List<MockSpan> spans) {
     for (MockSpan span : spans) {
       assertEquals(span.tags().get(Tags.SPAN_KIND.getKey()), Tags.SPAN_KIND_CLIENT);
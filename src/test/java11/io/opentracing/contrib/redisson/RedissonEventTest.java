@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 The OpenTracing Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.opentracing.contrib.redisson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.opentracing.mock.MockSpan;
+import io.opentracing.mock.MockTracer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RMap;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+public class RedissonEventTest {
+  private MockTracer tracer = new MockTracer();
+  private RedisServer redisServer;
+  private RedissonClient client;
+
+  @Before
+  public void before() {
+    redisServer = RedisServer.builder().setting("bind 127.0.0.1").build();
+    redisServer.start();
+  }
+
+  @After
+  public void after() {
+    if (client != null) {
+      client.shutdown();
+    }
+    if (redisServer != null) {
+      redisServer.stop();
+    }
+  }
+
+  @Test
+  public void test_jfr_events_without_spans() throws Exception {
+    client = newClient(new TracingConfiguration.Builder(tracer).spans(false).jfrEvents(true));
+    assertEquals(Arrays.asList("put", "get"), recordOperations());
+    assertTrue(tracer.finishedSpans().isEmpty());
+  }
+
+  @Test
+  public void test_jfr_events_with_spans() throws Exception {
+    client = newClient(new TracingConfiguration.Builder(tracer).jfrEvents(true));
+    assertEquals(Arrays.asList("put", "get"), recordOperations());
+    List<String> spans = new ArrayList<>();
+    for (MockSpan span : tracer.finishedSpans()) {
+      spans.add(span.operationName());
+    }
+    assertEquals(Arrays.asList("put", "get"), spans);
+  }
+
+  private RedissonClient newClient(TracingConfiguration.Builder builder) {
+    Config config = new Config();
+    config.useSingleServer().setAddress("redis://127.0.0.1:6379");
+    return new TracingRedissonClient(Redisson.create(config), builder.build());
+  }
+
+  /**
+   * @return operations of the events recorded for a put and a get of a map
+   */
+  private List<String> recordOperations() throws Exception {
+    Path dump = Files.createTempFile("redisson", ".jfr");
+    try (Recording recording = new Recording()) {
+      // The event class is in the multi-release section, out of the test compile classpath
+      recording.enable("io.opentracing.contrib.redisson.Operation");
+      recording.start();
+      RMap<String, String> map = client.getMap("map");
+      map.put("key", "value");
+      assertEquals("value", map.get("key"));
+      recording.stop();
+      recording.dump(dump);
+
+      List<String> operations = new ArrayList<>();
+      for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+        assertEquals("map", event.getString("name"));
+        operations.add(event.getString("operation"));
+      }
+      return operations;
+    } finally {
+      Files.delete(dump);
+    }
+  }
+}